@@ -61,6 +61,10 @@ public class CliArgs {
             + "типів пристроїв (за замовчуванням — вбудований dictionary_device_word.txt)")
     String dictionaryDeviceWord;
 
+    @Option(names = "--dictionary-cache", description = "JDBC URL SQLite для кешу результатів "
+            + "пошуку в словниках між запусками (скидається при зміні будь-якого файлу словника)")
+    String dictionaryCache;
+
     // ---- Загальні перемикачі функцій (властивість без секції — верхній рівень) ----
 
     @Option(names = "--incidents", negatable = true, description = "Увімкнути/вимкнути блок інцидентів")
@@ -81,6 +85,10 @@ public class CliArgs {
             description = "Дебаг-режим: звіт надсилається на email.toDebug замість email.to")
     Boolean debug;
 
+    @Option(names = "--daemon", negatable = true,
+            description = "Режим демона: тримати IMAP IDLE і надсилати звіт на кожній межі зміни (08:00/20:00)")
+    Boolean daemon;
+
     @Option(names = "--resilience-audit", negatable = true, description = "Увімкнути/вимкнути секцію "
             + "«Аудит резервного живлення через непрямий сигнал» (потребує --zabbix)")
     Boolean resilienceAudit;
@@ -90,6 +98,10 @@ public class CliArgs {
             + "(напр. wireguard,sstp)")
     String resilienceauditIgnoreinterfaceprefixes;
 
+    @Option(names = "--pd-ignore", description = "Правила пропуску тем PD-алертів через кому: підрядок "
+            + "або ~регулярний вираз (замінює вбудований список повністю)")
+    String pdIgnore;
+
     // ---- SNMP: hosts / ramos / celsius ----
 
     @Option(names = "--snmp-hosts", description = "Мапа хостів SNMP-моніторингу температури "
@@ -117,6 +129,18 @@ public class CliArgs {
     @Option(names = "--snmp-hosts-suffix", description = "Суфікс, що додається до hostname при SNMP-опитуванні")
     String snmpHostsSuffix;
 
+    @Option(names = "--snmp-health-cache", description = "JDBC URL SQLite для історії RTT і недоступності "
+            + "SNMP-пристроїв між запусками (порожньо — без історії)")
+    String snmpHealthCache;
+
+    @Option(names = "--snmp-deadline", description = "Скільки секунд відводиться на все SNMP-опитування звіту; "
+            + "пристрої, до яких черга не дійшла, позначаються пропущеними (за замовчуванням 120)")
+    Integer snmpDeadline;
+
+    @Option(names = "--snmp-dead-after", description = "Після скількох запусків поспіль без відповіді пристрій "
+            + "опитується однією короткою спробою (за замовчуванням 3)")
+    Integer snmpDeadAfter;
+
     // ---- Zabbix ----
 
     @Option(names = "--zabbix-api", description = "URL Zabbix API (api_jsonrpc.php)")
@@ -137,6 +161,22 @@ public class CliArgs {
     @Option(names = "--zabbix-graphheight", description = "Висота вбудованих графіків Zabbix (px)")
     Integer zabbixGraphheight;
 
+    @Option(names = "--zabbix-metadata-cache", description = "JDBC URL SQLite для кешу hostid, "
+            + "graphid та items Zabbix між запусками")
+    String zabbixMetadataCache;
+
+    @Option(names = "--zabbix-metadata-ttl", description = "Скільки годин запис кешу метаданих Zabbix "
+            + "вважається свіжим; старший віддається й оновлюється у фоні (за замовчуванням 24)")
+    Integer zabbixMetadataTtl;
+
+    @Option(names = "--zabbix-graph-cache", description = "Тека дискового кешу PNG графіків Zabbix "
+            + "за періоди, що вже закінчились (повторний запуск за ту саму зміну не рендерить їх заново)")
+    String zabbixGraphCache;
+
+    @Option(names = "--zabbix-graph-cid", negatable = true, description = "Вкладати графіки Zabbix у лист "
+            + "частинами multipart/related з посиланнями cid: замість base64 data URI в HTML")
+    Boolean zabbixGraphCid;
+
     // ---- MSSQL: боржники (account) та обладнання (accequipment) ----
 
     @Option(names = "--account-mssql-user", description = "Користувач MSSQL, БД боржників (account)")
@@ -180,6 +220,29 @@ public class CliArgs {
     @Option(names = "--mail-zabbixfolder", description = "IMAP-тека з листами Zabbix")
     String mailZabbixfolder;
 
+    @Option(names = "--mail-cache", description = "JDBC URL SQLite для кешу розібраних IMAP-листів (UIDVALIDITY/UID)")
+    String mailCache;
+
+    @Option(names = "--mail-trap-connections",
+            description = "Кількість паралельних IMAP-з'єднань для читання кількох тек трапів (1 — послідовно)")
+    Integer mailTrapConnections;
+
+    @Option(names = "--mail-pool-size",
+            description = "Максимальна кількість одночасних IMAP-з'єднань у спільному пулі всіх IMAP-читачів")
+    Integer mailPoolSize;
+
+    @Option(names = "--mail-body-maxbytes",
+            description = "Скільки байтів тексту листа (text/plain) читати щонайбільше")
+    Integer mailBodyMaxbytes;
+
+    @Option(names = "--daemon-idle-minutes",
+            description = "Режим демона: як часто перезапускати IMAP IDLE, хв")
+    Integer daemonIdleMinutes;
+
+    @Option(names = "--daemon-poll-seconds",
+            description = "Режим демона: інтервал опитування тек, для яких IDLE недоступний, с")
+    Integer daemonPollSeconds;
+
     @Option(names = "--email-from", description = "Адреса відправника (From)")
     String emailFrom;
 
@@ -195,6 +258,13 @@ public class CliArgs {
     @Option(names = "--email-sendmail", description = "Шлях до бінарника sendmail")
     String emailSendmail;
 
+    @Option(names = "--email-transport", description = "Як доставляти звіт: sendmail (за замовчуванням) "
+            + "чи smtp — напряму на mail.hostname з повторами")
+    String emailTransport;
+
+    @Option(names = "--email-smtp-port", description = "Порт SMTP для --email-transport=smtp (за замовчуванням 25)")
+    Integer emailSmtpPort;
+
     // ---- Claude AI ----
 
     @Option(names = "--claude", negatable = true, description = "Увімкнути/вимкнути AI-резюме зміни "
@@ -29,6 +29,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import lombok.Getter;
@@ -69,6 +70,7 @@ public class Config {
     private Map<String, Map<String, String>> hosts;
     private Map<String, Map<String, String>> ramos;
     private boolean debug;
+    private boolean daemon;
     private boolean incidentsEnabled;
     private boolean temperatureEnabled;
     private boolean ramosEnabled;
@@ -76,12 +78,20 @@ public class Config {
     private boolean resilienceAuditEnabled;
     @NonNull
     private List<String> resilienceIgnoredInterfacePrefixes;
+    @NonNull
+    private List<String> pdIgnoreRules;
     private String zabbixApi;
     private String zabbixUrl;
     private String zabbixUsername;
     private String zabbixPassword;
     private int zabbixGraphWidth;
     private int zabbixGraphHeight;
+    @NonNull
+    private String zabbixMetadataCacheUrl;
+    private int zabbixMetadataTtlHours;
+    @NonNull
+    private String zabbixGraphCacheDir;
+    private boolean zabbixGraphCid;
     @Getter(AccessLevel.NONE)
     @NonNull
     private String configPath;
@@ -91,6 +101,8 @@ public class Config {
     private String dictionarySdhPath;
     @NonNull
     private String dictionaryDeviceWordPath;
+    @NonNull
+    private String dictionaryCacheUrl;
 
     @NonNull
     private String mailHostname;
@@ -101,6 +113,13 @@ public class Config {
     private boolean mailSsl;
     @NonNull
     private String zabbixFolder;
+    @NonNull
+    private String mailCacheUrl;
+    private int mailTrapConnections;
+    private int mailPoolSize;
+    private int mailBodyMaxBytes;
+    private int daemonIdleMinutes;
+    private int daemonPollSeconds;
 
     @NonNull
     private String jnxOperatingDescr;
@@ -114,6 +133,10 @@ public class Config {
     private String snmpCommunityRamos;
     @NonNull
     private String snmpHostsSuffix;
+    @NonNull
+    private String snmpHealthCacheUrl;
+    private int snmpDeadlineSeconds;
+    private int snmpDeadAfterRuns;
 
     @NonNull
     private String emailFrom;
@@ -124,6 +147,10 @@ public class Config {
     private String emailToDebug;
     @NonNull
     private String sendmailPath;
+    /** {@code sendmail} чи {@code smtp}. */
+    @NonNull
+    private String emailTransport;
+    private int emailSmtpPort;
 
     private boolean claudeEnabled;
     @NonNull
@@ -207,6 +234,7 @@ public class Config {
         hosts = Collections.emptyMap();
         ramos = Collections.emptyMap();
         sendmailPath = "/usr/sbin/sendmail";
+        emailTransport = "sendmail";
         configPath = null;
         dictionaryPdPath = null;
         dictionarySdhPath = null;
@@ -217,12 +245,18 @@ public class Config {
         claudeMinSentences = 5;
         claudeMaxSentences = 20;
         historyResumeUrl = "";
+        mailCacheUrl = "";
+        dictionaryCacheUrl = "";
+        zabbixMetadataCacheUrl = "";
+        zabbixGraphCacheDir = "";
+        snmpHealthCacheUrl = "";
         claudeExplicit = null;
         snmpTrapFolder = "";
         snmpTrapDedupSeconds = 30;
         snmpTrapColdstartLinkMinutes = 5;
         ramosTrapFolder = "";
         resilienceIgnoredInterfacePrefixes = Collections.emptyList();
+        pdIgnoreRules = Collections.emptyList();
     }
 
     /**
@@ -336,6 +370,7 @@ public class Config {
     /** Читає верхньорівневі булеві прапорці ({@code debug}, {@code incidents} тощо) з CLI/властивостей. */
     private void generalProperties(CliArgs cli) {
         debug = pickBool(cli.debug, "debug", false);
+        daemon = pickBool(cli.daemon, "daemon", false);
         incidentsEnabled = pickBool(cli.incidents, "incidents", true);
         temperatureEnabled = pickBool(cli.temperature, "temperature", true);
         ramosEnabled = pickBool(cli.ramos, "ramos", false);
@@ -351,6 +386,13 @@ public class Config {
         // який задає сам адміністратор (порожньо за замовчуванням — нічого не виключається).
         resilienceIgnoredInterfacePrefixes = parseCommaList(pick(
                 cli.resilienceauditIgnoreinterfaceprefixes, "resilienceaudit.ignoreinterfaceprefixes", ""));
+        // Значення за замовчуванням — список, який до 1.38.0 був зашитий у
+        // PdIncidentParser.isIgnored; виняток «крім alca» для парованих host-port тепер —
+        // негативний lookahead від початку теми.
+        pdIgnoreRules = parseRuleList(pick(cli.pdIgnore, "pd.ignore",
+                "IVR,TELEVIEV,Z-SQL,UVPN,SDH-OSM,astashov,console,"
+                + "~[dm]: NS\\d?,"
+                + "~^(?!.*alca).*: [ap][^:]+: [ap][^:]+ has"));
         Boolean claudeFromProperty = null;
         String claudeProp = properties.getProperty("claude");
         if (claudeProp != null) {
@@ -404,7 +446,7 @@ public class Config {
         return Collections.unmodifiableMap(result);
     }
 
-    /** Читає SNMP community-рядки та налаштування OID для опитування Celsius / температури (CLI/властивості). */
+    /** Читає SNMP community-рядки, OID для опитування Celsius / температури, історію відгуку й бюджет часу SNMP (CLI/властивості). */
     private void celsiusProperties(CliArgs cli) {
         jnxOperatingDescr = pick(cli.snmpJnxOperatingDescr, "snmp.jnxOperatingDescr");
         jnxOperatingTemp = pick(cli.snmpJnxOperatingTemp, "snmp.jnxOperatingTemp");
@@ -412,9 +454,15 @@ public class Config {
         snmpCommunityCelsius = pick(cli.snmpCommunityCelsius, "snmp.community.celsius", snmpCommunity);
         snmpCommunityRamos = pick(cli.snmpCommunityRamos, "snmp.community.ramos", snmpCommunity);
         snmpHostsSuffix = pick(cli.snmpHostsSuffix, "snmp.hosts.suffix", "");
+        // Порожньо за замовчуванням — кожен пристрій опитується з таймаутом 5 с і 2 повторами
+        snmpHealthCacheUrl = stripInlineComment(pick(cli.snmpHealthCache, "snmp.health.cache", ""));
+        snmpDeadlineSeconds = Math.max(1, pickInt(cli.snmpDeadline, "snmp.deadline", 120));
+        snmpDeadAfterRuns = Math.max(1, pickInt(cli.snmpDeadAfter, "snmp.deadAfter", 3));
     }
 
-    /** Читає URL Zabbix API, облікові дані та розміри графіків з CLI/властивостей. */
+    /**
+     * Читає URL Zabbix API, облікові дані, розміри графіків і кеш метаданих з CLI/властивостей.
+     */
     private void zabbixProperties(CliArgs cli) {
         zabbixApi = pick(cli.zabbixApi, "zabbix.api", "");
         zabbixUrl = pick(cli.zabbixUrl, "zabbix.url", "");
@@ -422,6 +470,14 @@ public class Config {
         zabbixPassword = pick(cli.zabbixPassword, "zabbix.password", "");
         zabbixGraphWidth = pickInt(cli.zabbixGraphwidth, "zabbix.graphwidth", 640);
         zabbixGraphHeight = pickInt(cli.zabbixGraphheight, "zabbix.graphheight", 83);
+        // Порожньо за замовчуванням — hostid/graphid/items живуть лише до кінця процесу
+        zabbixMetadataCacheUrl = stripInlineComment(pick(cli.zabbixMetadataCache, "zabbix.metadata.cache", ""));
+        // Hostid і graphid змінюються лише при перестворенні хоста чи шаблону — доба цілком безпечна
+        zabbixMetadataTtlHours = Math.max(1, pickInt(cli.zabbixMetadataTtl, "zabbix.metadata.ttl", 24));
+        // Порожньо за замовчуванням — PNG графіків рендеряться щоразу заново
+        zabbixGraphCacheDir = stripInlineComment(pick(cli.zabbixGraphCache, "zabbix.graph.cache", ""));
+        // Opt-in: частина старих поштових клієнтів показує cid-вкладення ще й окремими файлами
+        zabbixGraphCid = pickBool(cli.zabbixGraphCid, "zabbix.graph.cid", false);
     }
 
     /**
@@ -455,6 +511,21 @@ public class Config {
                 .toList();
     }
 
+    /**
+     * Розбирає список правил через кому ({@code pd.ignore}): записи обрізаються від пробілів,
+     * порожні пропускаються, регістр зберігається — на відміну від {@link #parseCommaList},
+     * правила порівнюються з темою листа як є.
+     */
+    private static List<String> parseRuleList(String value) {
+        if (value == null || value.isBlank()) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toList();
+    }
+
     /** Читає облікові дані MSSQL як для БД account, так і для БД accequipment (CLI/властивості). */
     private void mssqlProperties(CliArgs cli) {
         accountMssqlUser = pick(cli.accountMssqlUser, "account-mssql-user", "");
@@ -474,11 +545,30 @@ public class Config {
         mailPassword = pick(cli.mailPassword, "mail.password");
         mailSsl = pickBool(cli.mailSsl, "mail.ssl", false);
         zabbixFolder = pick(cli.mailZabbixfolder, "mail.zabbixFolder");
+        // Порожньо за замовчуванням — кеш вимкнено, ImapReader щоразу читає вікно з сервера.
+        mailCacheUrl = stripInlineComment(pick(cli.mailCache, "mail.cache", ""));
+        // 1 за замовчуванням — теки трапів читаються послідовно на одному з'єднанні, як і раніше
+        mailTrapConnections = Math.max(1, pickInt(cli.mailTrapConnections, "mail.trap.connections", 1));
+        // 2 за замовчуванням — ImapReader і один із trap-читачів працюють одночасно, третій
+        // перевикористовує з'єднання, що звільнилось, замість власного TLS + LOGIN
+        mailPoolSize = Math.max(1, pickInt(cli.mailPoolSize, "mail.pool.size", 2));
+        // 64 КіБ — на порядки більше за будь-який алерт Zabbix чи лист-трап, але обмежує пам'ять,
+        // якщо в теку потрапить лист із величезним текстом
+        mailBodyMaxBytes = Math.max(1024, pickInt(cli.mailBodyMaxbytes, "mail.body.maxbytes", 65536));
+        // 20 хв — із запасом менше за 29 хв, після яких RFC 2177 дозволяє серверу розірвати IDLE
+        daemonIdleMinutes = Math.max(1, pickInt(cli.daemonIdleMinutes, "daemon.idle.minutes", 20));
+        daemonPollSeconds = Math.max(5, pickInt(cli.daemonPollSeconds, "daemon.poll.seconds", 60));
 
         emailFrom = pick(cli.emailFrom, "email.from");
         emailReplyTo = pick(cli.emailReplyto, "email.replyTo");
         emailToDebug = pick(cli.emailTodebug, "email.toDebug");
         sendmailPath = pick(cli.emailSendmail, "email.sendmail", "/usr/sbin/sendmail");
+        emailTransport = stripInlineComment(pick(cli.emailTransport, "email.transport", "sendmail")).toLowerCase(Locale.ROOT);
+        if (!emailTransport.equals("sendmail") && !emailTransport.equals("smtp")) {
+            log.warn("Unknown email.transport '{}' — using sendmail", emailTransport);
+            emailTransport = "sendmail";
+        }
+        emailSmtpPort = pickInt(cli.emailSmtpPort, "email.smtp.port", 25);
         List<String> toList = new ArrayList<>();
         String toStr = pick(cli.emailTo, "email.to");
         if (toStr != null) {
@@ -557,13 +647,16 @@ public class Config {
     /**
      * Читає опціональний JDBC URL {@code history.resume} (CLI {@code --history-resume}
      * перевизначає властивість) для сховища SQLite зведень між змінами. Залишає
-     * {@link #historyResumeUrl} порожнім рядком, якщо ні CLI, ні властивість не задані.
+     * {@link #historyResumeUrl} порожнім рядком, якщо ні CLI, ні властивість не задані. Так
+     * само читає {@code dictionary.cache} — кеш словників зазвичай живе в тому ж файлі SQLite.
      */
     private void historyResumeProperties(CliArgs cli) {
         String url = stripInlineComment(pick(cli.historyResume, "history.resume", ""));
         if (!url.isBlank()) {
             historyResumeUrl = url;
         }
+        // Порожньо за замовчуванням — результати пошуку в словниках живуть лише до кінця процесу
+        dictionaryCacheUrl = stripInlineComment(pick(cli.dictionaryCache, "dictionary.cache", ""));
     }
 
     /**
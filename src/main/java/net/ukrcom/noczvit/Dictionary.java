@@ -20,13 +20,27 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -35,9 +49,22 @@ import lombok.extern.slf4j.Slf4j;
  * Zabbix-хостнейму → українське слово типу пристрою, наприклад {@code "маршрутизаторі "}).
  *
  * <p>Перед компіляцією записи сортуються за довжиною regex (довші — першими), щоб більш
- * специфічні патерни мали перевагу над коротшими, загальнішими. Результати кешуються в
+ * специфічні патерни мали перевагу над коротшими, загальнішими; пошук першого збігу виконує
+ * {@link DictionaryIndex} (префіксне дерево для {@code ^літерал}, regex — лише для решти). Результати кешуються в
  * {@link ConcurrentHashMap}, тож кожен ключ компілюється й порівнюється лише один раз,
  * незалежно від кількості одночасних викликів.
+ *
+ * <p>Якщо задано {@code dictionary.cache}, результати ще й переживають запуск: при старті кеш у
+ * пам'яті наповнюється з {@link DictionaryCache} за SHA-256 кожного файлу словника, а нові
+ * результати записуються туди ж викликом {@link #saveCache()}. Змінений файл словника дає
+ * інший хеш, тож збережені за старою версією результати не використовуються.
+ *
+ * <p>Усі три словники разом із їхніми кешами — один незмінний {@link Snapshot} за
+ * {@link AtomicReference}. {@link #reload()} (а в режимі демона — {@link #watch()} після зміни
+ * файлу) будує новий знімок поруч зі старим і підміняє посилання: пошук ніколи не чекає на
+ * перечитування, а один виклик бачить або стару, або нову версію словника цілком. До нового
+ * знімка переходять закешовані результати всіх ключів, яких не зачіпають додані чи видалені
+ * записи ({@link DictionaryIndex#diff}).
  */
 @Slf4j
 public class Dictionary {
@@ -57,43 +84,261 @@ public class Dictionary {
     private static final Pattern PD_HOST_PREFIX = Pattern.compile("^(?:[rsp]|(?:ies\\d?|alca)-)");
     private static final Pattern PD_HOST_SUFFIX = Pattern.compile("-\\d+$");
 
-    private final Map<Pattern, String> pdDictionary;
-    private final Map<Pattern, String> sdhDictionary;
-    private final Map<Pattern, String> deviceWordDictionary;
-    private final ConcurrentHashMap<String, String> pdCache = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, String> sdhCache = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, String> deviceWordCache = new ConcurrentHashMap<>();
+    // Домішується до хешу кожного словника: змініть, якщо змінюється сама логіка пошуку
+    // (нормалізація в lookupPD, fallback-значення), щоб результати в dictionary.cache,
+    // обчислені старим кодом за тим самим файлом, стали недійсними.
+    private static final String LOOKUP_VERSION = "1";
+
+    // Скільки чекати після першої події файлової системи перед перечитуванням: редактор чи rsync
+    // пише файл кількома операціями, і всі вони мають потрапити в один reload
+    private static final long RELOAD_SETTLE_MILLIS = 1000;
+
+    /**
+     * Один словник: скомпільований індекс, SHA-256 його файлу, кеш результатів у пам'яті та
+     * результати, обчислені в цьому процесі й ще не записані в {@link DictionaryCache}.
+     */
+    private static final class Table {
+
+        private final String kind;
+        private final DictionaryIndex index;
+        private final String hash;
+        private final ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, String> unsaved = new ConcurrentHashMap<>();
+
+        private Table(String kind, DictionaryIndex index, String hash) {
+            this.kind = kind;
+            this.index = index;
+            this.hash = hash;
+        }
+
+        /** Результат з кешу, або {@code resolve(key)}, запам'ятований і позначений до збереження. */
+        private String lookup(String key, UnaryOperator<String> resolve) {
+            return cache.computeIfAbsent(key, k -> {
+                String value = resolve.apply(k);
+                // Інша мапа, не та, всередині computeIfAbsent якої ми зараз, — повторного входу немає
+                unsaved.put(k, value);
+                return value;
+            });
+        }
+    }
+
+    /** Поточні версії всіх трьох словників; підміняється цілком, ніколи не змінюється на місці. */
+    private record Snapshot(Table pd, Table sdh, Table deviceWord) {
+
+        private List<Table> tables() {
+            return List.of(pd, sdh, deviceWord);
+        }
+    }
+
+    private final String pdPath;
+    private final String sdhPath;
+    private final String deviceWordPath;
+    private final AtomicReference<Snapshot> snapshot;
+    private final DictionaryCache diskCache;
 
     /**
      * Завантажує всі три словники за шляхами з {@code config}, або з вбудованих ресурсів,
-     * якщо шляхи не задані (null).
+     * якщо шляхи не задані (null), і, якщо задано {@code dictionary.cache}, — збережені
+     * результати пошуку для поточних версій словників.
      *
      * @param config джерело шляхів до файлів словників
      * @throws IOException якщо файл/ресурс словника відсутній або недоступний для читання
      */
     public Dictionary(Config config) throws IOException {
-        pdDictionary = new LinkedHashMap<>();
-        sdhDictionary = new LinkedHashMap<>();
-        deviceWordDictionary = new LinkedHashMap<>();
-        loadDictionary(config.getDictionaryPdPath(), "dictionary_pd.txt", pdDictionary);
-        loadDictionary(config.getDictionarySdhPath(), "dictionary_sdh.txt", sdhDictionary);
-        loadDictionary(config.getDictionaryDeviceWordPath(), "dictionary_device_word.txt", deviceWordDictionary);
+        pdPath = config.getDictionaryPdPath();
+        sdhPath = config.getDictionarySdhPath();
+        deviceWordPath = config.getDictionaryDeviceWordPath();
+        snapshot = new AtomicReference<>(new Snapshot(
+                loadDictionary("pd", pdPath, "dictionary_pd.txt"),
+                loadDictionary("sdh", sdhPath, "dictionary_sdh.txt"),
+                loadDictionary("device", deviceWordPath, "dictionary_device_word.txt")));
+        diskCache = initCache(config.getDictionaryCacheUrl());
     }
 
     /**
-     * Читає файл словника у форматі {@code key=value}, компілює кожен ключ як regex і
-     * зберігає патерни в {@code dictionary}, відсортовані за довжиною (довші — першими).
+     * Відкриває {@link DictionaryCache} і наповнює з нього кеші в пам'яті.
      *
+     * @return кеш, або {@code null}, якщо URL порожній чи БД недоступна — тоді словник
+     *         працює як раніше, лише в пам'яті
+     */
+    private DictionaryCache initCache(String url) {
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        try {
+            DictionaryCache cache = new DictionaryCache(url);
+            Snapshot s = snapshot.get();
+            for (Table t : s.tables()) {
+                t.cache.putAll(cache.load(t.kind, t.hash));
+            }
+            log.info("DictionaryCache: loaded {} pd, {} sdh, {} device lookups",
+                    s.pd().cache.size(), s.sdh().cache.size(), s.deviceWord().cache.size());
+            return cache;
+        } catch (SQLException e) {
+            log.warn("DictionaryCache: failed to open '{}': {}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Записує в {@code dictionary.cache} результати пошуку, обчислені з моменту попереднього
+     * збереження. Без кешу на диску нічого не робить; помилка БД лише логується — результати
+     * лишаються позначеними й будуть записані наступним викликом.
+     */
+    public void saveCache() {
+        if (diskCache == null) {
+            return;
+        }
+        for (Table t : snapshot.get().tables()) {
+            if (t.unsaved.isEmpty()) {
+                continue;
+            }
+            Map<String, String> batch = new HashMap<>(t.unsaved);
+            try {
+                diskCache.store(t.kind, t.hash, batch);
+                batch.keySet().forEach(t.unsaved::remove);
+            } catch (SQLException e) {
+                log.warn("DictionaryCache: failed to store {} lookups: {}", t.kind, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Перечитує зовнішні файли словників і, якщо хоч один змінився, атомарно публікує новий
+     * знімок. Вбудовані ресурси не перечитуються — вони не змінюються під час роботи процесу.
+     *
+     * <p>Результати з кешу старої версії переходять до нової, якщо з ключем не збігається жоден
+     * доданий чи видалений запис; решта обчислюється заново при наступному пошуку. Перенесені
+     * результати позначаються до збереження, бо в {@code dictionary.cache} вони лежать під хешем
+     * старого файлу.
+     *
+     * @return {@code true}, якщо опубліковано новий знімок
+     * @throws IOException якщо файл неможливо прочитати; чинний знімок тоді лишається
+     */
+    public boolean reload() throws IOException {
+        Snapshot old = snapshot.get();
+        Snapshot fresh = new Snapshot(
+                reloadTable(old.pd(), pdPath, "dictionary_pd.txt"),
+                reloadTable(old.sdh(), sdhPath, "dictionary_sdh.txt"),
+                reloadTable(old.deviceWord(), deviceWordPath, "dictionary_device_word.txt"));
+        if (fresh.equals(old)) {
+            return false;
+        }
+        snapshot.set(fresh);
+        log.info("Dictionary: reloaded ({} pd, {} sdh, {} device entries)",
+                fresh.pd().index.size(), fresh.sdh().index.size(), fresh.deviceWord().index.size());
+        return true;
+    }
+
+    /**
+     * @return нова версія словника з перенесеними незачепленими результатами, або {@code old},
+     *         якщо файл не змінився чи словник вбудований
+     */
+    private Table reloadTable(Table old, String filePath, String resourceName) throws IOException {
+        if (filePath == null) {
+            return old;
+        }
+        Table fresh = loadDictionary(old.kind, filePath, resourceName);
+        if (fresh.hash.equals(old.hash)) {
+            return old;
+        }
+        DictionaryIndex changed = DictionaryIndex.diff(old.index, fresh.index);
+        int kept = 0;
+        if (changed != null) {
+            for (Map.Entry<String, String> e : old.cache.entrySet()) {
+                if (!affects(old.kind, changed, e.getKey())) {
+                    fresh.cache.put(e.getKey(), e.getValue());
+                    fresh.unsaved.put(e.getKey(), e.getValue());
+                    kept++;
+                }
+            }
+        }
+        log.info("Dictionary: {} changed, {} of {} cached lookups kept",
+                old.kind, kept, old.cache.size());
+        return fresh;
+    }
+
+    /** Чи могла зміна словника {@code changed} змінити результат пошуку {@code key}. */
+    private static boolean affects(String kind, DictionaryIndex changed, String key) {
+        if (changed.firstMatch(key, null) != null) {
+            return true;
+        }
+        // lookupPD порівнює зі словником ще й нормалізований ключ
+        return kind.equals("pd") && changed.firstMatch(normalizePD(key), null) != null;
+    }
+
+    /**
+     * Стежить за зовнішніми файлами словників і викликає {@link #reload()} після їх зміни.
+     * Блокує потік і повертається лише після переривання (або одразу, якщо всі словники
+     * вбудовані). Помилка читання зміненого файлу лише логується — працює попередня версія.
+     *
+     * <p>Стежимо за каталогами, а не за файлами: редактори й {@code rsync} зазвичай пишуть
+     * тимчасовий файл і перейменовують його, що видно як {@code ENTRY_CREATE}.
+     */
+    public void watch() {
+        List<Path> files = Stream.of(pdPath, sdhPath, deviceWordPath)
+                .filter(Objects::nonNull)
+                .map(p -> Path.of(p).toAbsolutePath().normalize())
+                .toList();
+        if (files.isEmpty()) {
+            log.info("Dictionary: built-in dictionaries only, nothing to watch");
+            return;
+        }
+        try (WatchService ws = FileSystems.getDefault().newWatchService()) {
+            for (Path dir : files.stream().map(Path::getParent).distinct().toList()) {
+                dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            log.info("Dictionary: watching {}", files);
+            while (true) {
+                WatchKey key = ws.take();
+                Path dir = (Path) key.watchable();
+                boolean relevant = key.pollEvents().stream()
+                        .anyMatch(ev -> ev.context() instanceof Path p && files.contains(dir.resolve(p)));
+                key.reset();
+                if (!relevant) {
+                    continue;
+                }
+                Thread.sleep(RELOAD_SETTLE_MILLIS);
+                for (WatchKey pending; (pending = ws.poll()) != null;) {
+                    pending.pollEvents();
+                    pending.reset();
+                }
+                try {
+                    reload();
+                } catch (IOException e) {
+                    log.warn("Dictionary: reload failed, keeping previous version: {}", e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Dictionary: cannot watch dictionary files: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Читає файл словника у форматі {@code key=value} і будує з нього {@link DictionaryIndex},
+     * відсортований за довжиною regex (довші — першими). Заодно рахує SHA-256 прочитаних байтів.
+     *
+     * @param kind         вид пошуку — ключ словника в {@link DictionaryCache}
      * @param filePath     шлях до зовнішнього файлу, або {@code null}, щоб використати вбудований ресурс
      * @param resourceName ім'я ресурсу в classpath, яке використовується, коли {@code filePath} дорівнює null
-     * @param dictionary   цільова мапа для заповнення
+     * @return скомпільований словник
      * @throws IOException якщо джерело неможливо відкрити або прочитати
      */
-    private void loadDictionary(String filePath, String resourceName, Map<Pattern, String> dictionary) throws IOException {
+    private Table loadDictionary(String kind, String filePath, String resourceName) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 — обов'язковий алгоритм кожної реалізації Java SE
+            throw new IllegalStateException(e);
+        }
+        digest.update(LOOKUP_VERSION.getBytes(StandardCharsets.UTF_8));
 
         // Тимчасовий список для сортування
         List<Map.Entry<String, String>> entries = new ArrayList<>();
-        try (InputStream input = openStream(filePath, resourceName); BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+        try (InputStream input = new DigestInputStream(openStream(filePath, resourceName), digest); BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 if (line.trim().isEmpty() || line.startsWith("#")) {
@@ -108,18 +353,10 @@ public class Dictionary {
             }
         }
 
-        // Сортуємо за довжиною regex (довші спочатку)
+        // Сортуємо за довжиною regex (довші спочатку); сортування стабільне, тож записи однакової
+        // довжини лишаються в порядку файлу
         entries.sort(Comparator.comparingInt((Map.Entry<String, String> e) -> e.getKey().length()).reversed());
-
-        // Заповнюємо словник
-        for (Map.Entry<String, String> entry : entries) {
-            try {
-                Pattern pattern = Pattern.compile(entry.getKey());
-                dictionary.put(pattern, entry.getValue());
-            } catch (Exception e) {
-                log.warn("Invalid regex in dictionary: {} — {}", entry.getKey(), e.getMessage());
-            }
-        }
+        return new Table(kind, new DictionaryIndex(entries), HexFormat.of().formatHex(digest.digest()));
     }
 
     /**
@@ -157,28 +394,34 @@ public class Dictionary {
      * @return розпізнана назва локації, або незмінений {@code key}, якщо не знайдено
      */
     public String lookupPD(String key) {
-        return pdCache.computeIfAbsent(key, k -> {
-            String afterPrefix = PD_HOST_PREFIX.matcher(k).replaceFirst("");
-            String normalized = afterPrefix.equals(k)
-                                ? k
-                                : PD_HOST_SUFFIX.matcher(afterPrefix).replaceFirst("");
+        Table pd = snapshot.get().pd();
+        return pd.lookup(key, k -> {
+            String normalized = normalizePD(k);
 
             // null (а не "") — це сигнальне значення "не знайдено": значення словника ніколи не
             // бувають null, але можуть законно бути порожніми (наприклад «^ramos=» у
             // dictionary_device_word.txt), тож порожній збіг все одно має рахуватись як влучення
             // і пропускати fallback-прохід.
-            String byNormalized = firstMatch(pdDictionary, normalized, null);
+            String byNormalized = pd.index.firstMatch(normalized, null);
             if (byNormalized != null) {
                 return byNormalized;
             }
             // Fallback: спробуємо оригінальний ключ (коли normalized не збігся, але оригінал збігається)
             if (!normalized.equals(k)) {
-                return firstMatch(pdDictionary, k, k);
+                return pd.index.firstMatch(k, k);
             }
             return k;
         });
     }
 
+    /** Ключ без префікса пристрою і, лише якщо префікс був, без суфікса {@code -N}. */
+    private static String normalizePD(String key) {
+        String afterPrefix = PD_HOST_PREFIX.matcher(key).replaceFirst("");
+        return afterPrefix.equals(key)
+               ? key
+               : PD_HOST_SUFFIX.matcher(afterPrefix).replaceFirst("");
+    }
+
     /**
      * Перекладає код локації SDH/OSM у людинозрозумілу назву.
      * Результати кешуються для повторних викликів.
@@ -187,7 +430,8 @@ public class Dictionary {
      * @return розпізнана назва локації, або незмінений {@code key}, якщо не знайдено
      */
     public String lookupSDH(String key) {
-        return sdhCache.computeIfAbsent(key, k -> firstMatch(sdhDictionary, k, k));
+        Table sdh = snapshot.get().sdh();
+        return sdh.lookup(key, k -> sdh.index.firstMatch(k, k));
     }
 
     /**
@@ -204,7 +448,8 @@ public class Dictionary {
      * @return слово типу пристрою без кінцевого пробілу, або {@code ""}, якщо не знайдено
      */
     public String lookupDeviceWord(String host) {
-        return deviceWordCache.computeIfAbsent(host, k -> firstMatch(deviceWordDictionary, k, ""));
+        Table deviceWord = snapshot.get().deviceWord();
+        return deviceWord.lookup(host, k -> deviceWord.index.firstMatch(k, ""));
     }
 
     /**
@@ -253,30 +498,4 @@ public class Dictionary {
     public static String lineKey(String device, String card, String port, String line) {
         return device + ":" + card + ":" + port + ":" + line;
     }
-
-    /**
-     * Повертає значення першого запису словника, чий regex збігається з {@code key}, або
-     * {@code fallback}, якщо жоден не збігся. Записи попередньо відсортовані за довжиною
-     * ключа (довші — першими), тож перевагу має найспецифічніший патерн.
-     *
-     * <p>Читає лише (фактично незмінну після конструювання) мапу патернів і виділяє новий
-     * {@link java.util.regex.Matcher} для кожного запису — {@link Pattern} є потокобезпечним,
-     * а {@code Matcher} — ні, тож жоден matcher ніколи не використовується спільно. Свідомо
-     * не торкається жодного з кешів: метод виконується всередині {@code computeIfAbsent}, де
-     * повторний вхід у ту саму мапу міг би призвести до {@link IllegalStateException} або
-     * "зависання" bin'а.
-     *
-     * @param dictionary скомпільована мапа патерн → значення для сканування
-     * @param key        рядок, з яким виконується порівняння
-     * @param fallback   значення, що повертається, якщо нічого не збіглося (може бути {@code null})
-     * @return знайдене значення, або {@code fallback}
-     */
-    private static String firstMatch(Map<Pattern, String> dictionary, String key, String fallback) {
-        for (Map.Entry<Pattern, String> entry : dictionary.entrySet()) {
-            if (entry.getKey().matcher(key).find()) {
-                return entry.getValue();
-            }
-        }
-        return fallback;
-    }
 }
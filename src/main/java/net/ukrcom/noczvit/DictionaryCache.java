@@ -0,0 +1,150 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Постійний кеш результатів пошуку {@link Dictionary} між запусками на базі SQLite.
+ *
+ * <p>
+ * Запис ідентифікується трійкою {@code (kind, dict_hash, lookup_key)}: вид пошуку
+ * ({@code pd}, {@code sdh}, {@code device}), SHA-256 вмісту відповідного файлу словника та
+ * сам ключ. Зміна файлу словника дає новий хеш — старі результати просто перестають
+ * збігатися, а при наступному {@link #store} того ж виду видаляються. Тож кеш ніколи не
+ * повертає відповідь, обчислену за іншою версією словника.
+ *
+ * <p>
+ * DDL (застосовується при конструюванні):
+ * <pre>{@code
+ * CREATE TABLE IF NOT EXISTS dictionary_cache (
+ *     kind       TEXT NOT NULL,
+ *     dict_hash  TEXT NOT NULL,
+ *     lookup_key TEXT NOT NULL,
+ *     value      TEXT NOT NULL,
+ *     PRIMARY KEY (kind, dict_hash, lookup_key)
+ * )
+ * }</pre>
+ */
+@Slf4j
+public class DictionaryCache {
+
+    private static final String DDL = """
+            CREATE TABLE IF NOT EXISTS dictionary_cache (
+                kind       TEXT NOT NULL,
+                dict_hash  TEXT NOT NULL,
+                lookup_key TEXT NOT NULL,
+                value      TEXT NOT NULL,
+                PRIMARY KEY (kind, dict_hash, lookup_key)
+            )
+            """;
+
+    private static final String SELECT = """
+            SELECT lookup_key, value
+            FROM dictionary_cache
+            WHERE kind = ? AND dict_hash = ?
+            """;
+
+    private static final String UPSERT = """
+            INSERT INTO dictionary_cache (kind, dict_hash, lookup_key, value)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT(kind, dict_hash, lookup_key) DO UPDATE SET
+                value = excluded.value
+            """;
+
+    private static final String DELETE_STALE_HASH = """
+            DELETE FROM dictionary_cache WHERE kind = ? AND dict_hash <> ?
+            """;
+
+    private final String jdbcUrl;
+
+    /**
+     * Створює кеш та ініціалізує таблицю, якщо вона ще не існує.
+     *
+     * @param jdbcUrl JDBC URL файлу SQLite, наприклад
+     * {@code jdbc:sqlite:/var/lib/noczvit/history.db}
+     * @throws SQLException якщо базу даних неможливо відкрити або DDL завершується помилкою
+     */
+    public DictionaryCache(String jdbcUrl) throws SQLException {
+        this.jdbcUrl = jdbcUrl;
+        SqliteSupport.initialize(jdbcUrl, DDL);
+        log.debug("DictionaryCache: table checked/created in {}", jdbcUrl);
+    }
+
+    /**
+     * Повертає всі збережені результати пошуку одного виду для поточної версії словника.
+     *
+     * @param kind     вид пошуку ({@code pd}, {@code sdh}, {@code device})
+     * @param dictHash хеш поточного файлу словника
+     * @return ключ → результат; ніколи не null
+     * @throws SQLException якщо запит завершується помилкою
+     */
+    public Map<String, String> load(String kind, String dictHash) throws SQLException {
+        Map<String, String> result = new HashMap<>();
+        try (Connection conn = SqliteSupport.connect(jdbcUrl); PreparedStatement ps = conn.prepareStatement(SELECT)) {
+            ps.setString(1, kind);
+            ps.setString(2, dictHash);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.put(rs.getString("lookup_key"), rs.getString("value"));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Атомарно (однією транзакцією) зберігає нові результати пошуку й видаляє результати того
+     * самого виду, обчислені за іншою версією словника.
+     *
+     * @param kind     вид пошуку
+     * @param dictHash хеш поточного файлу словника
+     * @param entries  ключ → результат
+     * @throws SQLException якщо запис завершується помилкою (транзакція відкочується)
+     */
+    public void store(String kind, String dictHash, Map<String, String> entries) throws SQLException {
+        try (Connection conn = SqliteSupport.connect(jdbcUrl)) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(DELETE_STALE_HASH)) {
+                    ps.setString(1, kind);
+                    ps.setString(2, dictHash);
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(UPSERT)) {
+                    for (Map.Entry<String, String> e : entries.entrySet()) {
+                        ps.setString(1, kind);
+                        ps.setString(2, dictHash);
+                        ps.setString(3, e.getKey());
+                        ps.setString(4, e.getValue());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            log.debug("DictionaryCache: stored {} new {} lookups", entries.size(), kind);
+        }
+    }
+}
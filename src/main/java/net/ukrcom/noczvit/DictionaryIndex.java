@@ -0,0 +1,213 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Скомпільований словник: упорядкований список записів «regex → значення», у якому
+ * {@link #firstMatch} повертає значення першого запису, чий regex знаходиться в ключі
+ * ({@code matcher(key).find()}).
+ *
+ * <p>Раніше {@link Dictionary} проходив усі записи по черзі й запускав regex кожного — на
+ * словнику з тисяч рядків це тисячі виконань regex на кожен новий ключ, і до двох проходів на
+ * промах {@code lookupPD}. Тепер записи розкладено за видом:
+ * <ul>
+ *   <li><b>якірний префікс</b> ({@code ^spas36}, {@code ^adlink\-hoh15\-1:0:0:0}) — переважна
+ *       більшість PD-словника; такі записи лежать у префіксному дереві, і один прохід ключем по
+ *       дереву дає найменший порядковий номер серед усіх префіксів, що збіглися;</li>
+ *   <li><b>літерал без якоря</b> — перевіряється {@link String#contains}, без regex;</li>
+ *   <li><b>решта</b> — справжній regex, як і раніше.</li>
+ * </ul>
+ * Літерали й regex перевіряються в порядку словника, але лише ті, що стоять раніше за
+ * найкращий збіг із дерева, тож семантика «перший збіг у порядку від довшого regex до
+ * коротшого» збережена точно.
+ *
+ * <p>Після побудови незмінний, {@link #firstMatch} потокобезпечний.
+ */
+@Slf4j
+final class DictionaryIndex {
+
+    private static final String REGEX_META = "\\^$.|?*+()[]{}";
+
+    /** Вузол префіксного дерева; {@code ordinal} — найменший номер запису, що закінчується тут. */
+    private static final class Node {
+
+        private final Map<Character, Node> children = new HashMap<>();
+        private int ordinal = Integer.MAX_VALUE;
+    }
+
+    /** Запис, який не можна покласти в дерево: літерал ({@code pattern == null}) або regex. */
+    private record Scanned(int ordinal, String literal, Pattern pattern) {
+
+        boolean matches(String key) {
+            return pattern == null ? key.contains(literal) : pattern.matcher(key).find();
+        }
+    }
+
+    private final List<Map.Entry<String, String>> entries;
+    private final List<String> values = new ArrayList<>();
+    private final Node prefixes = new Node();
+    private final List<Scanned> scanned = new ArrayList<>();
+
+    /**
+     * @param entries записи «regex → значення» у порядку пріоритету (довший regex — першим);
+     *                записи з некоректним regex пропускаються з попередженням
+     */
+    DictionaryIndex(List<Map.Entry<String, String>> entries) {
+        this.entries = List.copyOf(entries);
+        for (Map.Entry<String, String> entry : entries) {
+            String regex = entry.getKey();
+            int ordinal = values.size();
+            String literal;
+            if (regex.startsWith("^") && (literal = unescapeLiteral(regex.substring(1))) != null) {
+                insertPrefix(literal, ordinal);
+            } else if ((literal = unescapeLiteral(regex)) != null) {
+                scanned.add(new Scanned(ordinal, literal, null));
+            } else {
+                try {
+                    scanned.add(new Scanned(ordinal, null, Pattern.compile(regex)));
+                } catch (PatternSyntaxException e) {
+                    log.warn("Invalid regex in dictionary: {} — {}", regex, e.getMessage());
+                    continue;
+                }
+            }
+            values.add(entry.getValue());
+        }
+    }
+
+    /** @return кількість записів словника (без пропущених некоректних) */
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * @param key      рядок, з яким порівнюються записи
+     * @param fallback значення, якщо нічого не збіглося (може бути {@code null})
+     * @return значення першого в порядку словника запису, що збігся, або {@code fallback}
+     */
+    String firstMatch(String key, String fallback) {
+        int best = bestPrefix(key);
+        for (Scanned s : scanned) {
+            if (s.ordinal() >= best) {
+                break;
+            }
+            if (s.matches(key)) {
+                return values.get(s.ordinal());
+            }
+        }
+        return best == Integer.MAX_VALUE ? fallback : values.get(best);
+    }
+
+    /**
+     * Записи, якими відрізняються два словники, зібрані в окремий індекс: ключ, з яким не
+     * збігається жоден із них, має в обох словниках той самий перший збіг. Так перечитування
+     * словника скидає лише закешовані результати, які справді могли змінитися.
+     *
+     * @param before словник до зміни
+     * @param after  словник після зміни
+     * @return індекс доданих і видалених записів, або {@code null}, якщо змінився відносний
+     *         порядок спільних записів (переставлено рядки однакової довжини) — тоді змінитися
+     *         міг результат будь-якого ключа
+     */
+    static DictionaryIndex diff(DictionaryIndex before, DictionaryIndex after) {
+        Map<Map.Entry<String, String>, Integer> unmatched = new HashMap<>();
+        after.entries.forEach(e -> unmatched.merge(e, 1, Integer::sum));
+        List<Map.Entry<String, String>> changed = new ArrayList<>();
+        List<Map.Entry<String, String>> commonBefore = new ArrayList<>();
+        for (Map.Entry<String, String> e : before.entries) {
+            if (take(unmatched, e)) {
+                commonBefore.add(e);
+            } else {
+                changed.add(e);
+            }
+        }
+        // unmatched тепер містить лише додані записи
+        List<Map.Entry<String, String>> commonAfter = new ArrayList<>();
+        for (Map.Entry<String, String> e : after.entries) {
+            if (take(unmatched, e)) {
+                changed.add(e);
+            } else {
+                commonAfter.add(e);
+            }
+        }
+        return commonBefore.equals(commonAfter) ? new DictionaryIndex(changed) : null;
+    }
+
+    /** Знімає одне входження {@code e} з мультимножини; {@code false}, якщо його там не було. */
+    private static boolean take(Map<Map.Entry<String, String>, Integer> multiset, Map.Entry<String, String> e) {
+        Integer n = multiset.get(e);
+        if (n == null) {
+            return false;
+        }
+        if (n == 1) {
+            multiset.remove(e);
+        } else {
+            multiset.put(e, n - 1);
+        }
+        return true;
+    }
+
+    private void insertPrefix(String literal, int ordinal) {
+        Node node = prefixes;
+        for (int i = 0; i < literal.length(); i++) {
+            node = node.children.computeIfAbsent(literal.charAt(i), c -> new Node());
+        }
+        node.ordinal = Math.min(node.ordinal, ordinal);
+    }
+
+    /** Найменший номер запису-префікса, з якого починається {@code key}. */
+    private int bestPrefix(String key) {
+        Node node = prefixes;
+        int best = node.ordinal;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.get(key.charAt(i));
+            if (node == null) {
+                break;
+            }
+            best = Math.min(best, node.ordinal);
+        }
+        return best;
+    }
+
+    /**
+     * Повертає рядок, який {@code regex} знаходить буквально, або {@code null}, якщо в ньому є
+     * метасимволи. Екранування {@code \} перед не-літерою й не-цифрою ({@code \-}, {@code \.})
+     * дає сам символ; {@code \d}, {@code \Q} тощо — це вже regex.
+     */
+    static String unescapeLiteral(String regex) {
+        StringBuilder sb = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    return null;
+                }
+                sb.append(regex.charAt(++i));
+            } else if (REGEX_META.indexOf(c) >= 0) {
+                return null;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit;
+
+import net.ukrcom.noczvit.imap.ImapReader;
+import net.ukrcom.noczvit.imap.ImapStorePool;
+import net.ukrcom.noczvit.imap.MessageSource;
+import net.ukrcom.noczvit.trap.ImapTrapReader;
+
+/**
+ * Три поштові джерела одного звіту. {@link NOCZvit#runReport} не знає, звідки беруться листи:
+ * разовий запуск читає їх з IMAP ({@link #imap}), режим {@code --daemon} — з буферів, які
+ * наповнює IMAP IDLE ({@code daemon.Daemon}).
+ *
+ * @param zabbix       листи Zabbix ({@code mail.zabbixFolder}) для {@code imap.Client}
+ * @param emersonTraps листи SNMP-трапів Emerson ({@code snmp.trap.folder})
+ * @param ramosTraps   листи трапів RAMOS ({@code ramos.trap.folder})
+ */
+public record MailSources(MessageSource zabbix, MessageSource emersonTraps, MessageSource ramosTraps) {
+
+    /**
+     * Джерела, що читають IMAP напряму, позичаючи з'єднання зі спільного пулу.
+     *
+     * @param config конфігурація з'єднання й тек
+     * @param pool   спільний пул IMAP-з'єднань; закриває його викликач
+     * @return джерела для разового запуску
+     */
+    public static MailSources imap(Config config, ImapStorePool pool) {
+        ImapTrapReader traps = new ImapTrapReader(config, pool);
+        return new MailSources(
+                new ImapReader(config, pool)::readMessages,
+                traps::readTraps,
+                (fetchAll, from, to) -> traps.readTrapsFromFolder(fetchAll, from, to, config.getRamosTrapFolder()));
+    }
+}
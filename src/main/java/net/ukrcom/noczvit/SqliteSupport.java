@@ -0,0 +1,71 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.sqlite.SQLiteConfig;
+
+/**
+ * Спільне відкриття SQLite-сховищ проєкту: {@code history.ResumeHistory}, {@code imap.MessageCache},
+ * {@link DictionaryCache}, {@code zabbix.MetadataCache}, {@code snmp.HostHealth}.
+ *
+ * <p>Усі вони відкривають нове з'єднання на кожну операцію (connection-per-operation) через
+ * {@link #connect} і пишуть через UPSERT {@code ON CONFLICT}, тож один файл бази можна ділити
+ * між ними — таблиці не перетинаються. WAL (властивість самого файлу) дозволяє читати, поки
+ * інший процес пише. Таймаут очікування блокування, навпаки, діє лише в межах з'єднання, тому
+ * {@link #connect} задає його кожному, а не один раз при ініціалізації.
+ */
+public final class SqliteSupport {
+
+    private SqliteSupport() {
+    }
+
+    /** Скільки з'єднання чекає на чужий запис, перш ніж здатися з {@code SQLITE_BUSY}. */
+    static final int BUSY_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * Відкриває з'єднання з {@code busy_timeout} {@value #BUSY_TIMEOUT_MILLIS} мс замість
+     * типових для sqlite-jdbc 3 с.
+     *
+     * @param jdbcUrl JDBC URL файлу SQLite
+     * @return нове з'єднання; закриває викликач
+     * @throws SQLException якщо базу даних неможливо відкрити
+     */
+    public static Connection connect(String jdbcUrl) throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBusyTimeout(BUSY_TIMEOUT_MILLIS);
+        return DriverManager.getConnection(jdbcUrl, config.toProperties());
+    }
+
+    /**
+     * Вмикає WAL і виконує DDL сховища по черзі.
+     *
+     * @param jdbcUrl    JDBC URL файлу SQLite
+     * @param statements {@code CREATE TABLE IF NOT EXISTS ...} та інші інструкції ініціалізації
+     * @throws SQLException якщо базу даних неможливо відкрити або інструкція завершується помилкою
+     */
+    public static void initialize(String jdbcUrl, String... statements) throws SQLException {
+        try (Connection conn = connect(jdbcUrl); Statement st = conn.createStatement()) {
+            st.execute("PRAGMA journal_mode = WAL");
+            conn.setAutoCommit(true);
+            for (String statement : statements) {
+                st.execute(statement);
+            }
+        }
+    }
+}
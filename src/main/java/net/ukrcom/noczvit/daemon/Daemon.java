@@ -0,0 +1,168 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.daemon;
+
+import jakarta.mail.MessagingException;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import net.ukrcom.noczvit.Config;
+import net.ukrcom.noczvit.Dictionary;
+import net.ukrcom.noczvit.MailSources;
+import net.ukrcom.noczvit.NOCZvit;
+
+/**
+ * Режим {@code --daemon}: довгоживучий процес замість двох cron-запусків на добу.
+ *
+ * <p>Для кожного ввімкненого поштового розділу (листи Zabbix, трапи Emerson, трапи RAMOS) запускає
+ * {@link MailboxWatcher}, який тримає IMAP IDLE і дописує нові листи в {@link MessageBuffer}. На
+ * кожній межі зміни ({@link #REPORT_TIMES} плюс {@link #REPORT_DELAY}) викликає
+ * {@link NOCZvit#runReport} з цими буферами як {@link MailSources}: IMAP-частина збору — раніше
+ * найдовша гілка фази ініціалізації — вже в пам'яті, і парсери інцидентів та трапів отримують
+ * той самий вхід, що й у разовому запуску.
+ *
+ * <p>Парсинг інцидентів свідомо лишається на момент звіту, а не на момент надходження листа:
+ * пари {@code [-]}/{@code [+]} за {@code In-Reply-To}, дедуплікація й кореляція трапів працюють
+ * над усім вікном зміни, а на кількох тисячах уже розібраних листів це мілісекунди.
+ *
+ * <p>Потоки спостерігачів — платформні, не віртуальні: {@link com.sun.mail.imap.IMAPFolder#idle}
+ * годинами блокується на читанні сокета всередині {@code synchronized}, а на Java 21 це
+ * пришпилило б віртуальний потік до несучого на весь час роботи.
+ *
+ * <p>Ще один такий потік — {@link Dictionary#watch()}: змінений файл словника підхоплюється
+ * наступним звітом без перезапуску демона.
+ */
+@Slf4j
+public class Daemon {
+
+    /** Моменти закінчення змін — ті самі межі 08:00/20:00, що й у {@link NOCZvit#runReport}. */
+    static final List<LocalTime> REPORT_TIMES = List.of(LocalTime.of(8, 0), LocalTime.of(20, 0));
+
+    /**
+     * Запас після межі зміни: лист про подію о 07:59:58 доходить до скриньки за кілька секунд, а
+     * теки без IDLE опитуються раз на {@code daemon.poll.seconds}.
+     */
+    static final Duration REPORT_DELAY = Duration.ofMinutes(2);
+
+    /**
+     * Скільки листів тримати в буферах. Звіт читає попередню й поточну зміни (до 36 год) плюс
+     * добу запасу з кожного боку, як {@code ImapReader.dateRangeTerm}.
+     */
+    static final long RETENTION_SECONDS = 3 * 86400L;
+
+    private final Config config;
+    private final Dictionary dictionary;
+
+    /**
+     * @param config     конфігурація
+     * @param dictionary вже завантажений спільний словник
+     */
+    public Daemon(Config config, Dictionary dictionary) {
+        this.config = config;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Запускає спостерігачів і формує звіти на межах змін. Повертається лише після переривання
+     * потоку; помилка окремого звіту логується, і демон чекає наступної межі.
+     */
+    public void run() {
+        MessageBuffer zabbix = new MessageBuffer();
+        MessageBuffer emerson = new MessageBuffer();
+        MessageBuffer ramos = new MessageBuffer();
+        List<Thread> watchers = new ArrayList<>();
+        if (config.isIncidentsEnabled()) {
+            watchers.add(start("zabbix", config.getZabbixFolder(), zabbix, true));
+        }
+        if (config.isTrapEnabled()) {
+            watchers.add(start("emerson", config.getSnmpTrapFolder(), emerson, false));
+        }
+        if (config.isRamosTrapEnabled()) {
+            watchers.add(start("ramos", config.getRamosTrapFolder(), ramos, false));
+        }
+        watchers.add(Thread.ofPlatform().daemon().name("dictionary-watch").start(dictionary::watch));
+        MailSources sources = new MailSources(zabbix, emerson, ramos);
+        List<MessageBuffer> buffers = List.of(zabbix, emerson, ramos);
+
+        try {
+            while (true) {
+                LocalDateTime next = nextReportTime(LocalDateTime.now());
+                log.info("Daemon: next report at {}", next);
+                sleepUntil(next);
+
+                long cutoff = Instant.now().getEpochSecond() - RETENTION_SECONDS;
+                int pruned = buffers.stream().mapToInt(b -> b.prune(cutoff)).sum();
+                log.info("Daemon: building report from {} buffered messages ({} expired dropped)",
+                        buffers.stream().mapToInt(MessageBuffer::size).sum(), pruned);
+                try {
+                    NOCZvit.runReport(config, dictionary, false, LocalDateTime.now(), sources);
+                } catch (MessagingException | IOException | RuntimeException e) {
+                    log.error("Daemon: report failed", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Daemon: interrupted, stopping");
+        } finally {
+            watchers.forEach(Thread::interrupt);
+        }
+    }
+
+    private Thread start(String label, String folderPattern, MessageBuffer buffer, boolean withInReplyTo) {
+        MailboxWatcher watcher = new MailboxWatcher(config, label, folderPattern, buffer, withInReplyTo);
+        return Thread.ofPlatform().daemon().name("imap-watch-" + label).start(watcher);
+    }
+
+    /**
+     * Найближчий момент звіту строго після {@code now}.
+     *
+     * @param now поточний місцевий час
+     * @return межа зміни плюс {@link #REPORT_DELAY}
+     */
+    static LocalDateTime nextReportTime(LocalDateTime now) {
+        for (int day = 0; day <= 1; day++) {
+            for (LocalTime t : REPORT_TIMES) {
+                LocalDateTime candidate = now.toLocalDate().plusDays(day).atTime(t).plus(REPORT_DELAY);
+                if (candidate.isAfter(now)) {
+                    return candidate;
+                }
+            }
+        }
+        throw new IllegalStateException("no report time after " + now);
+    }
+
+    /**
+     * Спить до {@code target} за стінним годинником. Різниця рахується в зонованому часі, тож
+     * перехід на літній/зимовий час не зсуває звіт на годину.
+     */
+    private static void sleepUntil(LocalDateTime target) throws InterruptedException {
+        ZoneId zone = ZoneId.systemDefault();
+        Duration left;
+        while (!(left = timeUntil(Instant.now(), target, zone)).isNegative() && !left.isZero()) {
+            Thread.sleep(left);
+        }
+    }
+
+    /** Скільки реального часу лишилося від {@code now} до місцевого {@code target} у зоні {@code zone}. */
+    static Duration timeUntil(Instant now, LocalDateTime target, ZoneId zone) {
+        return Duration.between(now, target.atZone(zone).toInstant());
+    }
+}
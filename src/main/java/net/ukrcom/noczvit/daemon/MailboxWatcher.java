@@ -0,0 +1,195 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.daemon;
+
+import com.sun.mail.imap.IMAPFolder;
+import com.sun.mail.imap.IMAPStore;
+import jakarta.mail.Folder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import lombok.extern.slf4j.Slf4j;
+import net.ukrcom.noczvit.Config;
+import net.ukrcom.noczvit.imap.ImapReader;
+import net.ukrcom.noczvit.imap.MailMessageSupport;
+import net.ukrcom.noczvit.imap.UidSync;
+
+/**
+ * Тримає власне IMAP-з'єднання з однією групою тек (шлях або шаблон з {@code *}) і дописує
+ * нові листи в {@link MessageBuffer} одразу, як вони надходять.
+ *
+ * <p>Перше підключення до теки виконує {@code SEARCH} за останні {@link Daemon#RETENTION_SECONDS}
+ * і запам'ятовує «високу воду» UID; далі з сервера завантажуються лише листи з UID вище неї.
+ * Правила — спільний з {@code ImapReader} {@link UidSync}. Зміна {@code UIDVALIDITY} скидає теку
+ * в буфері й повторює початкове завантаження.
+ *
+ * <p>Якщо шаблон дає одну теку і сервер підтримує {@code IDLE} (RFC 2177), спостерігач сидить в
+ * {@link IMAPFolder#idle(boolean)} і прокидається від {@code EXISTS}; кожні
+ * {@code daemon.idle.minutes} окремий потік перериває {@code IDLE} звичайною командою, бо
+ * сервери розривають простояле {@code IDLE} приблизно за 30 хв. Інакше (кілька тек на одному
+ * з'єднанні або сервер без {@code IDLE}) теки опитуються кожні {@code daemon.poll.seconds}.
+ *
+ * <p>Будь-яка помилка IMAP закриває з'єднання; спостерігач перепідключається з експоненційною
+ * затримкою і дочитує пропущене за «високою водою».
+ */
+@Slf4j
+public class MailboxWatcher implements Runnable {
+
+    private static final long MIN_BACKOFF_MILLIS = 5_000;
+    private static final long MAX_BACKOFF_MILLIS = 300_000;
+
+    private final Config config;
+    private final String label;
+    private final String folderPattern;
+    private final MessageBuffer buffer;
+    private final boolean withInReplyTo;
+    private final Session session;
+    private final long idleMillis;
+    private final long pollMillis;
+    // Пише й читає лише потік спостерігача; переживає перепідключення
+    private final Map<String, UidSync.Mark> marks = new HashMap<>();
+
+    /**
+     * @param config        конфігурація з'єднання й інтервалів
+     * @param label         мітка для логів ({@code zabbix}, {@code emerson}, {@code ramos})
+     * @param folderPattern шлях IMAP-теки або шаблон з {@code *}
+     * @param buffer        буфер, у який дописуються листи
+     * @param withInReplyTo чи переносити заголовок {@code In-Reply-To} (лише для листів Zabbix)
+     */
+    public MailboxWatcher(Config config, String label, String folderPattern, MessageBuffer buffer,
+                          boolean withInReplyTo) {
+        this.config = config;
+        this.label = label;
+        this.folderPattern = folderPattern;
+        this.buffer = buffer;
+        this.withInReplyTo = withInReplyTo;
+        this.idleMillis = config.getDaemonIdleMinutes() * 60_000L;
+        this.pollMillis = config.getDaemonPollSeconds() * 1_000L;
+        Properties props = MailMessageSupport.imapProperties(config);
+        // Таймаут читання 30 с із imapProperties обірвав би IDLE на першій же паузі: jakarta.mail
+        // вважає тайм-аут сокета в IDLE розривом з'єднання. Тут він має перевищувати інтервал
+        // між перезапусками IDLE (і між опитуваннями) із запасом.
+        long readTimeout = Math.max(idleMillis, pollMillis) + 120_000L;
+        props.put("mail." + MailMessageSupport.imapProtocol(config) + ".timeout", String.valueOf(readTimeout));
+        this.session = Session.getInstance(props);
+    }
+
+    /** Цикл спостереження; завершується лише перериванням потоку. */
+    @Override
+    public void run() {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (!Thread.currentThread().isInterrupted()) {
+            try (IMAPStore store = (IMAPStore) session.getStore(MailMessageSupport.imapProtocol(config))) {
+                store.connect(config.getMailHostname(), config.getMailUsername(), config.getMailPassword());
+                List<IMAPFolder> folders = new ArrayList<>();
+                for (Folder f : MailMessageSupport.resolveFolders(store, folderPattern)) {
+                    f.open(Folder.READ_ONLY);
+                    folders.add((IMAPFolder) f);
+                }
+                if (folders.isEmpty()) {
+                    throw new MessagingException("no folders match «" + folderPattern + "»");
+                }
+                for (IMAPFolder f : folders) {
+                    sync(f);
+                }
+                backoff = MIN_BACKOFF_MILLIS;
+                if (folders.size() == 1 && store.hasCapability("IDLE")) {
+                    log.info("MailboxWatcher[{}]: watching «{}» with IDLE", label, folders.get(0).getFullName());
+                    idle(folders.get(0));
+                } else {
+                    log.info("MailboxWatcher[{}]: polling {} folder(s) every {} s", label, folders.size(),
+                            pollMillis / 1000);
+                    poll(folders);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (MessagingException | RuntimeException e) {
+                log.warn("MailboxWatcher[{}]: {}, reconnecting in {} s", label, e.getMessage(), backoff / 1000);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+        log.info("MailboxWatcher[{}]: stopped", label);
+    }
+
+    /**
+     * Чекає в {@code IDLE} і дочитує теку після кожного сповіщення. Допоміжний потік раз на
+     * {@link #idleMillis} викликає {@link Folder#getMessageCount()}: будь-яка команда з іншого
+     * потоку змушує jakarta.mail надіслати {@code DONE}, і {@code idle(true)} повертається.
+     */
+    private void idle(IMAPFolder folder) throws MessagingException {
+        Thread keepAlive = Thread.ofVirtual().name("imap-keepalive-" + label).start(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(idleMillis);
+                    folder.getMessageCount();
+                }
+            } catch (InterruptedException | MessagingException | IllegalStateException e) {
+                // Основний цикл сам помітить закриту теку; тут лише зупиняємось
+            }
+        });
+        try {
+            while (folder.isOpen() && !Thread.currentThread().isInterrupted()) {
+                folder.idle(true);
+                sync(folder);
+            }
+        } finally {
+            keepAlive.interrupt();
+        }
+    }
+
+    /** Опитує теки з інтервалом {@link #pollMillis}, доки потік не перервуть. */
+    private void poll(List<IMAPFolder> folders) throws MessagingException, InterruptedException {
+        while (true) {
+            Thread.sleep(pollMillis);
+            for (IMAPFolder f : folders) {
+                sync(f);
+            }
+        }
+    }
+
+    /**
+     * Дочитує теку до поточного стану через {@link UidSync}: при першому підключенні (чи зміні
+     * {@code UIDVALIDITY}) — {@code SEARCH} за вікном зберігання, далі — {@code UID FETCH <висока вода + 1>:*}.
+     */
+    private void sync(IMAPFolder folder) throws MessagingException {
+        String name = folder.getFullName();
+        long now = Instant.now().getEpochSecond();
+        UidSync.Result sync = UidSync.sync(folder, marks.get(name),
+                ImapReader.dateRangeTerm(now - Daemon.RETENTION_SECONDS, now), withInReplyTo,
+                config.getMailBodyMaxBytes(), "MailboxWatcher");
+        if (!sync.incremental()) {
+            buffer.clear(name);
+        }
+        sync.messages().forEach((uid, msg) -> buffer.add(name, uid, msg));
+        marks.put(name, sync.mark());
+
+        int added = sync.messages().size();
+        if (!sync.incremental()) {
+            log.info("MailboxWatcher[{}]: loaded {} messages from «{}»", label, added, name);
+        } else if (added > 0) {
+            log.debug("MailboxWatcher[{}]: {} new message(s) in «{}»", label, added, name);
+        }
+    }
+}
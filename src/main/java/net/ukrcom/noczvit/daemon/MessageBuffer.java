@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.daemon;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import net.ukrcom.noczvit.imap.MessageSource;
+import net.ukrcom.noczvit.imap.RawMessage;
+
+/**
+ * Стан зміни в пам'яті для режиму {@code --daemon}: уже розібрані листи однієї групи тек
+ * (Zabbix, трапи Emerson чи трапи RAMOS), які {@link MailboxWatcher} додає в міру надходження.
+ *
+ * <p>Як {@link MessageSource} віддає листи у тій самій формі, що й IMAP-читачі: теки — в порядку
+ * першого додавання, листи всередині теки — за зростанням UID, вікно дат розширене на добу з
+ * кожного боку, як у {@code ImapReader.dateRangeTerm}. Тож парсери інцидентів і трапів на
+ * межі зміни отримують той самий вхід, що й у разовому запуску, але без жодного IMAP-запиту.
+ *
+ * <p><b>Потокобезпечність:</b> пише один потік спостерігача, читає потік формування звіту —
+ * усі методи {@code synchronized}; обсяг (кілька діб листів) робить конкуренцію незначною.
+ */
+public class MessageBuffer implements MessageSource {
+
+    private final Map<String, TreeMap<Long, RawMessage>> folders = new LinkedHashMap<>();
+
+    /**
+     * Додає розібраний лист. Повторне додавання того самого UID замінює попередній запис.
+     *
+     * @param folder повне ім'я IMAP-теки
+     * @param uid    UID листа в теці
+     * @param msg    розібраний лист
+     */
+    public synchronized void add(String folder, long uid, RawMessage msg) {
+        folders.computeIfAbsent(folder, f -> new TreeMap<>()).put(uid, msg);
+    }
+
+    /**
+     * Забуває всі листи теки — після зміни її {@code UIDVALIDITY} збережені UID втратили сенс.
+     *
+     * @param folder повне ім'я IMAP-теки
+     */
+    public synchronized void clear(String folder) {
+        TreeMap<Long, RawMessage> messages = folders.get(folder);
+        if (messages != null) {
+            messages.clear();
+        }
+    }
+
+    /**
+     * Видаляє листи з датою раніше за {@code olderThanEpoch}, щоб буфер не ріс безмежно.
+     *
+     * @param olderThanEpoch unix-епоха; листи з {@code unixDate} менше неї видаляються
+     * @return кількість видалених листів
+     */
+    public synchronized int prune(long olderThanEpoch) {
+        int removed = 0;
+        for (TreeMap<Long, RawMessage> messages : folders.values()) {
+            int before = messages.size();
+            messages.values().removeIf(m -> m.unixDate() < olderThanEpoch);
+            removed += before - messages.size();
+        }
+        return removed;
+    }
+
+    /** @return загальна кількість листів у буфері */
+    public synchronized int size() {
+        return folders.values().stream().mapToInt(Map::size).sum();
+    }
+
+    @Override
+    public synchronized List<RawMessage> read(boolean fetchAll, long fromEpoch, long toEpoch) {
+        long from = fromEpoch - 86400;
+        long to = toEpoch + 86400;
+        List<RawMessage> result = new ArrayList<>();
+        for (TreeMap<Long, RawMessage> messages : folders.values()) {
+            for (RawMessage m : messages.values()) {
+                if (fetchAll || (m.unixDate() >= from && m.unixDate() <= to)) {
+                    result.add(m);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -15,11 +15,11 @@
 package net.ukrcom.noczvit.history;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import lombok.extern.slf4j.Slf4j;
+import net.ukrcom.noczvit.SqliteSupport;
 
 /**
  * Постійне сховище резюме змін від Claude на базі SQLite.
@@ -88,18 +88,8 @@ public class ResumeHistory {
      */
     public ResumeHistory(String jdbcUrl) throws SQLException {
         this.jdbcUrl = jdbcUrl;
-        try (Connection conn = DriverManager.getConnection(jdbcUrl)) {
-            try (var pragmaStmt = conn.createStatement()) {
-                pragmaStmt.execute("PRAGMA journal_mode = WAL");
-                pragmaStmt.execute("PRAGMA busy_timeout = 30000");
-            }
-            conn.setAutoCommit(true);
-            try (var st = conn.createStatement()) {
-                st.execute("PRAGMA auto_vacuum = INCREMENTAL");
-                st.execute(DDL);
-                log.debug("ResumeHistory: таблицю перевірено/створено у {}", jdbcUrl);
-            }
-        }
+        SqliteSupport.initialize(jdbcUrl, "PRAGMA auto_vacuum = INCREMENTAL", DDL);
+        log.debug("ResumeHistory: таблицю перевірено/створено у {}", jdbcUrl);
 
     }
 
@@ -113,7 +103,7 @@ public class ResumeHistory {
      * @throws SQLException якщо запит завершується помилкою
      */
     public ResumeRecord findPrevious(long currentFrom) throws SQLException {
-        try (Connection conn = DriverManager.getConnection(jdbcUrl); PreparedStatement ps = conn.prepareStatement(SELECT_PREVIOUS)) {
+        try (Connection conn = SqliteSupport.connect(jdbcUrl); PreparedStatement ps = conn.prepareStatement(SELECT_PREVIOUS)) {
             ps.setLong(1, currentFrom);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -143,7 +133,7 @@ public class ResumeHistory {
      */
     public void save(long periodFrom, long periodTo, String summaryText) throws SQLException {
         long now = System.currentTimeMillis() / 1000L;
-        try (Connection conn = DriverManager.getConnection(jdbcUrl); PreparedStatement ps = conn.prepareStatement(UPSERT)) {
+        try (Connection conn = SqliteSupport.connect(jdbcUrl); PreparedStatement ps = conn.prepareStatement(UPSERT)) {
             ps.setLong(1, periodFrom);
             ps.setLong(2, periodTo);
             ps.setLong(3, now);
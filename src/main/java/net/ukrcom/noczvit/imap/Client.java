@@ -29,7 +29,7 @@ import net.ukrcom.noczvit.model.Incident;
 
 /**
  * Оркеструє читання IMAP та розбір інцидентів. Делегує ввід/вивід
- * {@link ImapReader}, бізнес-логіку — {@link PdIncidentParser} та
+ * {@link MessageSource} (зазвичай {@link ImapReader}), бізнес-логіку — {@link PdIncidentParser} та
  * {@link OsmIncidentParser}.
  */
 @Slf4j
@@ -40,11 +40,12 @@ public class Client {
     private static final long ADLINK_DEDUP_WINDOW_SEC = 60;
 
     private final Config config;
-    private final ImapReader reader;
+    private final MessageSource source;
     private final PdIncidentParser pdParser;
     private final OsmIncidentParser osmParser;
     private final OspfIncidentParser ospfParser;
     private final AdlinkIncidentParser adlinkParser;
+    private final SubjectRouter router;
 
     /**
      * Створює клієнт, використовуючи вже завантажений словник.
@@ -57,12 +58,24 @@ public class Client {
      * @param dictionary вже завантажений спільний словник
      */
     public Client(Config config, Dictionary dictionary) {
+        this(config, dictionary, new ImapReader(config)::readMessages);
+    }
+
+    /**
+     * Створює клієнт, що бере повідомлення з довільного джерела: IMAP-читача на спільному пулі
+     * (разовий запуск) чи буфера, наповненого через IMAP IDLE (режим {@code --daemon}).
+     * @param config     конфігурація з'єднання IMAP
+     * @param dictionary вже завантажений спільний словник
+     * @param source     джерело сирих листів Zabbix
+     */
+    public Client(Config config, Dictionary dictionary, MessageSource source) {
         this.config = config;
-        this.reader = new ImapReader(config);
-        this.pdParser = new PdIncidentParser(dictionary);
+        this.source = source;
+        this.pdParser = new PdIncidentParser(dictionary, config.getPdIgnoreRules());
         this.osmParser = new OsmIncidentParser(dictionary);
         this.ospfParser = new OspfIncidentParser(dictionary);
         this.adlinkParser = new AdlinkIncidentParser(dictionary);
+        this.router = new SubjectRouter(config.isDebug());
     }
 
     /**
@@ -88,7 +101,7 @@ public class Client {
 
         List<RawMessage> rawMessages;
         try {
-            rawMessages = reader.readMessages(config.isDebug(), fromEpoch, toEpoch);
+            rawMessages = source.read(config.isDebug(), fromEpoch, toEpoch);
         } catch (MessagingException e) {
             log.error("IMAP error: {}", e.getMessage());
             throw new RuntimeException("IMAP error: " + e.getMessage(), e);
@@ -107,14 +120,13 @@ public class Client {
                         msg.unixDate(), msg.subject());
                 continue;
             }
-            if (isPdMessage(msg.subject())) {
-                pdParser.parse(msg).ifPresent(incidents::add);
-            } else if (isOspfMessage(msg.subject())) {
-                ospfParser.parse(msg).ifPresent(incidents::add);
-            } else if (isAdlinkMessage(msg.subject())) {
-                adlinkParser.parse(msg).ifPresent(incidents::add);
-            } else if (isOsmMessage(msg.subject())) {
-                osmParser.parse(msg).ifPresent(incidents::add);
+            switch (router.route(msg.subject())) {
+                case PD -> pdParser.parse(msg).ifPresent(incidents::add);
+                case OSPF -> ospfParser.parse(msg).ifPresent(incidents::add);
+                case ADLINK -> adlinkParser.parse(msg).ifPresent(incidents::add);
+                case OSM -> osmParser.parse(msg).ifPresent(incidents::add);
+                case NONE -> {
+                }
             }
         }
 
@@ -158,17 +170,17 @@ public class Client {
 
     /** Повертає {@code true} для тем алертів ICMP-ping або перезавантаження пристрою, які обробляє {@link PdIncidentParser}. */
     boolean isPdMessage(String subject) {
-        return subject.matches(".*(?:Unavailable by ICMP ping|has been restarted).*");
+        return router.matches(subject, SubjectRouter.Route.PD);
     }
 
     /** Повертає {@code true} для тем алертів зміни стану сусіда OSPF, які обробляє {@link OspfIncidentParser}. */
     boolean isOspfMessage(String subject) {
-        return subject.contains("ospfNbrStateChange");
+        return router.matches(subject, SubjectRouter.Route.OSPF);
     }
 
     /** Повертає {@code true} для тем алертів сухого контакту Zabbix (adlink), які обробляє {@link AdlinkIncidentParser}. */
     boolean isAdlinkMessage(String subject) {
-        return subject.contains("adlink") && subject.contains("- Fault");
+        return router.matches(subject, SubjectRouter.Route.ADLINK);
     }
 
     /**
@@ -176,10 +188,6 @@ public class Client {
      * обробляє {@link OsmIncidentParser}. У режимі debug також враховуються алерти STM-1.
      */
     boolean isOsmMessage(String subject) {
-        String stmPattern = "2-9";
-        if (config.isDebug()) {
-            stmPattern = "1-9";
-        }
-        return subject.matches(".*(?:[Pp][Oo][Ww][Ee][Rr]|STM [Ss][Tt][Mm].?[" + stmPattern + "][0-9]*).*");
+        return router.matches(subject, SubjectRouter.Route.OSM);
     }
 }
@@ -19,15 +19,14 @@ import com.sun.mail.imap.IMAPStore;
 import jakarta.mail.Folder;
 import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
-import jakarta.mail.Session;
 import jakarta.mail.search.AndTerm;
 import jakarta.mail.search.ComparisonTerm;
 import jakarta.mail.search.SearchTerm;
 import jakarta.mail.search.SentDateTerm;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Properties;
 import lombok.extern.slf4j.Slf4j;
 import net.ukrcom.noczvit.Config;
 
@@ -37,18 +36,65 @@ import net.ukrcom.noczvit.Config;
  *
  * <p>Налаштування з'єднання й перетворення повідомлень спільні з {@code trap.ImapTrapReader}
  * через {@link MailMessageSupport}.
+ *
+ * <p>Якщо задано {@code mail.cache}, розібрані повідомлення зберігаються в {@link MessageCache}
+ * за ключем {@code UIDVALIDITY}/UID, і наступні запуски завантажують з сервера лише листи
+ * з UID вище збереженої «високої води» — решта звітного вікна читається з диска.
+ *
+ * <p>З'єднання позичається з {@link ImapStorePool}, спільного з trap-читачами, тож за
+ * запуск TLS-рукостискання й {@code LOGIN} виконуються не для кожного читача окремо.
  */
 @Slf4j
 public class ImapReader {
 
+    /**
+     * Скільки закешованих повідомлень тримати нижче поточного вікна. Межа вікна рухається
+     * вперед на 12 год за запуск, тож тиждень покриває і пропущені запуски (вихідні, збій
+     * cron), не змушуючи перечитувати теку з нуля.
+     */
+    private static final long CACHE_RETENTION_SECONDS = 7 * 86400L;
+
     private final Config config;
+    private final MessageCache cache;
+    private final ImapStorePool pool;
 
     /**
-     * Створює читач, прив'язаний до заданої конфігурації.
+     * Створює читач, що на кожен {@link #readMessages} відкриває й закриває власне з'єднання.
      * @param config джерело налаштувань IMAP-з'єднання
      */
     public ImapReader(Config config) {
+        this(config, null);
+    }
+
+    /**
+     * Створює читач, що позичає з'єднання зі спільного пулу. Пул закриває викликач.
+     * @param config джерело налаштувань IMAP-з'єднання
+     * @param pool   спільний пул IMAP-з'єднань, або {@code null} — тоді власне з'єднання на виклик
+     */
+    public ImapReader(Config config, ImapStorePool pool) {
         this.config = config;
+        this.cache = initCache(config.getMailCacheUrl());
+        this.pool = pool;
+    }
+
+    /**
+     * Відкриває кеш повідомлень SQLite за вказаним JDBC URL.
+     *
+     * @param url JDBC URL, наприклад {@code jdbc:sqlite:/var/lib/noczvit/imap-cache.db};
+     *            порожній рядок чи null вимикає кеш
+     * @return ініціалізований {@link MessageCache}, або {@code null}, якщо URL порожній чи БД
+     *         не вдалося відкрити
+     */
+    private static MessageCache initCache(String url) {
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        try {
+            return new MessageCache(url);
+        } catch (SQLException e) {
+            log.warn("MessageCache: failed to open '{}': {}", url, e.getMessage());
+            return null;
+        }
     }
 
     /**
@@ -63,17 +109,19 @@ public class ImapReader {
      * @throws jakarta.mail.MessagingException
      */
     public List<RawMessage> readMessages(boolean fetchAll, long fromEpoch, long toEpoch) throws MessagingException {
-        Properties props = MailMessageSupport.imapProperties(config);
+        if (pool != null) {
+            return read(pool, fetchAll, fromEpoch, toEpoch);
+        }
+        try (ImapStorePool own = new ImapStorePool(config, 1)) {
+            return read(own, fetchAll, fromEpoch, toEpoch);
+        }
+    }
 
+    private List<RawMessage> read(ImapStorePool from, boolean fetchAll, long fromEpoch, long toEpoch)
+            throws MessagingException {
         List<RawMessage> result = new ArrayList<>();
-        Session session = Session.getInstance(props);
-
-        try (IMAPStore store = (IMAPStore) session.getStore(MailMessageSupport.imapProtocol(config))) {
-            log.debug("Connecting to IMAP server: {}:{}", config.getMailHostname(),
-                    MailMessageSupport.imapPort(config));
-            store.connect(config.getMailHostname(), config.getMailUsername(), config.getMailPassword());
-            log.debug("Connected to IMAP server");
-
+        try (ImapStorePool.Lease lease = from.borrow()) {
+            IMAPStore store = lease.store();
             try (IMAPFolder folder = (IMAPFolder) store.getFolder(config.getZabbixFolder())) {
                 folder.open(Folder.READ_ONLY);
                 if (log.isDebugEnabled()) {
@@ -88,6 +136,14 @@ public class ImapReader {
                 }
 
                 log.info("Processing {} messages from IMAP folder...", folder.getMessageCount());
+                // Режим fetchAll (debug) свідомо йде повз кеш — він і так читає всю теку.
+                if (!fetchAll && cache != null) {
+                    try {
+                        return readCached(folder, fromEpoch, toEpoch);
+                    } catch (SQLException e) {
+                        log.warn("MessageCache: {}, reading IMAP folder without cache", e.getMessage());
+                    }
+                }
                 Message[] messages;
                 if (fetchAll) {
                     messages = folder.getMessages();
@@ -96,16 +152,47 @@ public class ImapReader {
                     messages = folder.search(dateRangeTerm(fromEpoch, toEpoch));
                 }
 
-                for (Message msg : messages) {
-                    MailMessageSupport.parseRawMessage(msg, true, "ImapReader")
-                            .ifPresent(result::add);
-                }
+                result.addAll(MailMessageSupport.fetchAndParse(folder, messages, true,
+                        config.getMailBodyMaxBytes(), "ImapReader"));
                 log.info("IMAP: read {} messages", result.size());
             }
         }
         return result;
     }
 
+    /**
+     * Читає повідомлення через {@link MessageCache}: з сервера завантажуються лише листи з UID
+     * вище «високої води», решта вікна {@code [fromEpoch − 1 доба, toEpoch + 1 доба]} (ті самі
+     * межі, що й у {@link #dateRangeTerm}) береться з диска.
+     *
+     * <p>Холодний старт (тека ще не кешувалась, змінився {@code UIDVALIDITY} або вікно почалося
+     * раніше, ніж покриває кеш) виконує звичайний {@code SEARCH} за датами й записує його
+     * результат у кеш; правила «високої води» — у {@link UidSync}.
+     */
+    private List<RawMessage> readCached(IMAPFolder folder, long fromEpoch, long toEpoch)
+            throws MessagingException, SQLException {
+        String name = folder.getFullName();
+        long from = fromEpoch - 86400;
+        long to = toEpoch + 86400;
+        MessageCache.FolderState prev = cache.state(name);
+        UidSync.Mark mark = prev != null && prev.coveredFrom() <= from
+                ? new UidSync.Mark(prev.uidValidity(), prev.highUid()) : null;
+
+        UidSync.Result sync = UidSync.sync(folder, mark, dateRangeTerm(fromEpoch, toEpoch), true,
+                config.getMailBodyMaxBytes(), "ImapReader");
+        if (!sync.incremental()) {
+            log.info("IMAP cache: cold start for «{}», filter: sent >= {} && sent <= {}", name, fromEpoch, toEpoch);
+        }
+        long uidValidity = sync.mark().uidValidity();
+        long coveredFrom = sync.incremental() ? Math.max(prev.coveredFrom(), from - CACHE_RETENTION_SECONDS) : from;
+        cache.store(name, new MessageCache.FolderState(uidValidity, sync.mark().highUid(), coveredFrom),
+                sync.messages());
+
+        List<RawMessage> result = cache.load(name, uidValidity, from, to);
+        log.info("IMAP: read {} messages ({} new fetched from server)", result.size(), sync.messages().size());
+        return result;
+    }
+
     /**
      * Будує серверний термін {@code SEARCH} для заданого діапазону епохи.
      *
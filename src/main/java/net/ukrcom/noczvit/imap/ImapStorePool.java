@@ -0,0 +1,242 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.imap;
+
+import com.sun.mail.imap.IMAPStore;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import net.ukrcom.noczvit.Config;
+
+/**
+ * Невеликий пул підключених {@link IMAPStore}, спільний для всіх IMAP-читачів одного запуску
+ * ({@link ImapReader}, Emerson- і RAMOS-{@code trap.ImapTrapReader}).
+ *
+ * <p>Раніше кожен читач створював власну {@link Session}, проходив власне TLS-рукостискання
+ * й {@code LOGIN} і закривав своє з'єднання — три повні SSL-підключення на запуск до
+ * повільного поштового сервера. Тепер з'єднання відкривається ліниво при першому
+ * {@link #borrow()}, після {@link Lease#close()} повертається в пул і перевикористовується
+ * наступним читачем. Одночасно видано щонайбільше {@code mail.pool.size} з'єднань —
+ * решта викликачів чекає на {@link Semaphore}.
+ *
+ * <p>Для кожного нового з'єднання записується {@link ConnectTiming} (DNS + TCP, TLS,
+ * привітання + {@code LOGIN}) — див. {@link TimingSocketFactory}.
+ *
+ * <p><b>Потокобезпечність:</b> {@link #borrow()} і {@link Lease#close()} можна викликати з
+ * будь-яких (віртуальних) потоків одночасно. Сам {@link IMAPStore} за один раз використовує
+ * лише той, хто його позичив.
+ */
+@Slf4j
+public class ImapStorePool implements AutoCloseable {
+
+    /**
+     * Тривалість фаз одного підключення в мілісекундах; {@code -1} — фазу не виміряно
+     * (у режимі без SSL TLS немає, і DNS + TCP не відділяється від {@code LOGIN}).
+     *
+     * @param tcpMillis   DNS + TCP-з'єднання
+     * @param tlsMillis   TLS-рукостискання
+     * @param loginMillis привітання сервера, {@code CAPABILITY} і {@code LOGIN}
+     */
+    public record ConnectTiming(long tcpMillis, long tlsMillis, long loginMillis) {
+
+    }
+
+    private final Config config;
+    private final Session session;
+    private final int size;
+    private final Semaphore permits;
+    private final Deque<IMAPStore> idle = new ConcurrentLinkedDeque<>();
+    private final List<ConnectTiming> timings = new CopyOnWriteArrayList<>();
+    private final AtomicInteger borrows = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Створює пул розміру {@code mail.pool.size}. З'єднання не відкриваються до першого
+     * {@link #borrow()}.
+     *
+     * @param config джерело налаштувань IMAP-з'єднання й розміру пулу
+     */
+    public ImapStorePool(Config config) {
+        this(config, config.getMailPoolSize());
+    }
+
+    /**
+     * Створює пул заданого розміру.
+     *
+     * @param config джерело налаштувань IMAP-з'єднання
+     * @param size   максимальна кількість одночасно виданих з'єднань (щонайменше 1)
+     */
+    public ImapStorePool(Config config, int size) {
+        this.config = config;
+        this.size = Math.max(1, size);
+        this.permits = new Semaphore(this.size);
+        Properties props = MailMessageSupport.imapProperties(config);
+        if (config.isMailSsl()) {
+            props.put("mail.imaps.ssl.socketFactory", new TimingSocketFactory());
+        }
+        this.session = Session.getInstance(props);
+    }
+
+    /**
+     * Позичає підключене з'єднання: вільне з пулу, якщо воно ще живе, інакше — нове. Якщо
+     * видано вже {@link #size()} з'єднань, чекає, доки одне з них повернуть.
+     *
+     * @return позика, яку потрібно закрити ({@code try-with-resources}) після використання
+     * @throws MessagingException якщо нове з'єднання не вдалося відкрити, пул закрито або
+     *                            очікування перервано
+     */
+    public Lease borrow() throws MessagingException {
+        if (closed) {
+            throw new MessagingException("IMAP pool is closed");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an IMAP connection", e);
+        }
+        try {
+            borrows.incrementAndGet();
+            IMAPStore store;
+            while ((store = idle.pollFirst()) != null) {
+                // isConnected() у IMAPStore робить NOOP — сервер міг закрити простояле з'єднання
+                if (store.isConnected()) {
+                    return new Lease(store);
+                }
+                closeQuietly(store);
+            }
+            return new Lease(connectStore());
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Відкриває й підключає нове з'єднання, записуючи {@link ConnectTiming}. Package-private
+     * (не private): тест підміняє його, щоб перевірити облік позик без реального сервера.
+     *
+     * @return підключене з'єднання
+     * @throws MessagingException якщо підключення не вдалось
+     */
+    IMAPStore connectStore() throws MessagingException {
+        IMAPStore store = (IMAPStore) session.getStore(MailMessageSupport.imapProtocol(config));
+        log.debug("IMAP pool: connecting to {}:{}", config.getMailHostname(), MailMessageSupport.imapPort(config));
+        TimingSocketFactory.Marks marks = TimingSocketFactory.begin();
+        long started = System.nanoTime();
+        try {
+            store.connect(config.getMailHostname(), config.getMailUsername(), config.getMailPassword());
+        } finally {
+            TimingSocketFactory.end();
+        }
+        ConnectTiming timing = timing(started, marks.tlsStarted(), marks.tlsCompleted(), System.nanoTime());
+        timings.add(timing);
+        log.info("IMAP pool: connection #{} opened (tcp {} ms, tls {} ms, login {} ms)",
+                timings.size(), timing.tcpMillis(), timing.tlsMillis(), timing.loginMillis());
+        return store;
+    }
+
+    /**
+     * Розкладає позначки {@link System#nanoTime()} одного підключення на фази. Якщо TLS-позначок
+     * немає ({@link TimingSocketFactory.Marks#UNSET}) (режим без SSL або слухач JDK ще не спрацював), увесь час зараховується до логіну.
+     */
+    static ConnectTiming timing(long started, long tlsStarted, long tlsCompleted, long finished) {
+        if (tlsStarted == TimingSocketFactory.Marks.UNSET || tlsCompleted == TimingSocketFactory.Marks.UNSET) {
+            return new ConnectTiming(-1, -1, millis(finished - started));
+        }
+        return new ConnectTiming(millis(tlsStarted - started), millis(tlsCompleted - tlsStarted),
+                millis(finished - tlsCompleted));
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    /** Повертає з'єднання в пул (або закриває, якщо пул уже закрито) і звільняє дозвіл. */
+    private void release(IMAPStore store) {
+        if (closed || !store.isConnected()) {
+            closeQuietly(store);
+        } else {
+            idle.offerFirst(store);
+        }
+        permits.release();
+    }
+
+    private static void closeQuietly(IMAPStore store) {
+        try {
+            store.close();
+        } catch (MessagingException e) {
+            log.debug("IMAP pool: failed to close connection: {}", e.getMessage());
+        }
+    }
+
+    /** @return максимальна кількість одночасно виданих з'єднань */
+    public int size() {
+        return size;
+    }
+
+    /** @return заміри кожного відкритого пулом з'єднання, у порядку відкриття */
+    public List<ConnectTiming> timings() {
+        return List.copyOf(timings);
+    }
+
+    /**
+     * Закриває всі вільні з'єднання; з'єднання, що зараз позичені, закриються при поверненні.
+     * Повторний виклик безпечний.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IMAPStore store;
+        while ((store = idle.pollFirst()) != null) {
+            closeQuietly(store);
+        }
+        log.info("IMAP pool: {} connection(s) served {} borrow(s)", timings.size(), borrows.get());
+    }
+
+    /** Позика одного з'єднання; {@link #close()} повертає його в пул. */
+    public final class Lease implements AutoCloseable {
+
+        private final IMAPStore store;
+        private boolean released;
+
+        private Lease(IMAPStore store) {
+            this.store = store;
+        }
+
+        /** @return позичене підключене з'єднання */
+        public IMAPStore store() {
+            return store;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(store);
+            }
+        }
+    }
+}
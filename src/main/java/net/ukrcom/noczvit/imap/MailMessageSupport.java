@@ -14,17 +14,26 @@
  */
 package net.ukrcom.noczvit.imap;
 
-import jakarta.mail.BodyPart;
+import com.sun.mail.imap.IMAPStore;
+import jakarta.mail.FetchProfile;
+import jakarta.mail.Folder;
 import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
 import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.internet.ContentType;
+import jakarta.mail.internet.MimeUtility;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.Properties;
@@ -32,9 +41,9 @@ import lombok.extern.slf4j.Slf4j;
 import net.ukrcom.noczvit.Config;
 
 /**
- * Спільне налаштування IMAP-з'єднання та конвертація повідомлення в {@link RawMessage},
- * використовується і в {@link ImapReader} (тека алертів Zabbix/OSM), і в
- * {@code trap.ImapTrapReader} (теки SNMP-трапів).
+ * Спільне налаштування IMAP-з'єднання, розв'язання шаблонів тек та конвертація повідомлення
+ * в {@link RawMessage}, використовується і в {@link ImapReader} (тека алертів Zabbix/OSM), і в
+ * {@code trap.ImapTrapReader} (теки SNMP-трапів), і в {@code daemon.MailboxWatcher}.
  *
  * <p><b>Потокобезпечність:</b> без стану — кожен метод статичний і працює лише зі своїми
  * аргументами та локальними змінними. Це важливо, бо під час формування звіту одночасно
@@ -50,9 +59,81 @@ public final class MailMessageSupport {
     private static final DateTimeFormatter MESSAGE_HEADER_FORMATTER
             = DateTimeFormatter.ofPattern("EEE, d MMM yyyy HH:mm:ss Z", Locale.ENGLISH);
 
+    /**
+     * Скільки повідомлень іде в одну команду {@code FETCH}. Обмежує і довжину рядка команди
+     * (набір номерів), і обсяг заголовків, що одночасно тримаються в пам'яті.
+     */
+    static final int FETCH_CHUNK_SIZE = 500;
+
     private MailMessageSupport() {
     }
 
+    /**
+     * Набір даних, які {@link #parseRawMessage} читає з кожного повідомлення: конверт (тема),
+     * {@code BODYSTRUCTURE} (для {@code isMimeType} без завантаження тіла) і сирі заголовки
+     * {@code Date}/{@code In-Reply-To}. Заголовки потрібно перелічити явно: {@code IMAPMessage}
+     * бере їх не з конверта, а окремим {@code FETCH BODY.PEEK[HEADER.FIELDS ...]} на кожен лист.
+     *
+     * @param withInReplyTo чи додавати заголовок {@code In-Reply-To}
+     * @return свіжий мутабельний {@link FetchProfile}, яким володіє викликач
+     */
+    public static FetchProfile messageProfile(boolean withInReplyTo) {
+        FetchProfile profile = new FetchProfile();
+        profile.add(FetchProfile.Item.ENVELOPE);
+        profile.add(FetchProfile.Item.CONTENT_INFO);
+        profile.add("Date");
+        if (withInReplyTo) {
+            profile.add("In-Reply-To");
+        }
+        return profile;
+    }
+
+    /**
+     * Ділить масив повідомлень на шматки по {@link #FETCH_CHUNK_SIZE}.
+     *
+     * @param messages повідомлення теки
+     * @return шматки у вихідному порядку; порожній список для порожнього масиву
+     */
+    public static List<Message[]> chunks(Message[] messages) {
+        List<Message[]> result = new ArrayList<>();
+        for (int i = 0; i < messages.length; i += FETCH_CHUNK_SIZE) {
+            result.add(Arrays.copyOfRange(messages, i, Math.min(i + FETCH_CHUNK_SIZE, messages.length)));
+        }
+        return result;
+    }
+
+    /**
+     * Завантажує повідомлення пакетно й конвертує їх у {@link RawMessage}: на кожен шматок з
+     * {@link #FETCH_CHUNK_SIZE} листів — одна конвеєрна команда {@code FETCH} з
+     * {@link #messageProfile}, після чого {@link #parseRawMessage} читає конверт, заголовки й
+     * структуру вже з пам'яті. Без цього кожен лист коштував окремих round-trip на
+     * {@code Date}, тему, {@code In-Reply-To} і структуру тіла.
+     *
+     * @param folder        відкрита тека, якій належать повідомлення
+     * @param messages      повідомлення (результат {@code search}/{@code getMessages})
+     * @param withInReplyTo див. {@link #parseRawMessage}
+     * @param maxBodyBytes  див. {@link #parseRawMessage}
+     * @param logContext    коротке ім'я викликача для логів
+     * @return розібрані повідомлення у вихідному порядку; ніколи не null
+     * @throws MessagingException якщо пакетний {@code FETCH} завершується помилкою
+     */
+    public static List<RawMessage> fetchAndParse(Folder folder, Message[] messages, boolean withInReplyTo,
+                                                 int maxBodyBytes, String logContext) throws MessagingException {
+        List<RawMessage> result = new ArrayList<>(messages.length);
+        FetchProfile profile = messageProfile(withInReplyTo);
+        List<Message[]> chunks = chunks(messages);
+        long started = System.nanoTime();
+        for (Message[] chunk : chunks) {
+            folder.fetch(chunk, profile);
+            for (Message msg : chunk) {
+                parseRawMessage(msg, withInReplyTo, maxBodyBytes, logContext).ifPresent(result::add);
+            }
+        }
+        log.debug("{}: {} messages from «{}» in {} FETCH command(s), {} ms", logContext, messages.length,
+                folder.getFullName(), chunks.size(), (System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
     /**
      * Формує властивості сесії jakarta.mail для налаштованого IMAP-сервера, включно з
      * таймаутами з'єднання/читання/запису.
@@ -74,6 +155,67 @@ public final class MailMessageSupport {
         return props;
     }
 
+    /**
+     * Розв'язує теки зі сховища, що відповідають {@code pattern}.
+     *
+     * <p>Якщо шаблон містить символ {@code *}, шлях розбивається за останнім роздільником
+     * перед шаблоном, і на батьківській теці викликається {@link Folder#list(String)}. Інакше
+     * тека відкривається напряму.
+     *
+     * <p>Спільне для {@code trap.ImapTrapReader} і {@code daemon.MailboxWatcher}.
+     *
+     * @param store   підключене сховище
+     * @param pattern шлях теки або шаблон з {@code *}; {@code /} приймається як роздільник
+     * @return наявні теки, що відповідають шаблону; порожній список, якщо таких немає
+     * @throws MessagingException при помилках IMAP
+     */
+    public static List<Folder> resolveFolders(IMAPStore store, String pattern) throws MessagingException {
+        List<Folder> result = new ArrayList<>();
+
+        char sep = store.getDefaultFolder().getSeparator();
+
+        // Нормалізація: приймаємо '/' як універсальний роздільник незалежно від того, що
+        // фактично використовує сервер. Замінюємо '/' на роздільник сервера, щоб
+        // store.getFolder() отримав коректний шлях.
+        String normalizedPattern = (sep != '/') ? pattern.replace('/', sep) : pattern;
+
+        if (!normalizedPattern.contains("*")) {
+            Folder f = store.getFolder(normalizedPattern);
+            if (f.exists()) {
+                result.add(f);
+            } else {
+                log.warn("IMAP: folder «{}» does not exist", pattern);
+            }
+            return result;
+        }
+
+        int lastSep = normalizedPattern.lastIndexOf(sep);
+        String parentPath;
+        String mask;
+        if (lastSep >= 0) {
+            parentPath = normalizedPattern.substring(0, lastSep);
+            mask = normalizedPattern.substring(lastSep + 1);
+        } else {
+            parentPath = "";
+            mask = normalizedPattern;
+        }
+
+        Folder parent = parentPath.isEmpty()
+                ? store.getDefaultFolder()
+                : store.getFolder(parentPath);
+
+        Folder[] matched = parent.list(mask);
+
+        if (matched != null) {
+            result.addAll(Arrays.asList(matched));
+        }
+
+        if (result.isEmpty()) {
+            log.warn("IMAP: no folders matched pattern «{}»", pattern);
+        }
+        return result;
+    }
+
     /** Повертає IMAP-порт відповідно до налаштованого режиму SSL.
      * @param config джерело налаштувань
      * @return {@code "993"} для SSL, інакше {@code "143"}
@@ -98,10 +240,12 @@ public final class MailMessageSupport {
      * @param withInReplyTo  якщо true, заголовок {@code In-Reply-To} переноситься (використовується
      *                       для парування START/END листів-алертів); листи-трапи парування не мають
      *                       і передають false, що зберігає порожній ключ
+     * @param maxBodyBytes   скільки байтів тіла {@code text/plain} читати щонайбільше
+     *                       ({@code mail.body.maxbytes}); решта не завантажується взагалі
      * @param logContext     коротке ім'я викликача для прив'язки попереджень до потрібного reader
      * @return сконвертоване повідомлення, або empty, якщо його не можна використати
      */
-    public static Optional<RawMessage> parseRawMessage(Message msg, boolean withInReplyTo,
+    public static Optional<RawMessage> parseRawMessage(Message msg, boolean withInReplyTo, int maxBodyBytes,
                                                        String logContext) {
         try {
             String[] dateHeaders = msg.getHeader("Date");
@@ -134,7 +278,7 @@ public final class MailMessageSupport {
             }
             String body;
             try {
-                body = extractText(msg);
+                body = extractText(msg, maxBodyBytes);
             } catch (MessagingException | IOException e) {
                 log.debug("{}: failed to get message body: {}", logContext, e.getMessage());
                 body = "";
@@ -153,35 +297,32 @@ public final class MailMessageSupport {
     }
 
     /**
-     * Видобуває текстове тіло з повідомлення. Повертає порожній рядок, якщо частину
-     * {@code text/plain} не знайдено або повідомлення має непідтримувану MIME-структуру.
-     */
-    private static String extractText(Message message) throws MessagingException, IOException {
-        if (message.isMimeType("text/plain")) {
-            return contentAsText(message.getContent());
-        }
-        if (message.isMimeType("multipart/*")) {
-            return extractText((Multipart) message.getContent());
-        }
-        return "";
-    }
-
-    /**
-     * Обходить дерево multipart углиб і повертає першу знайдену частину {@code text/plain}.
+     * Видобуває текстове тіло: першу частину {@code text/plain}, що не є вкладенням, не більше
+     * {@code maxBytes} байтів. Повертає порожній рядок, якщо такої частини немає.
      *
-     * <p>Рекурсія необхідна: повідомлення з вкладенням зазвичай має структуру
+     * <p>Обхід дерева multipart углиб необхідний: лист із вкладенням зазвичай має структуру
      * {@code multipart/mixed → multipart/alternative → text/plain}, і плоский прохід лише
      * верхнього рівня взагалі не знаходить частини {@code text/plain}, мовчки повертаючи
      * порожнє тіло — а для листа-трапу це означає повне відкидання трапу.
+     *
+     * <p>Тип частини визначається за {@code BODYSTRUCTURE}, уже завантаженою пакетним
+     * {@code FETCH}, тож вкладення й інші нетекстові частини не завантажуються зовсім — раніше
+     * {@code getContent()} викликався на кожній частині, щоб перевірити, чи не multipart вона.
+     * Текст читається потоком ({@link Part#getInputStream()} — уже декодований з
+     * base64/quoted-printable): {@code IMAPInputStream} тягне тіло блоками
+     * {@code mail.imap.fetchsize} (16 КіБ), тож на великій частині з сервера приходить лише
+     * потрібний початок, а не весь лист у {@code String}.
      */
-    private static String extractText(Multipart multipart) throws MessagingException, IOException {
-        for (int i = 0; i < multipart.getCount(); i++) {
-            BodyPart part = multipart.getBodyPart(i);
-            if (part.isMimeType("text/plain")) {
-                return contentAsText(part.getContent());
-            }
-            if (part.getContent() instanceof Multipart nested) {
-                String text = extractText(nested);
+    static String extractText(Part part, int maxBytes) throws MessagingException, IOException {
+        if (Part.ATTACHMENT.equalsIgnoreCase(part.getDisposition())) {
+            return "";
+        }
+        if (part.isMimeType("text/plain")) {
+            return readText(part, maxBytes);
+        }
+        if (part.isMimeType("multipart/*") && part.getContent() instanceof Multipart multipart) {
+            for (int i = 0; i < multipart.getCount(); i++) {
+                String text = extractText(multipart.getBodyPart(i), maxBytes);
                 if (!text.isEmpty()) {
                     return text;
                 }
@@ -190,15 +331,32 @@ public final class MailMessageSupport {
         return "";
     }
 
-    /** Нормалізує вміст MIME-частини в текст; частини {@code InputStream} читаються як UTF-8. */
-    private static String contentAsText(Object content) throws IOException {
-        return switch (content) {
-            case String s ->
-                s;
-            case InputStream is ->
-                new String(is.readAllBytes(), StandardCharsets.UTF_8);
-            default ->
-                "";
-        };
+    /**
+     * Читає щонайбільше {@code maxBytes} байтів частини й декодує їх за {@code charset} з
+     * {@code Content-Type} (UTF-8, якщо його не вказано чи JVM його не знає). Якщо межа розрізала
+     * багатобайтовий символ, його обрубок відкидається.
+     */
+    private static String readText(Part part, int maxBytes) throws MessagingException, IOException {
+        byte[] bytes;
+        try (InputStream in = part.getInputStream()) {
+            bytes = in.readNBytes(maxBytes);
+        }
+        String text = new String(bytes, charsetOf(part));
+        if (bytes.length == maxBytes && text.endsWith("\uFFFD")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        return text;
+    }
+
+    private static Charset charsetOf(Part part) {
+        try {
+            String name = new ContentType(part.getContentType()).getParameter("charset");
+            if (name != null) {
+                return Charset.forName(MimeUtility.javaCharset(name));
+            }
+        } catch (MessagingException | IllegalArgumentException e) {
+            // ParseException на кривому Content-Type, UnsupportedCharsetException — на невідомому
+        }
+        return StandardCharsets.UTF_8;
     }
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.imap;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import net.ukrcom.noczvit.SqliteSupport;
+
+/**
+ * Постійний кеш уже розібраних IMAP-повідомлень ({@link RawMessage}) на базі SQLite.
+ *
+ * <p>
+ * Повідомлення ідентифікується трійкою {@code (folder, uid_validity, uid)} — саме так
+ * IMAP (RFC 3501, §2.3.1.1) гарантує незмінність UID: доки {@code UIDVALIDITY} теки не
+ * змінився, той самий UID завжди означає той самий лист. Для кожної теки зберігається
+ * стан: поточний {@code UIDVALIDITY}, «висока вода» (найбільший UID, який уже оброблено)
+ * та нижня межа часу, з якої кеш гарантовано повний. Завдяки цьому {@link ImapReader}
+ * завантажує з сервера лише UID вище «високої води», а решту бере з диска.
+ *
+ * <p>
+ * Зміна {@code UIDVALIDITY} (теку перестворено чи відновлено з бекапу) означає, що всі
+ * збережені UID для неї втратили сенс — такі рядки видаляються при наступному
+ * {@link #store}.
+ *
+ * <p>
+ * DDL (застосовується при конструюванні):
+ * <pre>{@code
+ * CREATE TABLE IF NOT EXISTS imap_message_cache (
+ *     folder       TEXT    NOT NULL,
+ *     uid_validity INTEGER NOT NULL,
+ *     uid          INTEGER NOT NULL,
+ *     date_str     TEXT    NOT NULL,
+ *     unix_date    INTEGER NOT NULL,
+ *     subject      TEXT    NOT NULL,
+ *     body         TEXT    NOT NULL,
+ *     in_reply_to  TEXT    NOT NULL,
+ *     PRIMARY KEY (folder, uid_validity, uid)
+ * )
+ * CREATE TABLE IF NOT EXISTS imap_folder_state (
+ *     folder       TEXT    NOT NULL PRIMARY KEY,
+ *     uid_validity INTEGER NOT NULL,
+ *     high_uid     INTEGER NOT NULL,
+ *     covered_from INTEGER NOT NULL
+ * )
+ * }</pre>
+ */
+@Slf4j
+public class MessageCache {
+
+    private static final String DDL_MESSAGES = """
+            CREATE TABLE IF NOT EXISTS imap_message_cache (
+                folder       TEXT    NOT NULL,
+                uid_validity INTEGER NOT NULL,
+                uid          INTEGER NOT NULL,
+                date_str     TEXT    NOT NULL,
+                unix_date    INTEGER NOT NULL,
+                subject      TEXT    NOT NULL,
+                body         TEXT    NOT NULL,
+                in_reply_to  TEXT    NOT NULL,
+                PRIMARY KEY (folder, uid_validity, uid)
+            )
+            """;
+
+    private static final String DDL_STATE = """
+            CREATE TABLE IF NOT EXISTS imap_folder_state (
+                folder       TEXT    NOT NULL PRIMARY KEY,
+                uid_validity INTEGER NOT NULL,
+                high_uid     INTEGER NOT NULL,
+                covered_from INTEGER NOT NULL
+            )
+            """;
+
+    private static final String SELECT_STATE = """
+            SELECT uid_validity, high_uid, covered_from
+            FROM imap_folder_state
+            WHERE folder = ?
+            """;
+
+    private static final String SELECT_MESSAGES = """
+            SELECT date_str, unix_date, subject, body, in_reply_to
+            FROM imap_message_cache
+            WHERE folder = ? AND uid_validity = ? AND unix_date >= ? AND unix_date <= ?
+            ORDER BY uid
+            """;
+
+    private static final String UPSERT_MESSAGE = """
+            INSERT INTO imap_message_cache
+                (folder, uid_validity, uid, date_str, unix_date, subject, body, in_reply_to)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT(folder, uid_validity, uid) DO UPDATE SET
+                date_str    = excluded.date_str,
+                unix_date   = excluded.unix_date,
+                subject     = excluded.subject,
+                body        = excluded.body,
+                in_reply_to = excluded.in_reply_to
+            """;
+
+    private static final String UPSERT_STATE = """
+            INSERT INTO imap_folder_state (folder, uid_validity, high_uid, covered_from)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT(folder) DO UPDATE SET
+                uid_validity = excluded.uid_validity,
+                high_uid     = excluded.high_uid,
+                covered_from = excluded.covered_from
+            """;
+
+    private static final String DELETE_STALE_VALIDITY = """
+            DELETE FROM imap_message_cache WHERE folder = ? AND uid_validity <> ?
+            """;
+
+    private static final String DELETE_OLDER_THAN = """
+            DELETE FROM imap_message_cache WHERE folder = ? AND unix_date < ?
+            """;
+
+    /**
+     * Стан кешу однієї теки.
+     *
+     * @param uidValidity {@code UIDVALIDITY} теки на момент останнього збереження
+     * @param highUid     найбільший UID, уже врахований у кеші («висока вода»)
+     * @param coveredFrom unix-епоха, починаючи з якої кеш містить усі повідомлення теки
+     */
+    public record FolderState(long uidValidity, long highUid, long coveredFrom) {
+
+    }
+
+    private final String jdbcUrl;
+
+    /**
+     * Створює кеш та ініціалізує таблиці, якщо вони ще не існують.
+     *
+     * @param jdbcUrl JDBC URL файлу SQLite, наприклад
+     * {@code jdbc:sqlite:/var/lib/noczvit/imap-cache.db}
+     * @throws SQLException якщо базу даних неможливо відкрити або DDL завершується помилкою
+     */
+    public MessageCache(String jdbcUrl) throws SQLException {
+        this.jdbcUrl = jdbcUrl;
+        SqliteSupport.initialize(jdbcUrl, DDL_MESSAGES, DDL_STATE);
+        log.debug("MessageCache: tables checked/created in {}", jdbcUrl);
+    }
+
+    /**
+     * Повертає збережений стан теки, або {@code null}, якщо тека ще жодного разу не
+     * кешувалась.
+     *
+     * @param folder повне ім'я IMAP-теки
+     * @return стан теки, або {@code null}
+     * @throws SQLException якщо запит завершується помилкою
+     */
+    public FolderState state(String folder) throws SQLException {
+        try (Connection conn = SqliteSupport.connect(jdbcUrl); PreparedStatement ps = conn.prepareStatement(SELECT_STATE)) {
+            ps.setString(1, folder);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return new FolderState(rs.getLong("uid_validity"), rs.getLong("high_uid"),
+                            rs.getLong("covered_from"));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Повертає закешовані повідомлення теки з {@code unixDate} у межах
+     * {@code [fromEpoch, toEpoch]} (включно) у порядку зростання UID — тобто в тому самому
+     * порядку, в якому їх повернув би сервер.
+     *
+     * @param folder      повне ім'я IMAP-теки
+     * @param uidValidity поточний {@code UIDVALIDITY} теки
+     * @param fromEpoch   нижня межа unix-епохи (включно)
+     * @param toEpoch     верхня межа unix-епохи (включно)
+     * @return повідомлення з кешу; ніколи не null
+     * @throws SQLException якщо запит завершується помилкою
+     */
+    public List<RawMessage> load(String folder, long uidValidity, long fromEpoch, long toEpoch) throws SQLException {
+        List<RawMessage> result = new ArrayList<>();
+        try (Connection conn = SqliteSupport.connect(jdbcUrl); PreparedStatement ps = conn.prepareStatement(SELECT_MESSAGES)) {
+            ps.setString(1, folder);
+            ps.setLong(2, uidValidity);
+            ps.setLong(3, fromEpoch);
+            ps.setLong(4, toEpoch);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(new RawMessage(
+                            rs.getString("date_str"),
+                            rs.getLong("unix_date"),
+                            rs.getString("subject"),
+                            rs.getString("body"),
+                            rs.getString("in_reply_to")));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Атомарно (однією транзакцією) зберігає нові повідомлення теки й оновлює її стан.
+     *
+     * <p>
+     * Рядки з іншим {@code UIDVALIDITY} видаляються, так само як і рядки з {@code unixDate}
+     * раніше за {@code state.coveredFrom()} — вони вже не потраплять у жодне звітне вікно,
+     * а без обрізання файл ріс би безмежно.
+     *
+     * @param folder   повне ім'я IMAP-теки
+     * @param state    новий стан теки
+     * @param messages нові повідомлення, UID → розібране повідомлення
+     * @throws SQLException якщо запис завершується помилкою (транзакція відкочується)
+     */
+    public void store(String folder, FolderState state, Map<Long, RawMessage> messages) throws SQLException {
+        try (Connection conn = SqliteSupport.connect(jdbcUrl)) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(DELETE_STALE_VALIDITY)) {
+                    ps.setString(1, folder);
+                    ps.setLong(2, state.uidValidity());
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(DELETE_OLDER_THAN)) {
+                    ps.setString(1, folder);
+                    ps.setLong(2, state.coveredFrom());
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(UPSERT_MESSAGE)) {
+                    for (Map.Entry<Long, RawMessage> e : messages.entrySet()) {
+                        RawMessage m = e.getValue();
+                        ps.setString(1, folder);
+                        ps.setLong(2, state.uidValidity());
+                        ps.setLong(3, e.getKey());
+                        ps.setString(4, m.dateStr());
+                        ps.setLong(5, m.unixDate());
+                        ps.setString(6, m.subject());
+                        ps.setString(7, m.body());
+                        ps.setString(8, m.inReplyTo());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(UPSERT_STATE)) {
+                    ps.setString(1, folder);
+                    ps.setLong(2, state.uidValidity());
+                    ps.setLong(3, state.highUid());
+                    ps.setLong(4, state.coveredFrom());
+                    ps.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            log.debug("MessageCache: stored {} new messages for «{}» (highUid={})",
+                    messages.size(), folder, state.highUid());
+        }
+    }
+}
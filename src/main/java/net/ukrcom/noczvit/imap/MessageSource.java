@@ -0,0 +1,42 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.imap;
+
+import jakarta.mail.MessagingException;
+import java.util.List;
+
+/**
+ * Джерело сирих повідомлень для одного розділу звіту (листи Zabbix, трапи Emerson, трапи RAMOS).
+ *
+ * <p>У разовому (cron) режимі реалізацію дає IMAP-читач ({@link ImapReader#readMessages},
+ * {@code trap.ImapTrapReader}), у режимі {@code --daemon} — {@code daemon.MessageBuffer},
+ * який уже тримає в пам'яті листи, що надійшли через IMAP IDLE. Споживачі
+ * ({@link Client}, секції трапів у {@code NOCZvit}) не розрізняють ці два випадки.
+ */
+@FunctionalInterface
+public interface MessageSource {
+
+    /**
+     * Повертає повідомлення за період. Як і {@code SEARCH} у {@link ImapReader#dateRangeTerm},
+     * межі можуть бути розширені — точне обрізання за секундами робить викликач.
+     *
+     * @param fetchAll  коли true, повертає всі доступні повідомлення незалежно від дати
+     * @param fromEpoch нижня межа unix-епохи (включно)
+     * @param toEpoch   верхня межа unix-епохи (включно)
+     * @return сирі повідомлення; ніколи не null
+     * @throws MessagingException при помилках IMAP
+     */
+    List<RawMessage> read(boolean fetchAll, long fromEpoch, long toEpoch) throws MessagingException;
+}
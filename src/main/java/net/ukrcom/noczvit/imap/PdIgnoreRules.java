@@ -0,0 +1,77 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.imap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Правила пропуску тем PD-алертів (IVR, SDH-OSM, console, UVPN, паровані host-port тощо) з
+ * властивості {@code pd.ignore}, скомпільовані один раз на запуск.
+ *
+ * <p>Кожне правило — або підрядок (тема його містить), або регулярний вираз із префіксом
+ * {@code ~}, який шукається будь-де в темі ({@link java.util.regex.Matcher#find}). Раніше список
+ * був зашитий у {@code PdIncidentParser.isIgnored}, а обидві регулярки компілювались заново на
+ * кожен лист; тепер нове правило — це рядок у {@code noczvit.properties}, а не реліз.
+ *
+ * <p>Некоректний регулярний вираз не зупиняє звіт: правило пропускається з попередженням у
+ * лозі — зайвий рядок у таблиці інцидентів кращий за відсутній звіт.
+ */
+@Slf4j
+final class PdIgnoreRules {
+
+    private static final String REGEX_PREFIX = "~";
+
+    private final List<String> substrings = new ArrayList<>();
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    /**
+     * @param rules правила з {@code pd.ignore}: підрядки або {@code ~регулярка}
+     */
+    PdIgnoreRules(List<String> rules) {
+        for (String rule : rules) {
+            if (rule.startsWith(REGEX_PREFIX)) {
+                try {
+                    patterns.add(Pattern.compile(rule.substring(REGEX_PREFIX.length())));
+                } catch (PatternSyntaxException e) {
+                    log.warn("pd.ignore: skipping invalid regex «{}»: {}", rule, e.getDescription());
+                }
+            } else {
+                substrings.add(rule);
+            }
+        }
+    }
+
+    /**
+     * @param subject тема листа
+     * @return {@code true}, якщо тему слід мовчки пропустити
+     */
+    boolean matches(String subject) {
+        for (String s : substrings) {
+            if (subject.contains(s)) {
+                return true;
+            }
+        }
+        for (Pattern p : patterns) {
+            if (p.matcher(subject).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
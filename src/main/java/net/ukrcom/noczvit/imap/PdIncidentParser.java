@@ -32,12 +32,17 @@ import net.ukrcom.noczvit.model.IncidentDescriptions;
 public class PdIncidentParser {
 
     private static final Pattern DEVICE_PREFIX_PATTERN = Pattern.compile("^(?:[rsp]|(?:ies\\d?|alca)-)");
-    private static final String PATTERN_ORIGINALFROMNAME = ":$";
 
     private final Dictionary dictionary;
+    private final PdIgnoreRules ignoreRules;
 
-    public PdIncidentParser(Dictionary dictionary) {
+    /**
+     * @param dictionary  спільний словник
+     * @param ignoreRules правила пропуску тем з {@code pd.ignore} ({@link PdIgnoreRules})
+     */
+    public PdIncidentParser(Dictionary dictionary, List<String> ignoreRules) {
         this.dictionary = dictionary;
+        this.ignoreRules = new PdIgnoreRules(ignoreRules);
     }
 
     /**
@@ -49,26 +54,24 @@ public class PdIncidentParser {
     public Optional<Incident> parse(RawMessage msg) {
         String subject = msg.subject();
 
-        if (isIgnored(subject)) {
+        if (ignoreRules.matches(subject)) {
             return Optional.empty();
         }
 
-        String[] parts = subject.split("\\s+");
-        String from = parts.length > 2 ? parts[2] : "";
-        String type = parts.length > 5 ? parts[5] : "";
+        String from = token(subject, 2);
+        String type = token(subject, 5);
 
         if (subject.contains(" Resolved:") && "been".equals(type)) {
             return Optional.empty();
         }
 
-        String originalFromName = from.replaceAll(PATTERN_ORIGINALFROMNAME, "");
+        String originalFromName = from.endsWith(":") ? from.substring(0, from.length() - 1) : from;
 
         if (from.endsWith(":")) {
-            if (!from.matches(".*-\\d+:$")) {
+            if (!hasNumericSuffix(from, from.length() - 1)) {
                 from = from.replace(":", "-65535:");
             }
-            String[] fromParts = from.split(":");
-            String fromName = fromParts[0];
+            String fromName = from.substring(0, from.indexOf(':'));
             // ВІДОМА ОСОБЛИВІСТЬ (свідомо не виправлено): якщо fromObject після цього зняття
             // сам починається з r/s/p чи ies*/alca- (напр. "ssks-2" → "sks-2"), Dictionary.resolvePD
             // знову зніме префікс і суфікс — подвійне зняття. У наявному словнику це рятує
@@ -76,8 +79,8 @@ public class PdIncidentParser {
             // префіксом), тож на реальних даних хибного результату не спостерігалось. Ризик
             // теоретичний: спрацював би, лише якби подвійно-зрізаний залишок випадково збігався
             // з ІНШИМ записом словника (тоді fallback узагалі не викликається).
-            String fromObject = fromName.matches(".*-\\d+$")
-                                ? fromName.replaceAll(DEVICE_PREFIX_PATTERN.pattern(), "")
+            String fromObject = hasNumericSuffix(fromName, fromName.length())
+                                ? DEVICE_PREFIX_PATTERN.matcher(fromName).replaceFirst("")
                                 : fromName;
             Dictionary.Resolution resolved = dictionary.resolvePD(fromObject);
             boolean needsReview = resolved.needsReview();
@@ -116,15 +119,55 @@ public class PdIncidentParser {
     }
 
     /**
-     * Повертає {@code true} для тем, які слід мовчки пропускати (IVR, SDH-OSM,
-     * console, UVPN, паровані патерни host-port тощо).
+     * Токен {@code index} теми так, як його дав би {@code subject.split("\\s+")[index]} (або
+     * {@code ""}, якщо токенів менше), — без регулярки й без масиву всіх токенів. Як і
+     * {@code split}, пробіл на початку теми дає порожній нульовий токен.
+     */
+    static String token(String subject, int index) {
+        int n = subject.length();
+        int pos = 0;
+        int current = 0;
+        if (n > 0 && isSplitSpace(subject.charAt(0))) {
+            if (index == 0) {
+                return "";
+            }
+            current = 1;
+        }
+        while (pos < n && isSplitSpace(subject.charAt(pos))) {
+            pos++;
+        }
+        while (pos < n) {
+            int end = pos;
+            while (end < n && !isSplitSpace(subject.charAt(end))) {
+                end++;
+            }
+            if (current == index) {
+                return subject.substring(pos, end);
+            }
+            current++;
+            pos = end;
+            while (pos < n && isSplitSpace(subject.charAt(pos))) {
+                pos++;
+            }
+        }
+        return "";
+    }
+
+    /** Символи класу {@code \s} регулярок Java (без {@code UNICODE_CHARACTER_CLASS}). */
+    private static boolean isSplitSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Чи закінчується {@code s[0, end)} на {@code -<цифри>} — замінює {@code matches(".*-\\d+")}
+     * без компіляції патерну на кожен лист.
      */
-    private boolean isIgnored(String subject) {
-        return subject.contains("IVR") || subject.contains("TELEVIEV") || subject.contains("Z-SQL")
-                || subject.contains("UVPN") || subject.contains("SDH-OSM") || subject.contains("astashov")
-                || subject.contains("console")
-                || subject.matches(".*[dm]: NS\\d?.*")
-                || (subject.matches(".*: [ap][^:]+: [ap][^:]+ has.*") && !subject.contains("alca"));
+    static boolean hasNumericSuffix(String s, int end) {
+        int i = end;
+        while (i > 0 && s.charAt(i - 1) >= '0' && s.charAt(i - 1) <= '9') {
+            i--;
+        }
+        return i < end && i > 0 && s.charAt(i - 1) == '-';
     }
 
     /**
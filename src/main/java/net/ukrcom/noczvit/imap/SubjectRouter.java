@@ -0,0 +1,137 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.imap;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Визначає за темою листа Zabbix, який парсер інцидентів його обробляє.
+ *
+ * <p>Раніше {@link Client} перевіряв тему чотирма послідовними викликами: два
+ * {@code String.matches} з інлайн-регулярками (компіляція патерну на кожен лист), а для OSM рядок
+ * регулярки ще й збирався заново щоразу. Тепер усі ключові фрагменти зібрано в одну
+ * альтернацію, скомпільовану один раз на запуск, і тема проходиться нею за один прохід. Знайдені
+ * фрагменти складаються в бітову маску, з якої маршрут обирається за тим самим пріоритетом, що й
+ * старий ланцюжок {@code if/else}: PD → OSPF → adlink → OSM.
+ *
+ * <p>Після кожного збігу пошук продовжується з наступного символу, а не з кінця збігу, тож
+ * фрагмент, що починається всередині іншого, не губиться — маска та сама, що дали б чотири
+ * окремі перевірки. Теми вже розгорнуті ({@code MimeMessage.getSubject} знімає переноси
+ * заголовка), тож {@code find} тут рівносильний старому {@code matches(".*….*")}.
+ */
+final class SubjectRouter {
+
+    /** Парсер, якому належить лист. */
+    enum Route {
+        /** {@link PdIncidentParser}: ICMP-ping або перезавантаження пристрою. */
+        PD,
+        /** {@link OspfIncidentParser}: зміна стану сусіда OSPF. */
+        OSPF,
+        /** {@link AdlinkIncidentParser}: сухий контакт Zabbix. */
+        ADLINK,
+        /** {@link OsmIncidentParser}: втрата живлення SDH/OSM або канал STM. */
+        OSM,
+        /** Тема не належить жодному парсеру. */
+        NONE
+    }
+
+    // Номери груп у KEYWORDS; біт маски — 1 << номер групи
+    private static final int PD = 1;
+    private static final int OSPF = 2;
+    private static final int ADLINK = 3;
+    private static final int FAULT = 4;
+    private static final int OSM = 5;
+
+    private static final String KEYWORDS = "(Unavailable by ICMP ping|has been restarted)"
+            + "|(ospfNbrStateChange)"
+            + "|(adlink)"
+            + "|(- Fault)"
+            + "|([Pp][Oo][Ww][Ee][Rr]|STM [Ss][Tt][Mm].?[%s])";
+
+    private final Pattern keywords;
+
+    /**
+     * @param debug у режимі debug до OSM зараховуються й алерти STM-1
+     */
+    SubjectRouter(boolean debug) {
+        this.keywords = Pattern.compile(KEYWORDS.formatted(debug ? "1-9" : "2-9"));
+    }
+
+    /**
+     * @param subject тема листа
+     * @return парсер за пріоритетом PD → OSPF → adlink → OSM або {@link Route#NONE}
+     */
+    Route route(String subject) {
+        int mask = scan(subject);
+        if (has(mask, PD)) {
+            return Route.PD;
+        }
+        if (has(mask, OSPF)) {
+            return Route.OSPF;
+        }
+        if (isAdlink(mask)) {
+            return Route.ADLINK;
+        }
+        if (has(mask, OSM)) {
+            return Route.OSM;
+        }
+        return Route.NONE;
+    }
+
+    /**
+     * Чи має тема ознаки маршруту {@code route} незалежно від пріоритету — так, як перевіряли
+     * старі {@code Client.isXxxMessage}. Потрібно дедуплікації adlink, яка дивиться лише на
+     * ознаки adlink.
+     *
+     * @param subject тема листа
+     * @param route   маршрут, крім {@link Route#NONE}
+     * @return {@code true}, якщо тема містить ознаки цього маршруту
+     */
+    boolean matches(String subject, Route route) {
+        int mask = scan(subject);
+        return switch (route) {
+            case PD -> has(mask, PD);
+            case OSPF -> has(mask, OSPF);
+            case ADLINK -> isAdlink(mask);
+            case OSM -> has(mask, OSM);
+            case NONE -> throw new IllegalArgumentException("NONE is not a matchable route");
+        };
+    }
+
+    private int scan(String subject) {
+        Matcher m = keywords.matcher(subject);
+        int mask = 0;
+        int from = 0;
+        while (from < subject.length() && m.find(from)) {
+            for (int group = PD; group <= OSM; group++) {
+                if (m.start(group) >= 0) {
+                    mask |= 1 << group;
+                    break;
+                }
+            }
+            from = m.start() + 1;
+        }
+        return mask;
+    }
+
+    private static boolean has(int mask, int group) {
+        return (mask & (1 << group)) != 0;
+    }
+
+    private static boolean isAdlink(int mask) {
+        return has(mask, ADLINK) && has(mask, FAULT);
+    }
+}
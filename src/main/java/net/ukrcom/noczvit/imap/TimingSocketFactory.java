@@ -0,0 +1,129 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.imap;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Обгортка над стандартною {@link SSLSocketFactory}, що фіксує моменти початку й завершення
+ * TLS-рукостискання для {@link ImapStorePool}.
+ *
+ * <p>jakarta.mail ({@code SocketFetcher}) з фабрикою з {@code mail.imaps.ssl.socketFactory}
+ * сам створює й з'єднує звичайний TCP-сокет, а потім накладає на нього TLS через
+ * {@link #createSocket(Socket, String, int, boolean)} і одразу викликає {@code startHandshake()}.
+ * Тож цей виклик відділяє DNS + TCP від TLS, а слухач завершення рукостискання — TLS від
+ * решти {@code store.connect()} (привітання сервера, {@code CAPABILITY}, {@code LOGIN}).
+ *
+ * <p>Заміри прив'язуються до потоку, що викликає {@code connect()}, через {@link #begin()} —
+ * слухач JDK викликається на окремому потоці, тож {@link Marks} захоплюється в замиканні.
+ */
+final class TimingSocketFactory extends SSLSocketFactory {
+
+    /** Позначки часу ({@link System#nanoTime()}) одного підключення; {@link #UNSET} — подія ще не відбулась. */
+    static final class Marks {
+
+        /** Позначка відсутня. Не {@code -1}: {@link System#nanoTime()} може бути від'ємним. */
+        static final long UNSET = Long.MIN_VALUE;
+
+        private volatile long tlsStarted = UNSET;
+        private volatile long tlsCompleted = UNSET;
+
+        /** @return момент накладання TLS на з'єднаний TCP-сокет, або {@link #UNSET} */
+        long tlsStarted() {
+            return tlsStarted;
+        }
+
+        /**
+         * @return момент завершення рукостискання, або {@link #UNSET}, якщо його не спостерігали
+         *         (не-SSL режим або слухач JDK ще не спрацював)
+         */
+        long tlsCompleted() {
+            return tlsCompleted;
+        }
+    }
+
+    private static final ThreadLocal<Marks> CURRENT = new ThreadLocal<>();
+
+    private final SSLSocketFactory delegate = (SSLSocketFactory) SSLSocketFactory.getDefault();
+
+    /**
+     * Починає заміри для підключення на поточному потоці.
+     *
+     * @return позначки, які заповнить це підключення
+     */
+    static Marks begin() {
+        Marks marks = new Marks();
+        CURRENT.set(marks);
+        return marks;
+    }
+
+    /** Завершує заміри на поточному потоці. */
+    static void end() {
+        CURRENT.remove();
+    }
+
+    @Override
+    public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+        Marks marks = CURRENT.get();
+        if (marks != null) {
+            marks.tlsStarted = System.nanoTime();
+        }
+        SSLSocket socket = (SSLSocket) delegate.createSocket(s, host, port, autoClose);
+        if (marks != null) {
+            socket.addHandshakeCompletedListener(e -> marks.tlsCompleted = System.nanoTime());
+        }
+        return socket;
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return delegate.createSocket();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return delegate.createSocket(host, port, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+        return delegate.createSocket(address, port, localAddress, localPort);
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.imap;
+
+import com.sun.mail.imap.IMAPFolder;
+import jakarta.mail.FetchProfile;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.UIDFolder;
+import jakarta.mail.search.SearchTerm;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Дочитування IMAP-теки за «високою водою» UID: при першому читанні (чи зміні
+ * {@code UIDVALIDITY}) — {@code SEARCH} за датами, далі — лише {@code UID FETCH <висока вода + 1>:*}.
+ * Сховище прочитаних листів — справа викликача: {@link ImapReader} тримає їх у
+ * {@link MessageCache} на диску, {@code daemon.MailboxWatcher} — у пам'яті.
+ *
+ * <p>Після повного читання позначка — {@code UIDNEXT − 1}, узятий <em>до</em> {@code SEARCH}:
+ * листи з меншим UID, що не потрапили в {@code SEARCH}, мають дату поза вікном і вже не
+ * знадобляться, а лист, що прийшов, поки йшли {@code SEARCH} і {@code FETCH}, отримує UID не
+ * менший за цей {@code UIDNEXT} і дочитується наступним проходом. Якби {@code UIDNEXT} брався
+ * після {@code FETCH}, такий лист опинився б нижче позначки й не потрапив би нікуди.
+ *
+ * <p>Діапазон {@code n:*} за RFC 3501 завжди містить останній лист теки, навіть якщо його UID
+ * менший за {@code n}, тож уже прочитаний лист повертається знову — такий відкидається.
+ */
+public final class UidSync {
+
+    /**
+     * «Висока вода» теки.
+     *
+     * @param uidValidity {@code UIDVALIDITY} теки, до якого належать UID
+     * @param highUid     UID, до якого (включно) тека вже прочитана
+     */
+    public record Mark(long uidValidity, long highUid) {
+    }
+
+    /**
+     * Результат одного проходу.
+     *
+     * @param incremental {@code false} — тека прочитана заново, і все, що викликач тримав для неї
+     *                    раніше, застаріло
+     * @param mark        нова позначка
+     * @param messages    нові листи за UID, у порядку отримання
+     */
+    public record Result(boolean incremental, Mark mark, Map<Long, RawMessage> messages) {
+    }
+
+    private UidSync() {
+    }
+
+    /**
+     * Дочитує відкриту теку від позначки {@code previous}.
+     *
+     * @param folder        відкрита тека
+     * @param previous      позначка попереднього проходу; {@code null} — читати заново
+     * @param coldSearch    {@code SEARCH} для повного читання
+     * @param withInReplyTo чи переносити заголовок {@code In-Reply-To}
+     * @param maxBodyBytes  межа тіла {@code text/plain} ({@code mail.body.maxbytes})
+     * @param logContext    мітка викликача для попереджень розбору
+     * @return нові листи й позначка
+     * @throws MessagingException при помилках IMAP
+     */
+    public static Result sync(IMAPFolder folder, Mark previous, SearchTerm coldSearch, boolean withInReplyTo,
+                              int maxBodyBytes, String logContext) throws MessagingException {
+        long uidValidity = folder.getUIDValidity();
+        boolean incremental = previous != null && previous.uidValidity() == uidValidity;
+
+        Message[] messages;
+        long uidNext = 0;
+        if (incremental) {
+            messages = folder.getMessagesByUID(previous.highUid() + 1, UIDFolder.MAXUID);
+        } else {
+            uidNext = folder.getUIDNext();
+            messages = folder.search(coldSearch);
+        }
+        // Той самий пакетний FETCH, що й у MailMessageSupport.fetchAndParse, плюс UID.
+        FetchProfile profile = MailMessageSupport.messageProfile(withInReplyTo);
+        profile.add(UIDFolder.FetchProfileItem.UID);
+
+        long highUid = incremental ? previous.highUid() : 0;
+        Map<Long, RawMessage> fresh = new LinkedHashMap<>();
+        for (Message[] chunk : MailMessageSupport.chunks(messages)) {
+            folder.fetch(chunk, profile);
+            for (Message msg : chunk) {
+                long uid = folder.getUID(msg);
+                if (incremental && uid <= previous.highUid()) {
+                    continue;
+                }
+                highUid = Math.max(highUid, uid);
+                MailMessageSupport.parseRawMessage(msg, withInReplyTo, maxBodyBytes, logContext)
+                        .ifPresent(m -> fresh.put(uid, m));
+            }
+        }
+        // Листи з UID ≥ uidNext, які вже встиг повернути SEARCH, прочитаються ще раз — під тим
+        // самим UID, тож сховище викликача їх лише перезапише.
+        if (uidNext > 0) {
+            highUid = uidNext - 1;
+        }
+        return new Result(incremental, new Mark(uidValidity, highUid), fresh);
+    }
+}
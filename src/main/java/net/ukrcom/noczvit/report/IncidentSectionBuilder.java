@@ -240,6 +240,8 @@ public class IncidentSectionBuilder {
         if (pingDevices.isEmpty()) {
             return;
         }
+        // hostid і graphid усіх пристроїв — двома запитами до API, далі потоки качають лише PNG
+        zabbix.prefetchPingGraphs(pingDevices);
         try (var pingExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
             List<CompletableFuture<String>> futures = pingDevices.stream()
                     .map(device -> CompletableFuture.supplyAsync(
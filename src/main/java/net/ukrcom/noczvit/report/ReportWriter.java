@@ -0,0 +1,133 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.report;
+
+import jakarta.activation.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * HTML звіту, що складається посекційно: кожна секція дописується у тимчасовий файл, а
+ * {@code EmailSender} читає тіло листа з файлу потоком ({@link #toDataSource()}).
+ *
+ * <p>Раніше весь звіт — CSS, усі секції та base64-графіки — накопичувався в одному
+ * {@code StringBuilder}, потім копіювався {@code toString()} і вже цілим рядком ішов у
+ * {@code MimeBodyPart}: пік пам'яті був близько трьох розмірів звіту. Тепер цілий звіт у
+ * пам'яті не збирається й не копіюється. Секції, що будуються паралельно у фазі ініціалізації,
+ * живуть до кінця складання, тож пік — це вони разом плюс секція, яка саме будується (зазвичай
+ * таблиця інцидентів із графіками). Файл, а не відкладена побудова секцій під час запису MIME, —
+ * щоб будь-яка помилка секції траплялася ще до запуску {@code sendmail}, а не обривала
+ * напівнадісланий лист.
+ *
+ * <p>Не потокобезпечний: секції дописуються з одного потоку, в порядку звіту.
+ */
+@Slf4j
+public final class ReportWriter implements Closeable {
+
+    private final Path file;
+    private final Writer out;
+    private long chars;
+    private boolean finished;
+
+    /**
+     * Створює тимчасовий файл звіту.
+     *
+     * @throws IOException якщо файл неможливо створити
+     */
+    public ReportWriter() throws IOException {
+        file = Files.createTempFile("noczvit-report", ".html");
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Дописує секцію звіту.
+     *
+     * @param html HTML-фрагмент; {@code null} чи порожній рядок пропускаються
+     * @return цей самий writer
+     * @throws IOException якщо запис у файл не вдався
+     */
+    public ReportWriter append(String html) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("report already finished");
+        }
+        if (html != null && !html.isEmpty()) {
+            out.write(html);
+            chars += html.length();
+        }
+        return this;
+    }
+
+    /** @return скільки символів HTML уже записано */
+    public long length() {
+        return chars;
+    }
+
+    /**
+     * Завершує запис і повертає тіло звіту як джерело для {@code MimeBodyPart}; кожен виклик
+     * {@link DataSource#getInputStream()} читає файл заново.
+     *
+     * @return HTML звіту в UTF-8
+     * @throws IOException якщо файл не вдалося дописати
+     */
+    public DataSource toDataSource() throws IOException {
+        if (!finished) {
+            out.close();
+            finished = true;
+        }
+        return new DataSource() {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return Files.newInputStream(file);
+            }
+
+            @Override
+            public OutputStream getOutputStream() throws IOException {
+                throw new IOException("report is read-only");
+            }
+
+            @Override
+            public String getContentType() {
+                return "text/html; charset=UTF-8";
+            }
+
+            @Override
+            public String getName() {
+                return "report.html";
+            }
+        };
+    }
+
+    /** Закриває й видаляє тимчасовий файл; помилка видалення лише логується. */
+    @Override
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.debug("ReportWriter: close failed: {}", e.getMessage());
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("ReportWriter: failed to delete {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -14,21 +14,32 @@
  */
 package net.ukrcom.noczvit.smtp;
 
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.sun.mail.smtp.SMTPSenderFailedException;
+import com.sun.mail.smtp.SMTPTransport;
+import jakarta.activation.DataHandler;
+import jakarta.activation.DataSource;
+import jakarta.mail.AuthenticationFailedException;
 import jakarta.mail.Authenticator;
 import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
 import jakarta.mail.Multipart;
+import jakarta.mail.Part;
 import jakarta.mail.PasswordAuthentication;
 import jakarta.mail.Session;
+import jakarta.mail.URLName;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeBodyPart;
 import jakarta.mail.internet.MimeMessage;
 import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
@@ -39,16 +50,39 @@ import net.ukrcom.noczvit.Config;
 
 /**
  * Надсилає лист зі звітом у HTML, передаючи серіалізоване MIME-повідомлення через канал у
- * системний бінарник {@code sendmail} (або через SMTP у режимі debug).
+ * системний бінарник {@code sendmail} або, при {@code email.transport=smtp}, напряму на
+ * SMTP-сервер {@code mail.hostname}.
  *
  * <p>Запис повідомлення та читання з каналу виконуються в окремих віртуальних потоках, щоб
  * уникнути дедлоку, який стався б, якби буфер каналу заповнився до того, як процес почав читати.
+ *
+ * <p>Графіки, передані окремо від HTML ({@code zabbix.graph.cid}), стають частинами
+ * {@code multipart/related} з {@code Content-ID}, на які HTML посилається через {@code cid:}.
+ * PNG кодується в base64 один раз — під час запису MIME у канал, — а не спершу в data URI
+ * всередині HTML і вдруге разом з усім тілом листа.
+ *
+ * <p>Режим SMTP не запускає окремий процес і не залежить від локального MTA: лист передається
+ * однією транзакцією на одному з'єднанні — {@code MAIL FROM}, усі {@code RCPT TO} підряд і один
+ * {@code DATA}, — а тимчасові збої (обрив з'єднання, відповіді 4xx) повторюються з
+ * експоненційною затримкою. Постійні відмови (5xx, помилка автентифікації) не повторюються.
+ * Обрив після того, як тіло листа разом із завершальною крапкою вже передано, теж не
+ * повторюється: сервер міг прийняти лист, і повтор дав би дублікат звіту.
  */
 @Slf4j
 public class EmailSender {
 
+    /** Скільки разів пробувати доставку через SMTP, враховуючи першу спробу. */
+    static final int SMTP_ATTEMPTS = 3;
+
+    /** Затримка перед другою спробою; далі подвоюється. */
+    static final long SMTP_BACKOFF_MILLIS = 5_000;
+
+    private static final int SMTP_CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int SMTP_IO_TIMEOUT_MILLIS = 60_000;
+
     private final Config config;
     private final String version;
+    private final long backoffMillis;
 
     /**
      * Створює відправник і зчитує версію проекту з вбудованого ресурсу
@@ -58,7 +92,13 @@ public class EmailSender {
      * @throws IOException якщо {@code version.properties} відсутній у classpath
      */
     public EmailSender(Config config) throws IOException {
+        this(config, SMTP_BACKOFF_MILLIS);
+    }
+
+    /** Для тестів: з коротшою затримкою між спробами SMTP. */
+    EmailSender(Config config, long backoffMillis) throws IOException {
         this.config = config;
+        this.backoffMillis = backoffMillis;
         Properties versionProps = new Properties();
         try (InputStream input = getClass().getClassLoader().getResourceAsStream("version.properties")) {
             if (input == null) {
@@ -70,7 +110,7 @@ public class EmailSender {
     }
 
     /**
-     * Формує MIME-лист і доставляє його через sendmail.
+     * Формує MIME-лист і доставляє його через sendmail або SMTP ({@code email.transport}).
      *
      * <p>У режимі debug лист іде лише на {@code emailToDebug}. На завершення процесу sendmail
      * відводиться 30 секунд; при перевищенні таймауту процес примусово завершується і кидається
@@ -78,50 +118,51 @@ public class EmailSender {
      *
      * @param subject     тема листа
      * @param messageHtml повне тіло листа у HTML
-     * @throws MessagingException якщо MIME-повідомлення не вдалося побудувати чи серіалізувати
+     * @throws MessagingException якщо MIME-повідомлення не вдалося побудувати чи серіалізувати,
+     *                            або SMTP-сервер остаточно відмовив у доставці
      * @throws IOException        якщо sendmail не вдалося запустити, стався таймаут або переривання
      */
     public void sendReport(String subject, String messageHtml) throws MessagingException, IOException {
-        Properties props = new Properties();
-        props.put("mail.smtp.host", config.getMailHostname());
-        props.put("mail.smtp.port", "25");
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.mime.charset", "UTF-8");
-
-        Session session = Session.getInstance(props, new Authenticator() {
-            @Override
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(config.getMailUsername(), config.getMailPassword());
-            }
-        });
-
-        MimeMessage message = new MimeMessage(session);
-        message.setFrom(new InternetAddress(config.getEmailFrom()));
-        message.setReplyTo(new InternetAddress[]{new InternetAddress(config.getEmailReplyTo())});
-
-        if (config.isDebug()) {
-            message.addRecipient(Message.RecipientType.TO, new InternetAddress(config.getEmailToDebug()));
-        } else {
-            for (String to : config.getEmailTo()) {
-                message.addRecipient(Message.RecipientType.TO, new InternetAddress(to));
-            }
-        }
-
-        message.setSubject(subject, "UTF-8");
-
         MimeBodyPart htmlPart = new MimeBodyPart();
         htmlPart.setContent(messageHtml, "text/html; charset=UTF-8");
-        htmlPart.setHeader("Content-Transfer-Encoding", "base64");
-
-        Multipart multipart = new MimeMultipart();
-        multipart.addBodyPart(htmlPart);
+        log.debug("Message size: {} bytes", messageHtml.length());
+        send(subject, htmlPart, Map.of());
+    }
 
-        message.setContent(multipart);
-        message.setHeader("X-PoweredBy", "NOCZvit v" + version);
+    /**
+     * Те саме, що {@link #sendReport(String, String)}, але HTML читається потоком з
+     * {@code html} під час запису MIME у канал sendmail — цілим рядком у пам'яті він не буває.
+     * Графіки, на які HTML посилається через {@code cid:}, вкладаються частинами
+     * {@code multipart/related}.
+     *
+     * @param subject      тема листа
+     * @param html         тіло листа у HTML, наприклад {@code ReportWriter.toDataSource()}
+     * @param inlineImages Content-ID (без кутових дужок) → PNG; порожньо — лист без вкладень
+     * @throws MessagingException якщо MIME-повідомлення не вдалося побудувати чи серіалізувати
+     * @throws IOException        якщо sendmail не вдалося запустити, стався таймаут або переривання
+     */
+    public void sendReport(String subject, DataSource html, Map<String, byte[]> inlineImages)
+            throws MessagingException, IOException {
+        MimeBodyPart htmlPart = new MimeBodyPart();
+        htmlPart.setDataHandler(new DataHandler(html));
+        log.debug("Message: {} inline images ({} bytes)", inlineImages.size(),
+                inlineImages.values().stream().mapToLong(png -> png.length).sum());
+        send(subject, htmlPart, inlineImages);
+    }
 
+    private void send(String subject, MimeBodyPart htmlPart, Map<String, byte[]> inlineImages)
+            throws MessagingException, IOException {
+        MimeMessage message = buildMessage(subject, htmlPart, inlineImages);
         log.debug("Subject: {}", subject);
-        log.debug("Message size: {} bytes", messageHtml.length());
 
+        if ("smtp".equals(config.getEmailTransport())) {
+            sendSmtp(message);
+        } else {
+            sendmail(message);
+        }
+    }
+
+    private void sendmail(MimeMessage message) throws MessagingException, IOException {
         try (var executor = Executors.newVirtualThreadPerTaskExecutor(); PipedInputStream in = new PipedInputStream(); PipedOutputStream out = new PipedOutputStream(in)) {
 
             Future<?> writerFuture = executor.submit(() -> {
@@ -169,4 +210,175 @@ public class EmailSender {
             throw new IOException("Interrupted while sending email", e);
         }
     }
+
+    /**
+     * Доставляє лист напряму на SMTP-сервер: одне з'єднання, одна транзакція для всіх
+     * адресатів. Тимчасові збої до завершення {@code DATA} повторюються до
+     * {@link #SMTP_ATTEMPTS} разів із подвоєнням затримки; постійна відмова кидається одразу.
+     * Збій без коду відповіді після переданого тіла листа остаточний — див. {@link #isResendSafe}.
+     */
+    private void sendSmtp(MimeMessage message) throws MessagingException, IOException {
+        // Заголовки (Message-ID, Date) фіксуються один раз — повтор доставляє той самий лист
+        message.saveChanges();
+        int recipients = message.getAllRecipients().length;
+        String server = config.getMailHostname() + ":" + config.getEmailSmtpPort();
+        long delay = backoffMillis;
+        for (int attempt = 1;; attempt++) {
+            long started = System.nanoTime();
+            DataTrackingTransport transport = new DataTrackingTransport(message.getSession());
+            try {
+                transport.connect();
+                long connected = System.nanoTime();
+                transport.sendMessage(message, message.getAllRecipients());
+                long sent = System.nanoTime();
+                log.info("Report sent via SMTP {} to {} recipient(s): connect {} ms, transfer {} ms, attempt {}/{}",
+                        server, recipients, (connected - started) / 1_000_000, (sent - connected) / 1_000_000,
+                        attempt, SMTP_ATTEMPTS);
+                return;
+            } catch (MessagingException e) {
+                if (!isResendSafe(e, transport.bodySent)) {
+                    log.error("SMTP connection to {} failed after the message body was sent (attempt {}/{}); "
+                            + "not resending {} to avoid a duplicate report: {}",
+                            server, attempt, SMTP_ATTEMPTS, message.getMessageID(), e.getMessage());
+                    throw e;
+                }
+                if (!isTransient(e) || attempt >= SMTP_ATTEMPTS) {
+                    log.error("SMTP delivery to {} failed (attempt {}/{}, {}): {}", server, attempt, SMTP_ATTEMPTS,
+                            isTransient(e) ? "transient" : "permanent", e.getMessage());
+                    throw e;
+                }
+                log.warn("SMTP delivery to {} failed (attempt {}/{}), retrying in {} ms: {}",
+                        server, attempt, SMTP_ATTEMPTS, delay, e.getMessage());
+            } finally {
+                // Збій QUIT після прийнятого DATA не повинен перетворитися на повторну доставку
+                try {
+                    transport.close();
+                } catch (MessagingException e) {
+                    log.debug("SMTP close failed: {}", e.getMessage());
+                }
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting to retry SMTP delivery", e);
+            }
+            delay *= 2;
+        }
+    }
+
+    /**
+     * Чи можна повторити транзакцію, не ризикуючи дублікатом. До завершальної крапки
+     * {@code DATA} сервер листа точно не прийняв. Після неї лише явна відповідь сервера
+     * (4xx/5xx) означає відмову; обрив чи таймаут в очікуванні цієї відповіді лишає лист у
+     * невідомому стані, і тоді надійніше втратити повтор, ніж надіслати звіт двічі.
+     *
+     * @param e        збій доставки
+     * @param bodySent чи було вже передано тіло листа із завершальною крапкою
+     * @return {@code true}, якщо лист гарантовано не прийнято
+     */
+    static boolean isResendSafe(MessagingException e, boolean bodySent) {
+        return !bodySent || replyCode(e) > 0;
+    }
+
+    /**
+     * Чи є сенс повторити доставку. Відповіді сервера класифікуються за кодом (4xx — тимчасова,
+     * 5xx — постійна), відмова автентифікації постійна, а збої без коду — обрив з'єднання,
+     * таймаут, неочікуване привітання на кшталт {@code 421} — вважаються тимчасовими.
+     */
+    static boolean isTransient(MessagingException e) {
+        if (e instanceof AuthenticationFailedException) {
+            return false;
+        }
+        int code = replyCode(e);
+        return code <= 0 || code / 100 == 4;
+    }
+
+    /** Перший SMTP-код у ланцюжку {@code getNextException()}, або -1, якщо його немає. */
+    private static int replyCode(MessagingException e) {
+        for (Exception ex = e; ex != null; ex = ex instanceof MessagingException me ? me.getNextException() : null) {
+            int code = switch (ex) {
+                case SMTPSendFailedException sfe -> sfe.getReturnCode();
+                case SMTPAddressFailedException afe -> afe.getReturnCode();
+                case SMTPSenderFailedException sfe -> sfe.getReturnCode();
+                default -> -1;
+            };
+            if (code > 0) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * SMTP-транспорт, що запам'ятовує момент, коли тіло листа передано повністю: прапорець
+     * ставиться перед завершальною крапкою {@code DATA}, бо сервер може прийняти лист, щойно її
+     * отримає, навіть якщо відповідь до клієнта вже не дійде.
+     */
+    private static final class DataTrackingTransport extends SMTPTransport {
+
+        private volatile boolean bodySent;
+
+        DataTrackingTransport(Session session) {
+            super(session, new URLName("smtp", null, -1, null, null, null));
+        }
+
+        @Override
+        protected void finishData() throws IOException, MessagingException {
+            bodySent = true;
+            super.finishData();
+        }
+    }
+
+    /** Будує MIME-лист: HTML-частина і, якщо є, графіки як частини {@code multipart/related}. */
+    private MimeMessage buildMessage(String subject, MimeBodyPart htmlPart, Map<String, byte[]> inlineImages)
+            throws MessagingException {
+        Properties props = new Properties();
+        props.put("mail.smtp.host", config.getMailHostname());
+        props.put("mail.smtp.port", String.valueOf(config.getEmailSmtpPort()));
+        props.put("mail.smtp.auth", "true");
+        props.put("mail.smtp.connectiontimeout", String.valueOf(SMTP_CONNECT_TIMEOUT_MILLIS));
+        props.put("mail.smtp.timeout", String.valueOf(SMTP_IO_TIMEOUT_MILLIS));
+        props.put("mail.smtp.writetimeout", String.valueOf(SMTP_IO_TIMEOUT_MILLIS));
+        props.put("mail.mime.charset", "UTF-8");
+
+        Session session = Session.getInstance(props, new Authenticator() {
+            @Override
+            protected PasswordAuthentication getPasswordAuthentication() {
+                return new PasswordAuthentication(config.getMailUsername(), config.getMailPassword());
+            }
+        });
+
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(config.getEmailFrom()));
+        message.setReplyTo(new InternetAddress[]{new InternetAddress(config.getEmailReplyTo())});
+
+        if (config.isDebug()) {
+            message.addRecipient(Message.RecipientType.TO, new InternetAddress(config.getEmailToDebug()));
+        } else {
+            for (String to : config.getEmailTo()) {
+                message.addRecipient(Message.RecipientType.TO, new InternetAddress(to));
+            }
+        }
+
+        message.setSubject(subject, "UTF-8");
+
+        htmlPart.setHeader("Content-Transfer-Encoding", "base64");
+
+        // related: HTML — корінь, графіки — ресурси, на які він посилається
+        Multipart multipart = inlineImages.isEmpty() ? new MimeMultipart() : new MimeMultipart("related");
+        multipart.addBodyPart(htmlPart);
+        for (Map.Entry<String, byte[]> image : inlineImages.entrySet()) {
+            MimeBodyPart imagePart = new MimeBodyPart();
+            imagePart.setDataHandler(new DataHandler(new ByteArrayDataSource(image.getValue(), "image/png")));
+            imagePart.setContentID("<" + image.getKey() + ">");
+            imagePart.setDisposition(Part.INLINE);
+            imagePart.setFileName(image.getKey().substring(0, image.getKey().indexOf('@')) + ".png");
+            multipart.addBodyPart(imagePart);
+        }
+
+        message.setContent(multipart);
+        message.setHeader("X-PoweredBy", "NOCZvit v" + version);
+        return message;
+    }
 }
@@ -16,53 +16,201 @@ package net.ukrcom.noczvit.snmp;
 
 import org.snmp4j.CommunityTarget;
 import org.snmp4j.PDU;
-import org.snmp4j.Snmp;
 import org.snmp4j.mp.SnmpConstants;
-import org.snmp4j.transport.DefaultUdpTransportMapping;
+import java.io.Closeable;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.snmp4j.Target;
 import org.snmp4j.smi.Address;
 import org.snmp4j.smi.OID;
 import org.snmp4j.smi.OctetString;
 import org.snmp4j.smi.UdpAddress;
 import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.util.TableEvent;
 import org.apache.commons.text.StringEscapeUtils;
 import lombok.extern.slf4j.Slf4j;
 import net.ukrcom.noczvit.Config;
-import net.ukrcom.noczvit.ConcurrentPoll;
 import net.ukrcom.noczvit.imap.DateUtils;
 
 /**
  * Опитує SNMP-пристрої щодо температурних даних (розділ Celsius) та датчики середовища
  * Ramos, після чого формує результати у вигляді HTML-секцій звіту.
  *
- * <p>Опитування всіх хостів виконується паралельно через віртуальні потоки, обмежене
- * семафором на {@value #MAX_CONCURRENT_SNMP}, щоб не перевантажувати мережу. Графіки
- * температури Zabbix опційно вбудовуються як inline PNG-зображення, якщо переданий
- * {@link net.ukrcom.noczvit.zabbix.Client}.
+ * <p>Опитування всіх хостів виконується паралельно через віртуальні потоки, а запити всіх
+ * хостів ідуть через один спільний {@link SnmpSession} — один UDP-сокет і один потік-слухач
+ * на весь звіт, а не на кожен пристрій. Сесія відкривається під час першого запиту й
+ * закривається в {@link #close()}.
+ *
+ * <p>Таймаут і повтори кожного пристрою беруться з його історії відгуку ({@link HostHealth}), а
+ * все опитування обмежене {@code snmp.deadline}: пристрої, до яких черга дійшла після нього,
+ * позначаються у звіті пропущеними, а не тримають відправку листа. Графіки температури Zabbix опційно вбудовуються як inline
+ * PNG-зображення, якщо переданий {@link net.ukrcom.noczvit.zabbix.Client}.
  */
 @Slf4j
-public class Client {
+public class Client implements Closeable {
+
+    /**
+     * Глобальний бюджет одночасних запитів обох секцій. Раніше 10 на секцію — за кількістю
+     * сокетів і потоків-слухачів; тепер вони спільні, і межа лише не дає одним пакетом
+     * переповнити буфер прийому сокета.
+     */
+    private static final int MAX_CONCURRENT_SNMP = 256;
+
+    private static final int SNMP_PORT = 161;
+
+    /**
+     * Запитів у польоті на один пристрій. Агент обробляє їх по черзі, тож паралельні записи
+     * {@code snmp.hosts} одного пристрою лише чекали б на ньому й ризикували таймаутом, а
+     * послідовні дають {@link HostHealth} побачити мертвий пристрій після першого ж запису.
+     * Слот тримає лише сам SNMP-запит: графік Zabbix рендериться вже поза чергою.
+     */
+    private static final int MAX_PER_SITE = 1;
 
-    private static final int MAX_CONCURRENT_SNMP = 10;
+    /**
+     * Пріоритети в черзі {@link PollScheduler}: обхід таблиці Ramos — найдовша задача (кілька
+     * PDU), тож стартує першою, щоб не добігати наприкінці фази сам.
+     */
+    private static final int RAMOS_PRIORITY = 0;
+    private static final int CELSIUS_PRIORITY = 1;
 
     /**
      * Проміжний результат опитування одного хоста Celsius.
      *
      * @param cells    один або декілька фрагментів {@code <td>} для рядка таблиці
-     * @param graphRow опційний рядок {@code <tr>} із вбудованим графіком температури
+     * @param graphRow опційний рядок {@code <tr>} із вбудованим графіком температури; готовий,
+     *                 коли Zabbix відрендерить графік, а не коли відповів пристрій
+     */
+    private record CelsiusResult(String cells, CompletableFuture<String> graphRow) { }
+
+    /**
+     * Стовпці таблиці датчиків Ramos у порядку запиту: спершу індекс датчика, далі його
+     * властивості — ключі налаштувань {@code ramos.*}.
      */
-    private record CelsiusResult(String cells, String graphRow) { }
+    static final String[] RAMOS_COLUMNS = {
+        "temperatureSensorIndex", "temperatureSensorDescription", "temperatureSensorUnit",
+        "temperatureSensorValue", "temperatureSensorLowWarning", "temperatureSensorHighWarning",
+        "temperatureSensorLowCritical", "temperatureSensorHighCritical"
+    };
+
+    /**
+     * Один датчик Ramos; будь-яке значення {@code null}, якщо пристрій його не віддав.
+     *
+     * @param desc  опис датчика
+     * @param unit  одиниця виміру
+     * @param value поточне показання
+     * @param lw    нижня межа норми
+     * @param hw    верхня межа норми
+     * @param lc    нижня критична межа
+     * @param hc    верхня критична межа
+     */
+    record RamosSensor(String desc, String unit, String value, String lw, String hw, String lc, String hc) { }
+
+    /**
+     * Результат обходу таблиці датчиків одного майданчика.
+     *
+     * @param sensors датчики, отримані до кінця таблиці чи до помилки
+     * @param error   текст помилки, якщо обхід обірвався; інакше {@code null}
+     */
+    record RamosWalk(List<RamosSensor> sensors, String error) { }
+
+    /**
+     * Обидві SNMP-секції звіту, зібрані одним опитуванням.
+     *
+     * @param celsius HTML температури обладнання на виносах; порожньо, якщо секцію не запитано
+     * @param ramos   HTML датчиків Ramos; порожньо, якщо секцію не запитано
+     */
+    public record Sections(String celsius, String ramos) { }
 
     private final Config config;
+    private final int port;
+    private final HostHealth health;
+    private final long deadlineNanos;
+    private SnmpSession session;
 
-    /** Створює SNMP-клієнт, прив'язаний до заданої конфігурації.
-     * @param config */
+    /**
+     * Створює SNMP-клієнт, прив'язаний до заданої конфігурації, і запускає відлік
+     * {@code snmp.deadline} для всього опитування.
+     *
+     * @param config налаштування
+     */
     public Client(Config config) {
+        this(config, SNMP_PORT);
+    }
+
+    /** Для тестів: агент на нестандартному порту. */
+    Client(Config config, int port) {
         this.config = config;
+        this.port = port;
+        this.health = new HostHealth(config.getSnmpHealthCacheUrl(), config.getSnmpDeadAfterRuns());
+        this.deadlineNanos = System.nanoTime() + config.getSnmpDeadlineSeconds() * 1_000_000_000L;
+    }
+
+    /**
+     * Спільна сесія, відкрита при першому запиті: якщо сокет не відкривається, кожен хост
+     * отримує рядок з помилкою, як і при будь-якій іншій помилці опитування.
+     */
+    private synchronized SnmpSession session() throws IOException {
+        if (session == null) {
+            session = new SnmpSession();
+        }
+        return session;
+    }
+
+    /** Закриває спільну SNMP-сесію, якщо її було відкрито, і зберігає історію відгуку пристроїв. */
+    @Override
+    public synchronized void close() {
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+        health.save();
+    }
+
+    /**
+     * Таймаут і повтори для пристрою за його історією, у межах залишку {@code snmp.deadline}.
+     *
+     * @return параметри запиту, або {@code null}, якщо час SNMP-фази вичерпано
+     */
+    private HostHealth.Budget budget(String address) {
+        long remainingMillis = (deadlineNanos - System.nanoTime()) / 1_000_000;
+        return remainingMillis > 0 ? health.budget(address, remainingMillis) : null;
+    }
+
+    private CommunityTarget<Address> target(String address, String community, HostHealth.Budget budget) {
+        CommunityTarget<Address> target = new CommunityTarget<>();
+        target.setCommunity(new OctetString(community));
+        target.setAddress(new UdpAddress(address + "/" + port));
+        target.setVersion(SnmpConstants.version2c);
+        target.setTimeout(budget.timeoutMillis());
+        target.setRetries(budget.retries());
+        return target;
+    }
+
+    /** Текст для звіту про пристрій, який не відповів; для недоступного додає, скільки запусків поспіль. */
+    private static String noResponse(String error, HostHealth.Budget budget) {
+        return budget.deadRuns() > 0 ? error + " (без відповіді запусків поспіль: " + budget.deadRuns() + ")" : error;
+    }
+
+    private String deadlineExceeded() {
+        return "пропущено: вичерпано " + config.getSnmpDeadlineSeconds() + " с на SNMP-опитування";
+    }
+
+    private static CelsiusResult celsiusError(String host, String error) {
+        return new CelsiusResult(
+                "<td><b>" + StringEscapeUtils.escapeHtml4(host) + "</b></td>"
+                + "<td colspan=\"2\"><i>не вдалося отримати доступ: "
+                + StringEscapeUtils.escapeHtml4(error) + "</i></td>",
+                CompletableFuture.completedFuture("")
+        );
     }
 
     /**
@@ -74,9 +222,89 @@ public class Client {
      * @return HTML-фрагмент із таблицею температур (ніколи не null)
      */
     public String getCelsius(LocalDateTime from, LocalDateTime to, net.ukrcom.noczvit.zabbix.Client zabbix) {
+        return getCelsius(from, to, CompletableFuture.completedFuture(zabbix));
+    }
+
+    /**
+     * Те саме, що {@link #getCelsius(LocalDateTime, LocalDateTime, net.ukrcom.noczvit.zabbix.Client)},
+     * але без очікування на логін Zabbix (див. {@link #getSections}).
+     *
+     * @param from        початок періоду звіту
+     * @param to          кінець періоду звіту
+     * @param zabbixReady Zabbix-клієнт після логіну; {@code null} чи помилка — без графіків
+     * @return HTML-фрагмент із таблицею температур (ніколи не null)
+     */
+    public String getCelsius(LocalDateTime from, LocalDateTime to,
+            CompletableFuture<net.ukrcom.noczvit.zabbix.Client> zabbixReady) {
+        return getSections(from, to, zabbixReady, true, false).celsius();
+    }
+
+    /**
+     * Опитує хости обох секцій однією чергою {@link PollScheduler}: спільний бюджет
+     * {@value #MAX_CONCURRENT_SNMP} одночасних запитів, не більше {@value #MAX_PER_SITE} на
+     * пристрій, спершу обходи Ramos, далі Celsius по колу між пристроями.
+     *
+     * <p>Опитування SNMP починається одразу, а рядок графіка кожного хоста Celsius чекає на
+     * {@code zabbixReady} лише після відповіді цього хоста — секції можна запускати одночасно з
+     * логіном Zabbix, а не після нього.
+     *
+     * @param from        початок періоду звіту (для графіків температури)
+     * @param to          кінець періоду звіту
+     * @param zabbixReady Zabbix-клієнт після логіну; {@code null} чи помилка — без графіків
+     * @param celsius     чи опитувати {@code snmp.hosts}
+     * @param ramos       чи опитувати {@code snmp.ramos}
+     * @return HTML обох секцій; незапитана — порожній рядок
+     */
+    public Sections getSections(LocalDateTime from, LocalDateTime to,
+            CompletableFuture<net.ukrcom.noczvit.zabbix.Client> zabbixReady, boolean celsius, boolean ramos) {
+        LocalDateTime started = LocalDateTime.now();
+        List<String> hostnames = new ArrayList<>(celsius ? config.getHosts().keySet() : List.of());
+        Collections.sort(hostnames);
+        List<String> ramosHosts = new ArrayList<>(ramos ? config.getRamos().keySet() : List.of());
+        Collections.sort(ramosHosts);
+
+        // Назва графіка температури відома лише з відповіді SNMP, а hostid — ні: усі одним
+        // host.get, щойно Zabbix готовий, паралельно з опитуванням. Помилку логіну вже
+        // обробляє викликач — тут вона означає лише «без графіків».
+        CompletableFuture<net.ukrcom.noczvit.zabbix.Client> zabbix = zabbixReady
+                .exceptionally(e -> null)
+                .thenApply(zc -> {
+                    if (zc != null && !hostnames.isEmpty()) {
+                        zc.prefetchHostIds(hostnames.stream().map(h -> h.split(" ")[0]).toList());
+                    }
+                    return zc;
+                });
+
+        // Кожна задача пише у свою комірку — порядок секцій не залежить від порядку завершення
+        CelsiusResult[] celsiusResults = new CelsiusResult[hostnames.size()];
+        String[] ramosResults = new String[ramosHosts.size()];
+        List<PollScheduler.Job> jobs = new ArrayList<>();
+        for (int i = 0; i < ramosHosts.size(); i++) {
+            int slot = i;
+            String host = ramosHosts.get(i);
+            jobs.add(new PollScheduler.Job(host, RAMOS_PRIORITY, () -> ramosResults[slot] = queryHostRamos(host)));
+        }
+        // Графіки — на власних віртуальних потоках поза чергою: очікування логіну Zabbix і
+        // рендер chart2.php не тримають слот пристрою й не з'їдають snmp.deadline
+        try (ExecutorService graphs = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < hostnames.size(); i++) {
+                int slot = i;
+                String hostname = hostnames.get(i);
+                jobs.add(new PollScheduler.Job(celsiusAddress(hostname), CELSIUS_PRIORITY,
+                        () -> celsiusResults[slot] = queryHostCelsius(hostname, from, to, zabbix, graphs)));
+            }
+            PollScheduler.run(jobs, MAX_CONCURRENT_SNMP, MAX_PER_SITE, "snmp");
+
+            return new Sections(
+                    celsius ? celsiusHtml(started, celsiusResults) : "",
+                    ramos ? ramosHtml(started, ramosResults) : "");
+        }
+    }
+
+    private static String celsiusHtml(LocalDateTime at, CelsiusResult[] results) {
         StringBuilder html = new StringBuilder();
         html.append("<h2 class=\"temp-title\">Температура обладнання на виносах, станом на ")
-                .append(DateUtils.formatUa(LocalDateTime.now()))
+                .append(DateUtils.formatUa(at))
                 .append("</h2>\n")
                 .append("<table width=\"100%\" cellspacing=\"0\" cellpadding=\"0\">")
                 .append("<thead><tr>")
@@ -86,108 +314,121 @@ public class Client {
                 .append("<th>Температура</th>")
                 .append("</tr></thead><tbody>\n");
 
-        List<String> hostnames = new ArrayList<>(config.getHosts().keySet());
-        Collections.sort(hostnames);
-
-        List<CelsiusResult> results = ConcurrentPoll.run(hostnames,
-                hostname -> queryHostCelsius(hostname, from, to, zabbix), MAX_CONCURRENT_SNMP, "celsius");
-
         int n = 0;
         for (CelsiusResult result : results) {
+            if (result == null) {
+                continue;
+            }
             n++;
             html.append("<tr><td>").append(n).append(".</td>")
                     .append(result.cells()).append("</tr>\n");
-            html.append(result.graphRow());
+            html.append(result.graphRow().join());
         }
 
         html.append("</tbody></table>\n");
         return html.toString();
     }
 
+    private static String ramosHtml(LocalDateTime at, String[] fragments) {
+        StringBuilder html = new StringBuilder();
+        html.append("<p>\n<h1>Температурні показники Ramos, станом на ")
+                .append(DateUtils.formatUa(at))
+                .append("</h1>\n");
+        for (String fragment : fragments) {
+            if (fragment != null) {
+                html.append(fragment);
+            }
+        }
+        return html.toString();
+    }
+
+    /** Адреса пристрою запису {@code snmp.hosts}: hostname до пробілу плюс {@code snmp.hosts.suffix}. */
+    private String celsiusAddress(String hostname) {
+        return hostname.split(" ")[0] + "." + config.getSnmpHostsSuffix();
+    }
+
     /**
      * Виконує один SNMPv2c GET-запит для хоста, повертаючи опис компонента, значення
-     * температури та опційний рядок графіка Zabbix. У разі будь-якої помилки повертає
-     * рядок з описом помилки.
+     * температури та опційний рядок графіка Zabbix. Графік ставиться на {@code graphs} і чекає на
+     * {@code zabbixReady} уже після повернення — задача черги завершується з відповіддю пристрою.
+     * У разі будь-якої помилки повертає рядок з описом помилки.
      */
-    private CelsiusResult queryHostCelsius(String hostname, LocalDateTime from, LocalDateTime to, net.ukrcom.noczvit.zabbix.Client zabbix) {
+    private CelsiusResult queryHostCelsius(String hostname, LocalDateTime from, LocalDateTime to,
+            CompletableFuture<net.ukrcom.noczvit.zabbix.Client> zabbixReady, Executor graphs) {
         String host = hostname.split(" ")[0];
-        String domain = config.getSnmpHostsSuffix();
-
-        try (Snmp snmp = new Snmp(new DefaultUdpTransportMapping())) {
-            snmp.listen();
+        String address = celsiusAddress(hostname);
+        HostHealth.Budget budget = budget(address);
+        if (budget == null) {
+            log.warn("SNMP celsius {}: skipped, snmp.deadline of {} s exhausted", address, config.getSnmpDeadlineSeconds());
+            return new CelsiusResult(
+                    "<td><b>" + StringEscapeUtils.escapeHtml4(host) + "</b></td>"
+                    + "<td colspan=\"2\"><i>" + StringEscapeUtils.escapeHtml4(deadlineExceeded()) + "</i></td>",
+                    CompletableFuture.completedFuture("")
+            );
+        }
 
-            CommunityTarget<Address> target = new CommunityTarget<>();
-            target.setCommunity(new OctetString(config.getSnmpCommunityCelsius()));
-            target.setAddress(new UdpAddress(host + "." + domain + "/161"));
-            target.setVersion(SnmpConstants.version2c);
-            target.setTimeout(5000);
-            target.setRetries(2);
+        try {
+            CommunityTarget<Address> target = target(address, config.getSnmpCommunityCelsius(), budget);
 
             PDU pdu = new PDU();
             pdu.add(new VariableBinding(new OID(config.getHosts().get(hostname).get("desc"))));
             pdu.add(new VariableBinding(new OID(config.getHosts().get(hostname).get("temp"))));
             pdu.setType(PDU.GET);
 
-            PDU response = snmp.send(pdu, target).getResponse();
+            long started = System.nanoTime();
+            PDU response = session().send(pdu, target);
+            if (response == null) {
+                health.failure(address);
+            } else {
+                health.success(address, (System.nanoTime() - started) / 1_000_000);
+            }
             if (response == null || response.getErrorStatus() != PDU.noError) {
-                String error = response != null ? response.getErrorStatusText() : "Timeout";
-                log.warn("SNMP celsius {}: {}", host + "." + domain, error);
-                return new CelsiusResult(
-                        "<td><b>" + StringEscapeUtils.escapeHtml4(host) + "</b></td>"
-                        + "<td colspan=\"2\"><i>не вдалося отримати доступ: "
-                        + StringEscapeUtils.escapeHtml4(error) + "</i></td>",
-                        ""
-                );
+                String error = response != null ? response.getErrorStatusText() : noResponse("Timeout", budget);
+                log.warn("SNMP celsius {}: {}", address, error);
+                return celsiusError(host, error);
             }
 
             String desc = response.getVariable(new OID(config.getHosts().get(hostname).get("desc"))).toString();
             String temp = response.getVariable(new OID(config.getHosts().get(hostname).get("temp"))).toString();
 
-            log.debug("{} -> {} -> {}", host + "." + domain, config.getHosts().get(hostname).get("desc"), desc);
-            log.debug("{} -> {} -> {}", host + "." + domain, config.getHosts().get(hostname).get("temp"), temp);
+            log.debug("{} -> {} -> {}", address, config.getHosts().get(hostname).get("desc"), desc);
+            log.debug("{} -> {} -> {}", address, config.getHosts().get(hostname).get("temp"), temp);
 
             return new CelsiusResult(
-                    "<td><b>" + StringEscapeUtils.escapeHtml4(host + "." + domain) + "</b></td>"
+                    "<td><b>" + StringEscapeUtils.escapeHtml4(address) + "</b></td>"
                     + "<td>" + StringEscapeUtils.escapeHtml4(desc) + "</td>"
                     + "<td><b>" + StringEscapeUtils.escapeHtml4(temp) + "</b>°C</td>",
-                    (zabbix != null) ? zabbix.getGraphRow(host, desc, from, to) : ""
+                    zabbixReady.thenApplyAsync(zabbix -> graphRow(zabbix, host, desc, from, to), graphs)
+                            .exceptionally(e -> {
+                                log.warn("SNMP celsius {}: graph failed: {}", address, e.getMessage());
+                                return "";
+                            })
             );
         } catch (IOException e) {
             log.warn("SNMP celsius {}: {}", host, e.getMessage());
-            return new CelsiusResult(
-                    "<td><b>" + StringEscapeUtils.escapeHtml4(host) + "</b></td>"
-                    + "<td colspan=\"2\"><i>не вдалося отримати доступ: "
-                    + StringEscapeUtils.escapeHtml4(e.getMessage()) + "</i></td>",
-                    ""
-            );
+            return celsiusError(host, e.getMessage());
         }
     }
 
+    private static String graphRow(net.ukrcom.noczvit.zabbix.Client zabbix, String host, String desc,
+            LocalDateTime from, LocalDateTime to) {
+        return zabbix != null ? zabbix.getGraphRow(host, desc, from, to) : "";
+    }
+
     /**
-     * Опитує всі налаштовані датчики середовища Ramos через обхід SNMPv2c GETNEXT і повертає
-     * HTML-секцію з показаннями температури по кожному датчику та кольоровим кодуванням
-     * попереджувальних/критичних значень.
+     * Опитує всі налаштовані датчики середовища Ramos через обхід таблиці SNMPv2c GETBULK і
+     * повертає HTML-секцію з показаннями температури по кожному датчику та кольоровим
+     * кодуванням попереджувальних/критичних значень.
      *
      * @return HTML-фрагмент із таблицями датчиків Ramos (ніколи не null)
      */
     public String getRamos() {
-        StringBuilder html = new StringBuilder();
-        html.append("<p>\n<h1>Температурні показники Ramos, станом на ")
-                .append(DateUtils.formatUa(LocalDateTime.now()))
-                .append("</h1>\n");
-
-        List<String> hosts = new ArrayList<>(config.getRamos().keySet());
-        Collections.sort(hosts);
-
-        ConcurrentPoll.run(hosts, this::queryHostRamos, MAX_CONCURRENT_SNMP, "ramos").forEach(html::append);
-
-        return html.toString();
+        return getSections(null, null, CompletableFuture.completedFuture(null), false, true).ramos();
     }
 
     /**
-     * Обходить піддерево MIB температурних датчиків Ramos для одного хоста за допомогою
-     * GETNEXT і формує секцію HTML-таблиці з описами датчиків та кольоровим кодуванням
-     * показань.
+     * Обходить таблицю температурних датчиків Ramos для одного хоста ({@link #walkRamos}) і
+     * формує секцію HTML-таблиці з описами датчиків та кольоровим кодуванням показань.
      */
     private String queryHostRamos(String host) {
         StringBuilder fragment = new StringBuilder();
@@ -202,89 +443,52 @@ public class Client {
                 .append("<th>Показник</th>")
                 .append("</tr></thead><tbody>\n");
 
-        try (Snmp snmp = new Snmp(new DefaultUdpTransportMapping())) {
-            snmp.listen();
-
-            CommunityTarget<Address> target = new CommunityTarget<>();
-            target.setCommunity(new OctetString(config.getSnmpCommunityRamos()));
-            target.setAddress(new UdpAddress(host + "/161"));
-            target.setVersion(SnmpConstants.version2c);
-            target.setTimeout(5000);
-            target.setRetries(2);
+        HostHealth.Budget budget = budget(host);
+        if (budget == null) {
+            log.warn("SNMP ramos {}: skipped, snmp.deadline of {} s exhausted", host, config.getSnmpDeadlineSeconds());
+            fragment.append("<tr><td colspan=\"3\"><i>")
+                    .append(StringEscapeUtils.escapeHtml4(host)).append(" - ")
+                    .append(StringEscapeUtils.escapeHtml4(deadlineExceeded()))
+                    .append("</i></td></tr>\n</tbody></table>\n</div>\n");
+            return fragment.toString();
+        }
 
-            String temperatureSensorIndex = config.getRamos().get(host).get("temperatureSensorIndex");
-            PDU pdu = new PDU();
-            pdu.add(new VariableBinding(new OID(temperatureSensorIndex)));
-            pdu.setType(PDU.GETNEXT);
+        try {
+            SnmpSession snmp = session();
+            CommunityTarget<Address> target = target(host, config.getSnmpCommunityRamos(), budget);
+
+            long started = System.nanoTime();
+            RamosWalk walk = walkRamos(snmp, target, config.getRamos().get(host));
+            if (walk.sensors().isEmpty() && "Timeout".equals(walk.error())) {
+                health.failure(host);
+                walk = new RamosWalk(walk.sensors(), noResponse(walk.error(), budget));
+            } else {
+                health.success(host, (System.nanoTime() - started) / 1_000_000);
+            }
 
             int n = 0;
-            while (true) {
-                PDU response = snmp.send(pdu, target).getResponse();
-                if (response == null || response.getErrorStatus() != PDU.noError) {
-                    String error = response != null ? response.getErrorStatusText() : "Timeout";
-                    log.warn("SNMP ramos {}: {}", host, error);
-                    fragment.append("<tr><td colspan=\"3\"><i>")
-                            .append(StringEscapeUtils.escapeHtml4(host))
-                            .append(" - не вдалося отримати доступ: ")
-                            .append(StringEscapeUtils.escapeHtml4(error)).append("</i></td></tr>\n");
-                    break;
-                }
-
-                OID oid = response.get(0).getOid();
-                if (!oid.startsWith(new OID(temperatureSensorIndex))) {
-                    break;
-                }
-
-                String sensorIndex = response.get(0).getVariable().toString();
-
-                OID descOid = new OID(config.getRamos().get(host).get("temperatureSensorDescription") + "." + sensorIndex);
-                OID unitOid = new OID(config.getRamos().get(host).get("temperatureSensorUnit") + "." + sensorIndex);
-                OID valueOid = new OID(config.getRamos().get(host).get("temperatureSensorValue") + "." + sensorIndex);
-                OID lwOid = new OID(config.getRamos().get(host).get("temperatureSensorLowWarning") + "." + sensorIndex);
-                OID hwOid = new OID(config.getRamos().get(host).get("temperatureSensorHighWarning") + "." + sensorIndex);
-                OID lcOid = new OID(config.getRamos().get(host).get("temperatureSensorLowCritical") + "." + sensorIndex);
-                OID hcOid = new OID(config.getRamos().get(host).get("temperatureSensorHighCritical") + "." + sensorIndex);
-
-                PDU getMulti = new PDU();
-                getMulti.add(new VariableBinding(descOid));
-                getMulti.add(new VariableBinding(unitOid));
-                getMulti.add(new VariableBinding(valueOid));
-                getMulti.add(new VariableBinding(lwOid));
-                getMulti.add(new VariableBinding(hwOid));
-                getMulti.add(new VariableBinding(lcOid));
-                getMulti.add(new VariableBinding(hcOid));
-                getMulti.setType(PDU.GET);
-
-                var multiRe = snmp.send(getMulti, target);
-                PDU multiResponse = multiRe != null ? multiRe.getResponse() : null;
-
-                String desc = extractValue(multiResponse, descOid);
-                String unit = extractValue(multiResponse, unitOid);
-                String value = extractValue(multiResponse, valueOid);
-                String lw = extractValue(multiResponse, lwOid);
-                String hw = extractValue(multiResponse, hwOid);
-                String lc = extractValue(multiResponse, lcOid);
-                String hc = extractValue(multiResponse, hcOid);
-
-                log.debug("{} = {} : desc={}, unit={}, value={}, lw={}, hw={}, lc={}, hc={}",
-                        oid, sensorIndex, desc, unit, value, lw, hw, lc, hc);
+            for (RamosSensor sensor : walk.sensors()) {
+                log.debug("{} : desc={}, unit={}, value={}, lw={}, hw={}, lc={}, hc={}", host, sensor.desc(),
+                        sensor.unit(), sensor.value(), sensor.lw(), sensor.hw(), sensor.lc(), sensor.hc());
 
                 // екрануємо перед вставкою маркерів <font>, інакше вони теж будуть заекрановані
+                String desc = sensor.desc();
                 if (desc != null) {
                     desc = StringEscapeUtils.escapeHtml4(desc)
                             .replaceAll("(?i)(hot\\s*zone)", "<font color=darkred>$1</font>")
                             .replaceAll("(?i)(cold\\s*zone)", "<font color=darkblue>$1</font>");
                 }
 
+                String value = sensor.value();
                 String valueColor = "inherit";
                 String rowClass = "";
-                if (value != null && lw != null && hw != null && lc != null && hc != null) {
+                if (value != null && sensor.lw() != null && sensor.hw() != null && sensor.lc() != null && sensor.hc() != null) {
                     try {
                         double val = Double.parseDouble(value);
-                        double lowWarn = Double.parseDouble(lw);
-                        double highWarn = Double.parseDouble(hw);
-                        double lowCrit = Double.parseDouble(lc);
-                        double highCrit = Double.parseDouble(hc);
+                        double lowWarn = Double.parseDouble(sensor.lw());
+                        double highWarn = Double.parseDouble(sensor.hw());
+                        double lowCrit = Double.parseDouble(sensor.lc());
+                        double highCrit = Double.parseDouble(sensor.hc());
 
                         if (val >= lowWarn && val <= highWarn) {
                             valueColor = "darkgrey";
@@ -302,12 +506,17 @@ public class Client {
                         .append("<td>").append(desc != null ? desc : "").append("</td>")
                         .append("<td style=\"color:").append(valueColor).append("\">")
                         .append("<b>").append(value != null ? StringEscapeUtils.escapeHtml4(value) : "?")
-                        .append("</b>°").append(unit != null ? StringEscapeUtils.escapeHtml4(unit) : "")
+                        .append("</b>°").append(sensor.unit() != null ? StringEscapeUtils.escapeHtml4(sensor.unit()) : "")
                         .append("</td>")
                         .append("</tr>\n");
+            }
 
-                pdu.clear();
-                pdu.add(new VariableBinding(oid));
+            if (walk.error() != null) {
+                log.warn("SNMP ramos {}: {}", host, walk.error());
+                fragment.append("<tr><td colspan=\"3\"><i>")
+                        .append(StringEscapeUtils.escapeHtml4(host))
+                        .append(" - не вдалося отримати доступ: ")
+                        .append(StringEscapeUtils.escapeHtml4(walk.error())).append("</i></td></tr>\n");
             }
         } catch (IOException e) {
             log.warn("SNMP ramos {}: {}", host, e.getMessage());
@@ -323,19 +532,54 @@ public class Client {
     }
 
     /**
-     * Безпечно видобуває строкове значення для {@code oid} із відповіді PDU.
-     * Повертає {@code null} у разі помилкової відповіді, відсутньої змінної, або
-     * SNMP "noSuchObject" / "noSuchInstance".
+     * Обходить таблицю датчиків Ramos одним GETBULK-обходом: стовпець індексів і сім стовпців
+     * властивостей запитуються разом, по {@value SnmpSession#TABLE_ROWS_PER_PDU} рядків за PDU,
+     * а рядки складаються локально.
+     *
+     * <p>Раніше на кожен датчик ішли два послідовні запити — GETNEXT по стовпцю індексів і GET
+     * семи властивостей, — тож час опитування майданчика ріс із кількістю датчиків. Властивість
+     * датчика, як і раніше, береться за суфіксом, рівним <em>значенню</em> стовпця індексів, а не
+     * за суфіксом рядка цього стовпця.
+     *
+     * @param snmp   спільна сесія
+     * @param target адресат
+     * @param oids   налаштування майданчика з {@code ramos.*}: OID стовпців
+     *               {@code temperatureSensorIndex}, {@code temperatureSensorDescription}, ...
+     * @return датчики в порядку стовпця індексів і текст помилки, якщо обхід обірвався
+     * @throws IOException якщо потік перервано
      */
-    private String extractValue(PDU response, OID oid) {
-        if (response == null || response.getErrorStatus() != PDU.noError) {
-            return null;
+    static <A extends Address> RamosWalk walkRamos(SnmpSession snmp, Target<A> target, Map<String, String> oids)
+            throws IOException {
+        OID[] columns = new OID[RAMOS_COLUMNS.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new OID(oids.get(RAMOS_COLUMNS[i]));
         }
-        var variable = response.getVariable(oid);
-        if (variable == null) {
-            return null;
+
+        List<Map<OID, String>> values = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            // TreeMap: стовпець індексів іде в лексикографічному порядку OID, як при обході GETNEXT
+            values.add(new TreeMap<>());
+        }
+        String error = null;
+        for (TableEvent row : snmp.walkTable(target, columns)) {
+            if (row.isError()) {
+                error = row.getStatus() == TableEvent.STATUS_TIMEOUT ? "Timeout" : row.getErrorMessage();
+                break;
+            }
+            VariableBinding[] cells = row.getColumns();
+            for (int i = 0; i < cells.length; i++) {
+                if (cells[i] != null && !cells[i].isException()) {
+                    values.get(i).put(row.getIndex(), cells[i].getVariable().toString());
+                }
+            }
+        }
+
+        List<RamosSensor> sensors = new ArrayList<>();
+        for (String sensorIndex : values.get(0).values()) {
+            OID key = new OID(sensorIndex);
+            sensors.add(new RamosSensor(values.get(1).get(key), values.get(2).get(key), values.get(3).get(key),
+                    values.get(4).get(key), values.get(5).get(key), values.get(6).get(key), values.get(7).get(key)));
         }
-        String s = variable.toString();
-        return "noSuchObject".equals(s) || "noSuchInstance".equals(s) ? null : s;
+        return new RamosWalk(sensors, error);
     }
 }
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.snmp;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import net.ukrcom.noczvit.SqliteSupport;
+
+/**
+ * Історія відгуку SNMP-пристроїв між запусками: згладжений RTT, його розкид і кількість запусків
+ * поспіль, у яких пристрій не відповів. З неї {@link #budget} рахує таймаут і повтори для
+ * наступного запиту замість однакових для всіх 5 с × 3 спроби.
+ *
+ * <ul>
+ * <li>Пристрій без історії опитується, як і раніше: 5 с, 2 повтори.
+ * <li>Пристрій, що відповідав, отримує таймаут {@code SRTT + 4·RTTVAR} (як RTO у RFC 6298),
+ * у межах {@link #MIN_TIMEOUT_MILLIS}…{@link #DEFAULT_TIMEOUT_MILLIS}.
+ * <li>Пристрій, що не відповів {@code snmp.deadAfter} запусків поспіль, вважається недоступним:
+ * одна спроба з {@link #PROBE_TIMEOUT_MILLIS} без повторів — цього досить, щоб помітити, що він
+ * ожив, і не тримати слот на 15 с.
+ * </ul>
+ *
+ * <p>Зразок RTT — тривалість усього запиту ({@code GET} чи обходу таблиці), тобто оцінка зверху:
+ * таймаут від неї лише безпечніший. Відповідь з помилкою SNMP — теж відповідь: пристрій
+ * досяжний.
+ *
+ * <p>З {@code snmp.health.cache} історія зберігається в SQLite ({@link SqliteSupport}); без
+ * нього живе лише до кінця процесу. DDL:
+ * <pre>{@code
+ * CREATE TABLE IF NOT EXISTS snmp_host_health (
+ *     host       TEXT    NOT NULL PRIMARY KEY,
+ *     srtt_ms    REAL    NOT NULL,
+ *     rttvar_ms  REAL    NOT NULL,
+ *     failures   INTEGER NOT NULL,
+ *     updated_at INTEGER NOT NULL
+ * )
+ * }</pre>
+ *
+ * <p>Збій рахується раз на запуск: пристрій з кількома записами в {@code snmp.hosts} після
+ * першого таймауту отримує для решти записів того ж запуску лише пробну спробу, а лічильник
+ * {@code failures} росте на одиницю, а не на кількість записів.
+ *
+ * <p>Потокобезпечний: хости опитуються паралельно.
+ */
+@Slf4j
+final class HostHealth {
+
+    static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+    static final int DEFAULT_RETRIES = 2;
+    static final long MIN_TIMEOUT_MILLIS = 300;
+    static final long PROBE_TIMEOUT_MILLIS = 1000;
+
+    private static final String DDL = """
+            CREATE TABLE IF NOT EXISTS snmp_host_health (
+                host       TEXT    NOT NULL PRIMARY KEY,
+                srtt_ms    REAL    NOT NULL,
+                rttvar_ms  REAL    NOT NULL,
+                failures   INTEGER NOT NULL,
+                updated_at INTEGER NOT NULL
+            )
+            """;
+
+    private static final String SELECT = "SELECT host, srtt_ms, rttvar_ms, failures FROM snmp_host_health";
+
+    private static final String UPSERT = """
+            INSERT INTO snmp_host_health (host, srtt_ms, rttvar_ms, failures, updated_at)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT(host) DO UPDATE SET
+                srtt_ms    = excluded.srtt_ms,
+                rttvar_ms  = excluded.rttvar_ms,
+                failures   = excluded.failures,
+                updated_at = excluded.updated_at
+            """;
+
+    /**
+     * Стан одного пристрою; {@code srtt <= 0} — RTT ще не виміряно.
+     *
+     * @param srtt     згладжений RTT, мс
+     * @param rttvar   згладжений розкид RTT, мс
+     * @param failures запусків поспіль без відповіді
+     */
+    record Stats(double srtt, double rttvar, int failures) {
+    }
+
+    /**
+     * Параметри запиту до пристрою.
+     *
+     * @param timeoutMillis таймаут однієї спроби
+     * @param retries       кількість повторів
+     * @param deadRuns      скільки запусків поспіль пристрій уже не відповідав, якщо він
+     *                      вважається недоступним; інакше 0
+     */
+    record Budget(long timeoutMillis, int retries, int deadRuns) {
+    }
+
+    private final String jdbcUrl;
+    private final int deadAfter;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private final Map<String, Stats> updated = new ConcurrentHashMap<>();
+    private final Set<String> failedThisRun = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Завантажує історію; якщо базу не вдається відкрити, працює без неї.
+     *
+     * @param jdbcUrl   JDBC URL файлу SQLite; порожній — лише в пам'яті
+     * @param deadAfter після скількох запусків поспіль без відповіді пристрій недоступний
+     */
+    HostHealth(String jdbcUrl, int deadAfter) {
+        this.deadAfter = deadAfter;
+        this.jdbcUrl = open(jdbcUrl);
+    }
+
+    private String open(String url) {
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        try {
+            SqliteSupport.initialize(url, DDL);
+            try (Connection conn = SqliteSupport.connect(url);
+                    PreparedStatement ps = conn.prepareStatement(SELECT); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    stats.put(rs.getString("host"),
+                            new Stats(rs.getDouble("srtt_ms"), rs.getDouble("rttvar_ms"), rs.getInt("failures")));
+                }
+            }
+            log.debug("SNMP host health: loaded {} hosts from {}", stats.size(), url);
+            return url;
+        } catch (SQLException e) {
+            log.warn("SNMP host health: failed to open '{}': {}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Рахує таймаут і повтори для запиту, не довші за залишок часу SNMP-фази.
+     *
+     * @param host            адреса пристрою
+     * @param remainingMillis скільки лишилося до {@code snmp.deadline}
+     * @return параметри запиту
+     */
+    Budget budget(String host, long remainingMillis) {
+        Stats s = stats.get(host);
+        long timeout;
+        int retries;
+        int deadRuns = 0;
+        if (failedThisRun.contains(host)) {
+            // Уже не відповів у цьому запуску — повні 15 с на кожен його запис не варті
+            timeout = PROBE_TIMEOUT_MILLIS;
+            retries = 0;
+            deadRuns = s != null && s.failures() >= deadAfter ? s.failures() : 0;
+        } else if (s != null && s.failures() >= deadAfter) {
+            timeout = PROBE_TIMEOUT_MILLIS;
+            retries = 0;
+            deadRuns = s.failures();
+        } else if (s != null && s.srtt() > 0) {
+            timeout = Math.clamp(Math.round(s.srtt() + 4 * s.rttvar()), MIN_TIMEOUT_MILLIS, DEFAULT_TIMEOUT_MILLIS);
+            retries = DEFAULT_RETRIES;
+        } else {
+            timeout = DEFAULT_TIMEOUT_MILLIS;
+            retries = DEFAULT_RETRIES;
+        }
+        // Усі спроби мають вкластися в залишок часу фази
+        while (retries > 0 && timeout * (retries + 1) > remainingMillis) {
+            retries--;
+        }
+        return new Budget(Math.max(1, Math.min(timeout, remainingMillis)), retries, deadRuns);
+    }
+
+    /** Пристрій відповів за {@code rttMillis}: оновлює SRTT/RTTVAR і скидає лічильник збоїв. */
+    void success(String host, long rttMillis) {
+        Stats s = stats.compute(host, (h, old) -> {
+            if (old == null || old.srtt() <= 0) {
+                return new Stats(rttMillis, rttMillis / 2.0, 0);
+            }
+            double rttvar = 0.75 * old.rttvar() + 0.25 * Math.abs(old.srtt() - rttMillis);
+            double srtt = 0.875 * old.srtt() + 0.125 * rttMillis;
+            return new Stats(srtt, rttvar, 0);
+        });
+        updated.put(host, s);
+        failedThisRun.remove(host);
+    }
+
+    /** Пристрій не відповів жодного разу за всі спроби; повторний збій у тому ж запуску не рахується. */
+    void failure(String host) {
+        if (!failedThisRun.add(host)) {
+            return;
+        }
+        Stats s = stats.compute(host, (h, old) -> old == null
+                ? new Stats(0, 0, 1)
+                : new Stats(old.srtt(), old.rttvar(), old.failures() + 1));
+        updated.put(host, s);
+    }
+
+    /** @return поточний стан пристрою, або {@code null}, якщо його ще не опитували */
+    Stats stats(String host) {
+        return stats.get(host);
+    }
+
+    /** Записує стан опитаних за цей запуск пристроїв; помилка запису лише логується. */
+    void save() {
+        if (jdbcUrl == null || updated.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (Connection conn = SqliteSupport.connect(jdbcUrl)) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(UPSERT)) {
+                for (Map.Entry<String, Stats> e : updated.entrySet()) {
+                    ps.setString(1, e.getKey());
+                    ps.setDouble(2, e.getValue().srtt());
+                    ps.setDouble(3, e.getValue().rttvar());
+                    ps.setInt(4, e.getValue().failures());
+                    ps.setLong(5, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            log.debug("SNMP host health: stored {} hosts", updated.size());
+            updated.clear();
+        } catch (SQLException e) {
+            log.warn("SNMP host health: failed to store: {}", e.getMessage());
+        }
+    }
+}
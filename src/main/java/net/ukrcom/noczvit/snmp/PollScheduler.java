@@ -0,0 +1,152 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.snmp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Єдина черга SNMP-опитувань звіту: задачі Celsius і Ramos з різних майданчиків ділять один
+ * глобальний бюджет одночасних запитів, замість того щоб кожна секція мала власний
+ * {@code ConcurrentPoll} зі своєю межею.
+ *
+ * <p>Черга впорядкована за пріоритетом, а всередині пріоритету — по колу між майданчиками:
+ * пристрій з десятьма записами в {@code snmp.hosts} не займає голову черги, доки решта чекає.
+ * На один майданчик одночасно йде не більше {@code perSite} запитів. Задача, чий майданчик
+ * зайнятий, пропускається на користь наступної вільної, а не тримає слот бюджету.
+ *
+ * <p>Як і в {@code ConcurrentPoll}: кожна задача — на власному віртуальному потоці, виняток
+ * задачі логується й не зупиняє решту, а виклик повертається після завершення всіх задач.
+ */
+@Slf4j
+final class PollScheduler {
+
+    /**
+     * Одне опитування.
+     *
+     * @param site     майданчик (адреса пристрою), до якого йде запит
+     * @param priority менше — раніше
+     * @param task     опитування; результат задача кладе сама
+     */
+    record Job(String site, int priority, Runnable task) {
+    }
+
+    private PollScheduler() {
+    }
+
+    /**
+     * Виконує всі задачі, не більше {@code budget} одночасно і не більше {@code perSite} на
+     * майданчик, і повертається, коли всі вони завершилися.
+     *
+     * @param jobs     задачі
+     * @param budget   глобальна межа одночасних задач
+     * @param perSite  межа одночасних задач на один майданчик
+     * @param logLabel мітка для рядка логу про помилку
+     */
+    static void run(List<Job> jobs, int budget, int perSite, String logLabel) {
+        List<Job> queue = new LinkedList<>(order(jobs));
+        ReentrantLock lock = new ReentrantLock();
+        Condition slotFreed = lock.newCondition();
+        Map<String, Integer> busy = new HashMap<>();
+        int[] running = {0};
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (!queue.isEmpty()) {
+                Job next;
+                lock.lock();
+                try {
+                    while (running[0] >= budget || (next = firstFree(queue, busy, perSite)) == null) {
+                        slotFreed.await();
+                    }
+                    queue.remove(next);
+                    running[0]++;
+                    busy.merge(next.site(), 1, Integer::sum);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("{}: interrupted, {} polls not started", logLabel, queue.size());
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+
+                Job job = next;
+                executor.submit(() -> {
+                    try {
+                        job.task().run();
+                    } catch (RuntimeException e) {
+                        log.error("{} query for {} failed: {}", logLabel, job.site(), e.getMessage());
+                    } finally {
+                        lock.lock();
+                        try {
+                            running[0]--;
+                            busy.merge(job.site(), -1, Integer::sum);
+                            slotFreed.signalAll();
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Порядок запуску: за пріоритетом, а всередині пріоритету — по колу між майданчиками,
+     * зберігаючи вхідний порядок задач одного майданчика.
+     */
+    static List<Job> order(List<Job> jobs) {
+        Map<Integer, Map<String, Deque<Job>>> byPriority = new TreeMap<>();
+        for (Job job : jobs) {
+            byPriority.computeIfAbsent(job.priority(), p -> new LinkedHashMap<>())
+                    .computeIfAbsent(job.site(), s -> new ArrayDeque<>())
+                    .add(job);
+        }
+        List<Job> ordered = new ArrayList<>(jobs.size());
+        for (Map<String, Deque<Job>> sites : byPriority.values()) {
+            boolean added = true;
+            while (added) {
+                added = false;
+                for (Deque<Job> siteJobs : sites.values()) {
+                    Job job = siteJobs.poll();
+                    if (job != null) {
+                        ordered.add(job);
+                        added = true;
+                    }
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private static Job firstFree(List<Job> queue, Map<String, Integer> busy, int perSite) {
+        for (Job job : queue) {
+            if (busy.getOrDefault(job.site(), 0) < perSite) {
+                return job;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.snmp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.Target;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OID;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.snmp4j.util.DefaultPDUFactory;
+import org.snmp4j.util.TableEvent;
+import org.snmp4j.util.TableListener;
+import org.snmp4j.util.TableUtils;
+
+/**
+ * Один спільний рушій SNMP на весь звіт: один UDP-сокет і один потік-слухач SNMP4J, через які
+ * асинхронно йдуть запити до всіх пристроїв.
+ *
+ * <p>Раніше {@link Client} на кожен хост створював окремий {@code Snmp} з власним
+ * {@code DefaultUdpTransportMapping}, викликав {@code listen()} і закривав його — сокет і потік
+ * на пристрій. Тепер запит надсилається через {@link ResponseListener}, а відповідь SNMP4J
+ * зіставляє з запитом за request-id, тож сотні одночасних запитів ділять один сокет. Таймаути
+ * й повтори рахує той самий рушій, за налаштуваннями {@link Target} кожного запиту.
+ *
+ * <p>Таблиці обходяться через {@link #walkTable} — GETBULK по всіх стовпцях одразу, кілька
+ * рядків таблиці за PDU.
+ *
+ * <p>Потокобезпечний: {@link #send} і {@link #walkTable} можна викликати з будь-якої кількості
+ * потоків.
+ */
+@Slf4j
+final class SnmpSession implements Closeable {
+
+    /**
+     * Рядків таблиці на один GETBULK (max-repetitions). Якщо відповідь не влазить у розмір
+     * повідомлення агента, він за RFC 3416 обрізає її, а {@link TableUtils} дозапитує решту.
+     */
+    static final int TABLE_ROWS_PER_PDU = 10;
+
+    private final Snmp snmp;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger walks = new AtomicInteger();
+    private final AtomicInteger timeouts = new AtomicInteger();
+
+    /**
+     * Відкриває UDP-сокет на довільному локальному порту й запускає слухача відповідей.
+     *
+     * @throws IOException якщо сокет неможливо відкрити
+     */
+    SnmpSession() throws IOException {
+        snmp = new Snmp(new DefaultUdpTransportMapping());
+        snmp.listen();
+    }
+
+    /**
+     * Надсилає запит, не блокуючи потік.
+     *
+     * @param pdu    запит
+     * @param target адресат із таймаутом і кількістю повторів
+     * @return відповідь; {@code null}, якщо всі спроби вичерпали таймаут; виняткове завершення
+     * з {@link IOException}, якщо SNMP4J повідомив про помилку
+     * @throws IOException якщо запит не вдалося надіслати
+     */
+    <A extends Address> CompletableFuture<PDU> sendAsync(PDU pdu, Target<A> target) throws IOException {
+        CompletableFuture<PDU> future = new CompletableFuture<>();
+        requests.incrementAndGet();
+        snmp.send(pdu, target, null, new ResponseListener() {
+            @Override
+            public <T extends Address> void onResponse(ResponseEvent<T> event) {
+                // Без cancel SNMP4J тримав би listener до таймауту й повторював запит
+                ((Snmp) event.getSource()).cancel(event.getRequest(), this);
+                if (event.getError() != null) {
+                    future.completeExceptionally(new IOException(event.getError().getMessage(), event.getError()));
+                } else {
+                    if (event.getResponse() == null) {
+                        timeouts.incrementAndGet();
+                    }
+                    future.complete(event.getResponse());
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Надсилає запит і чекає відповіді — для віртуальних потоків, що опитують по хосту.
+     *
+     * @return відповідь, або {@code null} при таймауті
+     * @throws IOException якщо запит не вдалося надіслати, SNMP4J повідомив про помилку чи
+     *                     потік перервано
+     */
+    <A extends Address> PDU send(PDU pdu, Target<A> target) throws IOException {
+        try {
+            return sendAsync(pdu, target).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for SNMP response", e);
+        }
+    }
+
+    /**
+     * Обходить стовпці таблиці через GETBULK і чекає завершення обходу.
+     *
+     * @param target  адресат (SNMPv2c і новіші — GETBULK у SNMPv1 немає)
+     * @param columns OID стовпців без індексу рядка
+     * @return події рядків ({@link TableEvent#getIndex()} — суфікс рядка,
+     * {@link TableEvent#getColumns()} — значення в порядку {@code columns}, відсутні — {@code null});
+     * якщо обхід обірвався, останньою йде подія з {@link TableEvent#isError()}
+     * @throws IOException якщо потік перервано
+     */
+    <A extends Address> List<TableEvent> walkTable(Target<A> target, OID[] columns) throws IOException {
+        TableUtils table = new TableUtils(snmp, new DefaultPDUFactory(PDU.GETBULK));
+        table.setMaxNumRowsPerPDU(TABLE_ROWS_PER_PDU);
+        CompletableFuture<List<TableEvent>> future = new CompletableFuture<>();
+        List<TableEvent> rows = new ArrayList<>();
+        walks.incrementAndGet();
+        table.getTable(target, columns, new TableListener() {
+            private volatile boolean finished;
+
+            @Override
+            public boolean next(TableEvent event) {
+                rows.add(event);
+                return true;
+            }
+
+            @Override
+            public void finished(TableEvent event) {
+                if (event.isError()) {
+                    rows.add(event);
+                    if (event.getStatus() == TableEvent.STATUS_TIMEOUT) {
+                        timeouts.incrementAndGet();
+                    }
+                }
+                finished = true;
+                future.complete(rows);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return finished;
+            }
+        }, null, null, null);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while walking SNMP table", e);
+        }
+    }
+
+    /** Закриває сокет і потік-слухач; лічильники запитів ідуть у debug-лог. */
+    @Override
+    public void close() {
+        log.debug("SNMP session: {} requests and {} table walks over one socket, {} timed out",
+                requests.get(), walks.get(), timeouts.get());
+        try {
+            snmp.close();
+        } catch (IOException e) {
+            log.debug("SNMP session: close failed: {}", e.getMessage());
+        }
+    }
+}
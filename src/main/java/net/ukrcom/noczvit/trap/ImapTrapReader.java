@@ -19,14 +19,13 @@ import com.sun.mail.imap.IMAPStore;
 import jakarta.mail.Folder;
 import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
-import jakarta.mail.Session;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Properties;
 import lombok.extern.slf4j.Slf4j;
+import net.ukrcom.noczvit.ConcurrentPoll;
 import net.ukrcom.noczvit.Config;
 import net.ukrcom.noczvit.imap.ImapReader;
+import net.ukrcom.noczvit.imap.ImapStorePool;
 import net.ukrcom.noczvit.imap.MailMessageSupport;
 import net.ukrcom.noczvit.imap.RawMessage;
 
@@ -38,19 +37,26 @@ import net.ukrcom.noczvit.imap.RawMessage;
  * закінчуватись на {@code *}, щоб збігатись з кількома сусідніми теками.
  *
  * <p>Налаштування з'єднання та конвертація повідомлень спільні з {@link ImapReader} через
- * {@link MailMessageSupport}; специфічним для цього рідера є лише розв'язання шаблонів тек.
+ * {@link MailMessageSupport}, так само як і розв'язання шаблонів тек.
+ *
+ * <p>З'єднання позичаються зі спільного {@link ImapStorePool}. Якщо шаблон дає кілька тек і
+ * {@code mail.trap.connections} більше 1, теки читаються паралельно на кількох з'єднаннях
+ * пулу (див. {@link #readFolders}).
  */
 @Slf4j
 public class ImapTrapReader {
 
     private final Config config;
+    private final ImapStorePool pool;
 
     /**
      * Створює рідер, прив'язаний до заданої конфігурації.
      * @param config джерело налаштувань IMAP-з'єднання
+     * @param pool   спільний пул IMAP-з'єднань; закриває його викликач
      */
-    public ImapTrapReader(Config config) {
+    public ImapTrapReader(Config config, ImapStorePool pool) {
         this.config = config;
+        this.pool = pool;
     }
 
     /**
@@ -82,105 +88,111 @@ public class ImapTrapReader {
      */
     public List<RawMessage> readTrapsFromFolder(boolean fetchAll, long fromEpoch, long toEpoch,
                                                 String folderPattern) throws MessagingException {
-        Properties props = MailMessageSupport.imapProperties(config);
-
-        List<RawMessage> result = new ArrayList<>();
-        Session session = Session.getInstance(props);
-
-        try (IMAPStore store = (IMAPStore) session.getStore(MailMessageSupport.imapProtocol(config))) {
-            log.debug("ImapTrapReader: connecting to {}:{}", config.getMailHostname(),
-                    MailMessageSupport.imapPort(config));
-            store.connect(config.getMailHostname(), config.getMailUsername(), config.getMailPassword());
-
-            List<Folder> folders = resolveFolders(store, folderPattern);
+        List<String> names;
+        int connections;
+        try (ImapStorePool.Lease lease = pool.borrow()) {
+            IMAPStore store = lease.store();
+            List<Folder> folders = MailMessageSupport.resolveFolders(store, folderPattern);
             log.info("ImapTrapReader: found {} trap folder(s) matching «{}»",
                     folders.size(), folderPattern);
-
-            for (Folder folder : folders) {
-                try (IMAPFolder imapFolder = (IMAPFolder) folder) {
-                    imapFolder.open(Folder.READ_ONLY);
-                    int total = imapFolder.getMessageCount();
-                    if (total == 0) {
-                        log.debug("ImapTrapReader: folder «{}» is empty", imapFolder.getFullName());
-                        continue;
-                    }
-                    log.info("ImapTrapReader: processing {} messages from «{}»",
-                            total, imapFolder.getFullName());
-
-                    Message[] messages;
-                    if (fetchAll) {
-                        messages = imapFolder.getMessages();
-                    } else {
-                        // SEARCH на боці сервера; див. ImapReader.dateRangeTerm — чому анонімний
-                        // SearchTerm тут використовувати не можна (він завантажує всю теку).
-                        messages = imapFolder.search(ImapReader.dateRangeTerm(fromEpoch, toEpoch));
-                    }
-
-                    for (Message msg : messages) {
-                        // Листи трапів не мають пари In-Reply-To — передаємо false, щоб зберегти порожній ключ
-                        MailMessageSupport.parseRawMessage(msg, false, "ImapTrapReader")
-                                .ifPresent(result::add);
-                    }
-                    log.info("ImapTrapReader: read {} messages from «{}»",
-                            result.size(), imapFolder.getFullName());
-                }
-            }
+            names = folders.stream().map(Folder::getFullName).toList();
+            connections = Math.min(Math.min(config.getMailTrapConnections(), pool.size()), folders.size());
         }
-        return result;
+        // З'єднання, на якому розв'язувався шаблон, уже повернуто в пул — перша ж задача його й
+        // позичить. Тримати його тут, поки паралельні задачі чекають на пул, не можна: при
+        // mail.pool.size=1 це був би взаємний блок.
+        return readFolders(names, connections, fetchAll, fromEpoch, toEpoch);
     }
 
     /**
-     * Розв'язує теки зі сховища, що відповідають {@code pattern}.
+     * Читає теки по черзі або, якщо {@code connections} більше 1, паралельно через
+     * {@link ConcurrentPoll}, не більше {@code connections} одночасно. Кожна тека позичає
+     * з'єднання зі спільного {@link ImapStorePool} і повертає його одразу після читання, тож
+     * швидкі теки не чекають на повільні сусідні, а з'єднання перевикористовуються між задачами.
+     *
+     * <p>Обидва режими поводяться однаково: результат іде в порядку {@code names}, незалежно від
+     * того, яка тека дочиталась першою, а помилка будь-якої теки валить усе читання — інакше
+     * звіт показав би звичайну на вигляд секцію трапів без цілої кімнати.
      *
-     * <p>Якщо шаблон містить символ {@code *}, шлях розбивається за останнім роздільником
-     * перед шаблоном, і на батьківській теці викликається {@link Folder#list(String)}. Інакше
-     * тека відкривається напряму.
+     * @throws MessagingException помилка першої за порядком теки, що не прочиталась
      */
-    private List<Folder> resolveFolders(IMAPStore store, String pattern) throws MessagingException {
-        List<Folder> result = new ArrayList<>();
-
-        char sep = store.getDefaultFolder().getSeparator();
-
-        // Нормалізація: приймаємо '/' як універсальний роздільник незалежно від того, що
-        // фактично використовує сервер. Замінюємо '/' на роздільник сервера, щоб
-        // store.getFolder() отримав коректний шлях.
-        String normalizedPattern = (sep != '/') ? pattern.replace('/', sep) : pattern;
-
-        if (!normalizedPattern.contains("*")) {
-            Folder f = store.getFolder(normalizedPattern);
-            if (f.exists()) {
-                result.add(f);
-            } else {
-                log.warn("ImapTrapReader: folder «{}» does not exist", pattern);
+    List<RawMessage> readFolders(List<String> names, int connections, boolean fetchAll,
+                                 long fromEpoch, long toEpoch) throws MessagingException {
+        List<RawMessage> result = new ArrayList<>();
+        if (connections <= 1) {
+            for (String name : names) {
+                result.addAll(readFolder(name, fetchAll, fromEpoch, toEpoch));
             }
             return result;
         }
 
-        int lastSep = normalizedPattern.lastIndexOf(sep);
-        String parentPath;
-        String mask;
-        if (lastSep >= 0) {
-            parentPath = normalizedPattern.substring(0, lastSep);
-            mask = normalizedPattern.substring(lastSep + 1);
-        } else {
-            parentPath = "";
-            mask = normalizedPattern;
-        }
+        List<FolderRead> perFolder = ConcurrentPoll.run(names, name -> {
+            try {
+                return new FolderRead(readFolder(name, fetchAll, fromEpoch, toEpoch), null);
+            } catch (MessagingException e) {
+                return new FolderRead(List.of(), e);
+            } catch (RuntimeException e) {
+                return new FolderRead(List.of(), new MessagingException("IMAP error in «" + name + "»: " + e, e));
+            }
+        }, connections, "ImapTrapReader");
 
-        Folder parent = parentPath.isEmpty()
-                ? store.getDefaultFolder()
-                : store.getFolder(parentPath);
+        for (FolderRead read : perFolder) {
+            if (read.error() != null) {
+                throw read.error();
+            }
+            result.addAll(read.messages());
+        }
+        log.info("ImapTrapReader: read {} messages from {} folder(s) over up to {} connection(s)",
+                result.size(), perFolder.size(), connections);
+        return result;
+    }
 
-        Folder[] matched = parent.list(mask);
+    /** Результат читання однієї теки в паралельному режимі: повідомлення або помилка. */
+    private record FolderRead(List<RawMessage> messages, MessagingException error) {
+    }
 
-        if (matched != null) {
-            result.addAll(Arrays.asList(matched));
+    /** Читає теку {@code name} на з'єднанні, позиченому з пулу на час читання. */
+    List<RawMessage> readFolder(String name, boolean fetchAll, long fromEpoch, long toEpoch)
+            throws MessagingException {
+        try (ImapStorePool.Lease lease = pool.borrow()) {
+            return readFolder(lease.store().getFolder(name), fetchAll, fromEpoch, toEpoch);
         }
+    }
 
-        if (result.isEmpty()) {
-            log.warn("ImapTrapReader: no folders matched pattern «{}»", pattern);
+    /**
+     * Відкриває одну теку лише на читання, вибирає повідомлення (усі або {@code SEARCH} за
+     * датами) і пакетно їх розбирає.
+     *
+     * @return повідомлення теки; порожній список для порожньої теки
+     */
+    private List<RawMessage> readFolder(Folder folder, boolean fetchAll, long fromEpoch, long toEpoch)
+            throws MessagingException {
+        try (IMAPFolder imapFolder = (IMAPFolder) folder) {
+            imapFolder.open(Folder.READ_ONLY);
+            int total = imapFolder.getMessageCount();
+            if (total == 0) {
+                log.debug("ImapTrapReader: folder «{}» is empty", imapFolder.getFullName());
+                return new ArrayList<>();
+            }
+            log.info("ImapTrapReader: processing {} messages from «{}»",
+                    total, imapFolder.getFullName());
+
+            Message[] messages;
+            if (fetchAll) {
+                messages = imapFolder.getMessages();
+            } else {
+                // SEARCH на боці сервера; див. ImapReader.dateRangeTerm — чому анонімний
+                // SearchTerm тут використовувати не можна (він завантажує всю теку).
+                messages = imapFolder.search(ImapReader.dateRangeTerm(fromEpoch, toEpoch));
+            }
+
+            // Листи трапів не мають пари In-Reply-To — передаємо false, щоб зберегти порожній ключ
+            List<RawMessage> read = MailMessageSupport.fetchAndParse(imapFolder, messages, false,
+                    config.getMailBodyMaxBytes(), "ImapTrapReader");
+            log.info("ImapTrapReader: read {} messages from «{}»",
+                    read.size(), imapFolder.getFullName());
+            return read;
         }
-        return result;
     }
 
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.zabbix;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Дисковий кеш PNG графіків {@code chart2.php} між запусками: файл {@code <SHA-256 ключа>.png}
+ * у теці {@code zabbix.graph.cache}, де ключ — graphid, межі періоду, ширина й висота.
+ *
+ * <p>Кешуються лише графіки за період, що закінчився щонайменше {@link #SETTLE} тому: такий
+ * рендер більше не зміниться, і повторний запуск за ту саму зміну (debug-перезапуск, повторна відправка) бере його з диска
+ * замість найповільнішого виклику Zabbix. Файл пишеться в тимчасовий і атомарно
+ * перейменовується, тож паралельний запуск ніколи не прочитає недописаний PNG. Файли, старші за
+ * {@link #RETENTION}, видаляються при відкритті кешу.
+ */
+@Slf4j
+final class GraphCache {
+
+    /** Повторні запуски за ту саму зміну бувають протягом доби-двох; далі файли лише займають місце. */
+    static final Duration RETENTION = Duration.ofDays(3);
+
+    /**
+     * Скільки чекати після кінця періоду, перш ніж вважати рендер остаточним: останні значення
+     * доходять до Zabbix із запізненням (інтервал опитування, черга proxy), і графік, знятий
+     * одразу після кінця зміни, ще має порожній хвіст.
+     */
+    static final Duration SETTLE = Duration.ofMinutes(15);
+
+    private static final String SUFFIX = ".png";
+
+    private final Path dir;
+
+    /**
+     * Відкриває (за потреби створює) теку кешу й видаляє застарілі файли.
+     *
+     * @param dir тека кешу
+     * @throws IOException якщо теку неможливо створити
+     */
+    GraphCache(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        prune(Instant.now().minus(RETENTION));
+    }
+
+    /**
+     * @param to  кінець періоду графіка
+     * @param now поточний час
+     * @return {@code true}, якщо з кінця періоду минуло більше {@link #SETTLE} і рендер можна кешувати
+     */
+    static boolean settled(LocalDateTime to, LocalDateTime now) {
+        return to.plus(SETTLE).isBefore(now);
+    }
+
+    /**
+     * @param key ключ графіка
+     * @return збережений PNG, або {@code null}, якщо його немає чи файл не читається
+     */
+    byte[] get(String key) {
+        try {
+            return Files.readAllBytes(file(key));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.debug("GraphCache: failed to read {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Атомарно зберігає PNG під ключем; помилка запису лише логується — графік уже є у звіті.
+     *
+     * @param key ключ графіка
+     * @param png вміст PNG
+     */
+    void put(String key, byte[] png) {
+        Path target = file(key);
+        try {
+            Path tmp = Files.createTempFile(dir, "graph", ".tmp");
+            try {
+                Files.write(tmp, png);
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            log.warn("GraphCache: failed to store {}: {}", target.getFileName(), e.getMessage());
+        }
+    }
+
+    /** Видаляє PNG, змінені раніше за {@code before}; помилки лише логуються. */
+    private void prune(Instant before) {
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path f : files) {
+                if (Files.getLastModifiedTime(f).compareTo(FileTime.from(before)) < 0) {
+                    Files.deleteIfExists(f);
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            log.debug("GraphCache: prune of {} failed: {}", dir, e.getMessage());
+        }
+        if (removed > 0) {
+            log.debug("GraphCache: removed {} graphs older than {}", removed, RETENTION);
+        }
+    }
+
+    private Path file(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return dir.resolve(HexFormat.of().formatHex(digest) + SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 — обов'язковий алгоритм кожної реалізації Java SE
+            throw new IllegalStateException(e);
+        }
+    }
+}
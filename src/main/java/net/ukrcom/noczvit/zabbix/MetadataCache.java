@@ -0,0 +1,165 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.zabbix;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import net.ukrcom.noczvit.SqliteSupport;
+
+/**
+ * Постійний кеш метаданих Zabbix між запусками на базі SQLite: hostid, graphid, списки
+ * інтерфейсних items та item uptime, які {@link Client} інакше перезапитував би на кожен звіт
+ * для тих самих сотень пристроїв.
+ *
+ * <p>
+ * Запис ідентифікується трійкою {@code (server, kind, lookup_key)}: URL Zabbix API (hostid
+ * одного сервера нічого не означає для іншого), вид метаданих і ключ пошуку. {@code fetched_at}
+ * — мить отримання з API; свіжість за TTL вирішує {@link Client}, а тут записи, старші за
+ * кілька TTL (хост давно видалено з Zabbix), видаляються при {@link #store}.
+ *
+ * <p>
+ * DDL (застосовується при конструюванні):
+ * <pre>{@code
+ * CREATE TABLE IF NOT EXISTS zabbix_metadata (
+ *     server     TEXT    NOT NULL,
+ *     kind       TEXT    NOT NULL,
+ *     lookup_key TEXT    NOT NULL,
+ *     value      TEXT    NOT NULL,
+ *     fetched_at INTEGER NOT NULL,
+ *     PRIMARY KEY (server, kind, lookup_key)
+ * )
+ * }</pre>
+ */
+@Slf4j
+final class MetadataCache {
+
+    private static final String DDL = """
+            CREATE TABLE IF NOT EXISTS zabbix_metadata (
+                server     TEXT    NOT NULL,
+                kind       TEXT    NOT NULL,
+                lookup_key TEXT    NOT NULL,
+                value      TEXT    NOT NULL,
+                fetched_at INTEGER NOT NULL,
+                PRIMARY KEY (server, kind, lookup_key)
+            )
+            """;
+
+    private static final String SELECT = """
+            SELECT lookup_key, value, fetched_at
+            FROM zabbix_metadata
+            WHERE server = ? AND kind = ?
+            """;
+
+    private static final String UPSERT = """
+            INSERT INTO zabbix_metadata (server, kind, lookup_key, value, fetched_at)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT(server, kind, lookup_key) DO UPDATE SET
+                value      = excluded.value,
+                fetched_at = excluded.fetched_at
+            """;
+
+    private static final String DELETE_EXPIRED = """
+            DELETE FROM zabbix_metadata WHERE server = ? AND kind = ? AND fetched_at < ?
+            """;
+
+    /** Збережене значення та мить його отримання з API (epoch millis). */
+    record Row(String value, long fetchedAt) {
+    }
+
+    private final String jdbcUrl;
+    private final String server;
+
+    /**
+     * Створює кеш та ініціалізує таблицю, якщо вона ще не існує.
+     *
+     * @param jdbcUrl JDBC URL файлу SQLite, наприклад
+     * {@code jdbc:sqlite:/var/lib/noczvit/history.db}
+     * @param server  URL Zabbix API, до якого належать метадані
+     * @throws SQLException якщо базу даних неможливо відкрити або DDL завершується помилкою
+     */
+    MetadataCache(String jdbcUrl, String server) throws SQLException {
+        this.jdbcUrl = jdbcUrl;
+        this.server = server;
+        SqliteSupport.initialize(jdbcUrl, DDL);
+        log.debug("MetadataCache: table checked/created in {}", jdbcUrl);
+    }
+
+    /**
+     * Повертає всі збережені записи одного виду для цього сервера — і свіжі, і прострочені.
+     *
+     * @param kind вид метаданих ({@code hostid}, {@code graphid}, {@code items}, {@code uptime})
+     * @return ключ → запис; ніколи не null
+     * @throws SQLException якщо запит завершується помилкою
+     */
+    Map<String, Row> load(String kind) throws SQLException {
+        Map<String, Row> result = new HashMap<>();
+        try (Connection conn = SqliteSupport.connect(jdbcUrl); PreparedStatement ps = conn.prepareStatement(SELECT)) {
+            ps.setString(1, server);
+            ps.setString(2, kind);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.put(rs.getString("lookup_key"), new Row(rs.getString("value"), rs.getLong("fetched_at")));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Атомарно (однією транзакцією) видаляє записи виду, отримані раніше за {@code expireBefore},
+     * і зберігає нові.
+     *
+     * @param kind         вид метаданих
+     * @param entries      ключ → значення
+     * @param fetchedAt    мить отримання нових значень (epoch millis)
+     * @param expireBefore записи, старші за цю мить, видаляються
+     * @throws SQLException якщо запис завершується помилкою (транзакція відкочується)
+     */
+    void store(String kind, Map<String, String> entries, long fetchedAt, long expireBefore) throws SQLException {
+        try (Connection conn = SqliteSupport.connect(jdbcUrl)) {
+            conn.setAutoCommit(false);
+            int expired;
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(DELETE_EXPIRED)) {
+                    ps.setString(1, server);
+                    ps.setString(2, kind);
+                    ps.setLong(3, expireBefore);
+                    expired = ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(UPSERT)) {
+                    for (Map.Entry<String, String> e : entries.entrySet()) {
+                        ps.setString(1, server);
+                        ps.setString(2, kind);
+                        ps.setString(3, e.getKey());
+                        ps.setString(4, e.getValue());
+                        ps.setLong(5, fetchedAt);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            log.debug("MetadataCache: stored {} {} entries, expired {}", entries.size(), kind, expired);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.BiFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -49,7 +50,10 @@ import net.ukrcom.noczvit.Dictionary;
  *
  * <p><b>Багатопотоковість:</b> кожен інцидент опрацьовується незалежно
  * ({@link #auditOne(ZabbixProblem)} не ділить стан з іншими викликами), фан-аут — через
- * {@link ConcurrentPoll}, той самий механізм, що й у {@code snmp.Client}.
+ * {@link ConcurrentPoll}, той самий механізм, що й у {@code snmp.Client}. Порти всередині
+ * інциденту не розпаралелюються: історія всіх портів довкола падіння й відновлення читається
+ * одним-двома запитами {@code history.get} за часовим вікном, а знімки знаходяться локально
+ * (див. {@link #probe}).
  */
 @Slf4j
 public class PowerResilienceAuditor {
@@ -69,15 +73,24 @@ public class PowerResilienceAuditor {
      */
     private static final String RESTART_TRIGGER = "has been restarted";
 
-    /** Скільки інцидентів аудитуємо одночасно. */
+    /**
+     * Скільки інцидентів аудитуємо одночасно. Кожен тримає щонайбільше один HTTP-запит до
+     * Zabbix за раз — порти йдуть пакетом, а не окремими запитами.
+     */
     private static final int MAX_CONCURRENT_AUDITS = 5;
 
     /**
-     * Скільки портів одного інциденту опитуємо одночасно. Реальна межа навантаження на Zabbix —
-     * добуток: {@code MAX_CONCURRENT_AUDITS × MAX_CONCURRENT_PORT_PROBES} = 20 одночасних
-     * запитів, тобто того ж порядку, що й SNMP-опитування (10).
+     * На скільки вікно історії сягає до падіння й після відновлення. Операційний стан порту
+     * Zabbix зазвичай опитує раз на кілька хвилин, тож за пів години в кожного живого порту є
+     * щонайменше один запис; промах вікна лише означає окремий точний запит для цього порту.
+     */
+    private static final long HISTORY_WINDOW_SECONDS = 1800;
+
+    /**
+     * Найдовший простій, для якого падіння й відновлення читаються одним вікном. Довший
+     * простій — двома вікнами, щоб не тягнути історію за весь час, поки вузол був недоступний.
      */
-    private static final int MAX_CONCURRENT_PORT_PROBES = 4;
+    private static final long SINGLE_WINDOW_MAX_OUTAGE_SECONDS = 7200;
 
     /** UP-значення інтерфейсного item «Operational status» у цьому Zabbix-шаблоні (1 = UP). */
     private static final long OPERATIONAL_UP = 1L;
@@ -129,9 +142,9 @@ public class PowerResilienceAuditor {
                 .filter(p -> p.name().contains(RESTART_TRIGGER))
                 .collect(Collectors.groupingBy(ZabbixProblem::host));
 
-        // Перший (зовнішній) рівень паралелізму: інциденти аудитуються незалежно один від
-        // одного; другий рівень — порти всередині auditOne/probePort. auditOne повертає null
-        // для хостів без інтерфейсних SNMP-items, тому такі результати відсіюються тут.
+        // Інциденти аудитуються незалежно один від одного; порти всередині auditOne йдуть
+        // пакетом (probe). auditOne повертає null для хостів без інтерфейсних SNMP-items, тому
+        // такі результати відсіюються тут.
         return ConcurrentPoll.run(qualifying, p -> auditOne(p, restartsByHost), MAX_CONCURRENT_AUDITS, "resilience")
                 .stream()
                 .filter(Objects::nonNull)
@@ -198,9 +211,9 @@ public class PowerResilienceAuditor {
     private record PortProbe(PortState state, PowerResilienceResult.InterfaceObservation observation) {
     }
 
-    /** Два знімки одного порту. Не має спільного стану — тому й опитується паралельно. */
-    private PortProbe probePort(Client.InterfaceItem item, long tDown, long tUp) {
-        Optional<Client.HistoryPoint> before = zabbix.historyValueBefore(item, tDown);
+    /** Стан порту за двома знімками; {@code after} запитувався лише для порту, що був UP. */
+    private static PortProbe classify(Client.InterfaceItem item, Optional<Client.HistoryPoint> before,
+            Optional<Client.HistoryPoint> after) {
         if (before.isEmpty()) {
             return new PortProbe(PortState.NO_DATA_AT_FALL, null);
         }
@@ -208,8 +221,6 @@ public class PowerResilienceAuditor {
             return new PortProbe(PortState.ALREADY_DOWN,
                     new PowerResilienceResult.InterfaceObservation(item.name(), before.get().clock()));
         }
-
-        Optional<Client.HistoryPoint> after = zabbix.historyValueAfter(item, tUp);
         if (after.isEmpty()) {
             return new PortProbe(PortState.NO_DATA_AT_RECOVERY, null);
         }
@@ -218,6 +229,87 @@ public class PowerResilienceAuditor {
                 new PowerResilienceResult.InterfaceObservation(item.name(), after.get().clock()));
     }
 
+    /** Знімки одного інциденту: стани портів у порядку опитування та лічильник uptime. */
+    private record Snapshots(List<PortProbe> ports, Optional<Long> uptimeBefore, Optional<Long> uptimeAfter) {
+    }
+
+    /**
+     * Знімає обидва знімки всіх портів і лічильника uptime. Історія всіх цих items довкола
+     * падіння й відновлення читається одним вікном {@code history.get} (двома — для простою,
+     * довшого за {@link #SINGLE_WINDOW_MAX_OUTAGE_SECONDS}), а знімки знаходяться в ньому
+     * локально. Лише items без жодного запису у вікні добираються точними запитами з
+     * {@code limit=1} — так само, як і раніше: «до падіння» для всіх, «після відновлення» — для
+     * портів, що були UP (для решти другий знімок нічого не змінює в класифікації), і для uptime.
+     */
+    private Snapshots probe(List<Client.InterfaceItem> interfaces, Optional<Client.InterfaceItem> uptimeItem,
+            long tDown, long tUp) {
+        List<Client.InterfaceItem> beforeItems = new ArrayList<>(interfaces);
+        uptimeItem.ifPresent(beforeItems::add);
+
+        Client.HistoryWindow downWindow;
+        Client.HistoryWindow upWindow;
+        if (tUp - tDown <= SINGLE_WINDOW_MAX_OUTAGE_SECONDS) {
+            downWindow = zabbix.historyWindow(beforeItems, tDown - HISTORY_WINDOW_SECONDS, tUp + HISTORY_WINDOW_SECONDS);
+            upWindow = downWindow;
+        } else {
+            downWindow = zabbix.historyWindow(beforeItems, tDown - HISTORY_WINDOW_SECONDS, tDown);
+            upWindow = zabbix.historyWindow(beforeItems, tUp, tUp + HISTORY_WINDOW_SECONDS);
+        }
+        List<Optional<Client.HistoryPoint>> before = snapshots(beforeItems, tDown, downWindow::before,
+                zabbix::historyValuesBefore);
+
+        // afterIndex[i] — позиція порту i у другому списку, або -1, якщо його не шукаємо
+        int[] afterIndex = new int[interfaces.size()];
+        List<Client.InterfaceItem> afterItems = new ArrayList<>();
+        for (int i = 0; i < interfaces.size(); i++) {
+            boolean wasUp = before.get(i).map(p -> p.value() == OPERATIONAL_UP).orElse(false);
+            afterIndex[i] = wasUp ? afterItems.size() : -1;
+            if (wasUp) {
+                afterItems.add(interfaces.get(i));
+            }
+        }
+        uptimeItem.ifPresent(afterItems::add);
+        List<Optional<Client.HistoryPoint>> after = snapshots(afterItems, tUp, upWindow::after,
+                zabbix::historyValuesAfter);
+
+        List<PortProbe> ports = new ArrayList<>(interfaces.size());
+        for (int i = 0; i < interfaces.size(); i++) {
+            ports.add(classify(interfaces.get(i), before.get(i),
+                    afterIndex[i] >= 0 ? after.get(afterIndex[i]) : Optional.empty()));
+        }
+        if (uptimeItem.isEmpty()) {
+            return new Snapshots(ports, Optional.empty(), Optional.empty());
+        }
+        return new Snapshots(ports,
+                before.get(interfaces.size()).map(Client.HistoryPoint::value),
+                after.get(afterItems.size() - 1).map(Client.HistoryPoint::value));
+    }
+
+    /**
+     * Знімки {@code items} на мить {@code timestamp}: з вікна, а промахи — одним пакетом точних
+     * запитів {@code exact}.
+     */
+    private static List<Optional<Client.HistoryPoint>> snapshots(List<Client.InterfaceItem> items, long timestamp,
+            BiFunction<Client.InterfaceItem, Long, Optional<Client.HistoryPoint>> fromWindow,
+            BiFunction<List<Client.InterfaceItem>, Long, List<Optional<Client.HistoryPoint>>> exact) {
+        List<Optional<Client.HistoryPoint>> values = new ArrayList<>(items.size());
+        List<Integer> misses = new ArrayList<>();
+        for (Client.InterfaceItem item : items) {
+            Optional<Client.HistoryPoint> point = fromWindow.apply(item, timestamp);
+            if (point.isEmpty()) {
+                misses.add(values.size());
+            }
+            values.add(point);
+        }
+        if (!misses.isEmpty()) {
+            List<Optional<Client.HistoryPoint>> exactValues = exact.apply(misses.stream().map(items::get).toList(), timestamp);
+            for (int i = 0; i < misses.size(); i++) {
+                values.set(misses.get(i), exactValues.get(i));
+            }
+        }
+        return values;
+    }
+
     /**
      * Аудитує один інцидент. Повертає {@code null}, коли хост не має жодного інтерфейсного
      * SNMP-item — тобто просто нічого аналізувати (та сама умова, що і в оригінальному
@@ -252,14 +344,12 @@ public class PowerResilienceAuditor {
         List<PowerResilienceResult.InterfaceObservation> recoveredNames = new ArrayList<>();
         List<PowerResilienceResult.InterfaceObservation> stillDownNames = new ArrayList<>();
 
-        // Порти опитуються паралельно тим самим механізмом, що й інциденти: до цього на кожен
-        // порт ішло 1-2 послідовних HTTP-обходи, тож хост на 40 портів давав до 80 послідовних
-        // round-trip'ів. ConcurrentPoll зберігає порядок вхідного списку, тож переліки в звіті
-        // не змінюються. Агрегація — тут, у потоці-викликачі, тобто лічильники не діляться.
-        List<PortProbe> probes = ConcurrentPoll.run(
-                interfaces, item -> probePort(item, tDown, tUp), MAX_CONCURRENT_PORT_PROBES, "resilience-port");
+        // Одне-два вікна історії на інцидент замість 1-2 запитів на кожен порт: комутатор на 48
+        // портів раніше давав до сотні HTTP-обходів. Порядок станів — порядок interfaces, тож
+        // переліки в звіті не змінюються.
+        Snapshots snapshots = probe(interfaces, zabbix.getUptimeItem(host), tDown, tUp);
 
-        for (PortProbe probe : probes) {
+        for (PortProbe probe : snapshots.ports()) {
             switch (probe.state()) {
                 case NO_DATA_AT_FALL ->
                     // Знімка на момент падіння немає — порт не входить у totalKnown узагалі.
@@ -296,14 +386,6 @@ public class PowerResilienceAuditor {
             verdict = "Жоден з відомих портів не впав раніше за вузол.";
         }
 
-        Optional<Long> uptimeBefore = Optional.empty();
-        Optional<Long> uptimeAfter = Optional.empty();
-        Optional<Client.InterfaceItem> uptimeItem = zabbix.getUptimeItem(host);
-        if (uptimeItem.isPresent()) {
-            uptimeBefore = zabbix.historyValueBefore(uptimeItem.get(), tDown).map(Client.HistoryPoint::value);
-            uptimeAfter = zabbix.historyValueAfter(uptimeItem.get(), tUp).map(Client.HistoryPoint::value);
-        }
-
         Optional<Instant> restartDetectedAt = findRestartEvent(host, tUp, restartsByHost);
 
         String location = dictionary.resolvePD(host).value();
@@ -314,6 +396,6 @@ public class PowerResilienceAuditor {
                 alreadyDown, stillUp, recovered, stillDownAfter,
                 noDataAtFall, noDataAtRecovery, ignoredPorts,
                 List.copyOf(alreadyDownNames), List.copyOf(recoveredNames), List.copyOf(stillDownNames),
-                uptimeBefore, uptimeAfter, restartDetectedAt, verdict);
+                snapshots.uptimeBefore(), snapshots.uptimeAfter(), restartDetectedAt, verdict);
     }
 }
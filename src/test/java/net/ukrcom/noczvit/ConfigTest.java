@@ -236,6 +236,15 @@ class ConfigTest {
         assertEquals(List.of("wireguard", "sstp", "l2tp"), config.getResilienceIgnoredInterfacePrefixes());
     }
 
+    @Test
+    @DisplayName("pd.ignore: за замовчуванням вбудований список, CLI замінює його повністю, регістр зберігається")
+    void pdIgnoreRules_defaultAndCliOverride() throws IOException {
+        List<String> defaults = TestFixtures.config().getPdIgnoreRules();
+        assertEquals(9, defaults.size());
+        assertTrue(defaults.contains("~[dm]: NS\\d?"));
+        assertEquals(List.of("LAB-", "~^X"), TestFixtures.config("--pd-ignore= LAB- ,, ~^X").getPdIgnoreRules());
+    }
+
     // ---- stripInlineComment ----
 
     @Test
@@ -366,6 +375,117 @@ class ConfigTest {
         assertEquals("jdbc:sqlite:from-cli.db", config.getHistoryResumeUrl());
     }
 
+    @Test
+    @DisplayName("--mail-cache перемагає mail.cache у properties; без обох кеш вимкнено")
+    void cliFlag_overridesMailCacheInProperties(@TempDir Path tempDir) throws IOException {
+        assertEquals("", TestFixtures.config().getMailCacheUrl());
+
+        Path p = tempDir.resolve("custom.properties");
+        Files.writeString(p, baseProperties() + "\nmail.cache=jdbc:sqlite:from-file.db\n", StandardCharsets.UTF_8);
+
+        Config config = new Config(new String[]{"--config=" + p, "--mail-cache=jdbc:sqlite:from-cli.db"});
+        assertEquals("jdbc:sqlite:from-cli.db", config.getMailCacheUrl());
+    }
+
+    @Test
+    @DisplayName("--dictionary-cache перемагає dictionary.cache у properties; без обох кеш вимкнено")
+    void cliFlag_overridesDictionaryCacheInProperties(@TempDir Path tempDir) throws IOException {
+        assertEquals("", TestFixtures.config().getDictionaryCacheUrl());
+
+        Path p = tempDir.resolve("custom.properties");
+        Files.writeString(p, baseProperties() + "\ndictionary.cache=jdbc:sqlite:from-file.db\n", StandardCharsets.UTF_8);
+
+        assertEquals("jdbc:sqlite:from-file.db", new Config(new String[]{"--config=" + p}).getDictionaryCacheUrl());
+        Config config = new Config(new String[]{"--config=" + p, "--dictionary-cache=jdbc:sqlite:from-cli.db"});
+        assertEquals("jdbc:sqlite:from-cli.db", config.getDictionaryCacheUrl());
+    }
+
+    @Test
+    @DisplayName("zabbix.metadata.cache/ttl, zabbix.graph.cache: CLI перемагає properties; без обох кеш вимкнено, TTL — доба")
+    void cliFlag_overridesZabbixMetadataCacheInProperties(@TempDir Path tempDir) throws IOException {
+        assertEquals("", TestFixtures.config().getZabbixMetadataCacheUrl());
+        assertEquals(24, TestFixtures.config().getZabbixMetadataTtlHours());
+
+        Path p = tempDir.resolve("custom.properties");
+        Files.writeString(p, baseProperties()
+                + "\nzabbix.metadata.cache=jdbc:sqlite:from-file.db\nzabbix.metadata.ttl=6\n", StandardCharsets.UTF_8);
+
+        Config fromFile = new Config(new String[]{"--config=" + p});
+        assertEquals("jdbc:sqlite:from-file.db", fromFile.getZabbixMetadataCacheUrl());
+        assertEquals(6, fromFile.getZabbixMetadataTtlHours());
+        Config config = new Config(new String[]{"--config=" + p,
+            "--zabbix-metadata-cache=jdbc:sqlite:from-cli.db", "--zabbix-metadata-ttl=48"});
+        assertEquals("jdbc:sqlite:from-cli.db", config.getZabbixMetadataCacheUrl());
+        assertEquals(48, config.getZabbixMetadataTtlHours());
+        assertEquals("", config.getZabbixGraphCacheDir());
+        assertEquals("/var/cache/noczvit/graphs",
+                new Config(new String[]{"--config=" + p, "--zabbix-graph-cache=/var/cache/noczvit/graphs"}).getZabbixGraphCacheDir());
+    }
+
+    @Test
+    @DisplayName("snmp.health.cache/deadline/deadAfter: за замовчуванням без історії, 120 с, 3 запуски; CLI перемагає")
+    void snmpHealth_defaultsAndCliOverride() throws IOException {
+        Config defaults = TestFixtures.config();
+        assertEquals("", defaults.getSnmpHealthCacheUrl());
+        assertEquals(120, defaults.getSnmpDeadlineSeconds());
+        assertEquals(3, defaults.getSnmpDeadAfterRuns());
+
+        Config config = TestFixtures.config("--snmp-health-cache=jdbc:sqlite:health.db",
+                "--snmp-deadline=45", "--snmp-dead-after=0");
+        assertEquals("jdbc:sqlite:health.db", config.getSnmpHealthCacheUrl());
+        assertEquals(45, config.getSnmpDeadlineSeconds());
+        assertEquals(1, config.getSnmpDeadAfterRuns());
+    }
+
+    @Test
+    @DisplayName("email.transport/smtp.port: за замовчуванням sendmail і порт 25, невідомий транспорт — sendmail")
+    void emailTransport_defaultCliOverrideAndUnknownFallback() throws IOException {
+        assertEquals("sendmail", TestFixtures.config().getEmailTransport());
+        assertEquals(25, TestFixtures.config().getEmailSmtpPort());
+        Config smtp = TestFixtures.config("--email-transport=SMTP", "--email-smtp-port=587");
+        assertEquals("smtp", smtp.getEmailTransport());
+        assertEquals(587, smtp.getEmailSmtpPort());
+        assertEquals("sendmail", TestFixtures.config("--email-transport=lmtp").getEmailTransport());
+    }
+
+    @Test
+    @DisplayName("mail.trap.connections: за замовчуванням 1 (послідовно), CLI перемагає, значення < 1 підіймається до 1")
+    void mailTrapConnections_defaultCliOverrideAndLowerBound() throws IOException {
+        assertEquals(1, TestFixtures.config().getMailTrapConnections());
+        assertEquals(4, TestFixtures.config("--mail-trap-connections=4").getMailTrapConnections());
+        assertEquals(1, TestFixtures.config("--mail-trap-connections=0").getMailTrapConnections());
+    }
+
+    @Test
+    @DisplayName("mail.pool.size: за замовчуванням 2, CLI перемагає, значення < 1 підіймається до 1")
+    void mailPoolSize_defaultCliOverrideAndLowerBound() throws IOException {
+        assertEquals(2, TestFixtures.config().getMailPoolSize());
+        assertEquals(3, TestFixtures.config("--mail-pool-size=3").getMailPoolSize());
+        assertEquals(1, TestFixtures.config("--mail-pool-size=0").getMailPoolSize());
+    }
+
+    @Test
+    @DisplayName("mail.body.maxbytes: за замовчуванням 64 КіБ, CLI перемагає, нижня межа 1 КіБ")
+    void mailBodyMaxBytes_defaultCliOverrideAndLowerBound() throws IOException {
+        assertEquals(65536, TestFixtures.config().getMailBodyMaxBytes());
+        assertEquals(4096, TestFixtures.config("--mail-body-maxbytes=4096").getMailBodyMaxBytes());
+        assertEquals(1024, TestFixtures.config("--mail-body-maxbytes=10").getMailBodyMaxBytes());
+    }
+
+    @Test
+    @DisplayName("daemon: вимкнено за замовчуванням; інтервали IDLE/опитування мають дефолти й нижні межі")
+    void daemon_defaultsAndLowerBounds() throws IOException {
+        Config defaults = TestFixtures.config();
+        assertFalse(defaults.isDaemon());
+        assertEquals(20, defaults.getDaemonIdleMinutes());
+        assertEquals(60, defaults.getDaemonPollSeconds());
+
+        Config cli = TestFixtures.config("--daemon", "--daemon-idle-minutes=0", "--daemon-poll-seconds=1");
+        assertTrue(cli.isDaemon());
+        assertEquals(1, cli.getDaemonIdleMinutes());
+        assertEquals(5, cli.getDaemonPollSeconds());
+    }
+
     @Test
     @DisplayName("--snmp-trap-folder перемагає snmp.trap.folder у properties")
     void cliFlag_overridesSnmpTrapFolderInProperties() throws IOException {
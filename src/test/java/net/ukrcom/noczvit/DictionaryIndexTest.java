@@ -0,0 +1,130 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class DictionaryIndexTest {
+
+    // The scan Dictionary.firstMatch did before the index, verbatim
+    private static String linearFirstMatch(List<Map.Entry<String, String>> entries, String key, String fallback) {
+        for (Map.Entry<String, String> e : entries) {
+            if (Pattern.compile(e.getKey()).matcher(key).find()) {
+                return e.getValue();
+            }
+        }
+        return fallback;
+    }
+
+    @Test
+    @DisplayName("firstMatch: збігається з лінійним проходом regex на випадковому словнику з префіксами, літералами й regex")
+    void firstMatch_equalsLinearScan_onRandomDictionary() {
+        Random random = new Random(7);
+        String alphabet = "rsp-12ab";
+        List<Map.Entry<String, String>> entries = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            StringBuilder lit = new StringBuilder();
+            for (int n = 1 + random.nextInt(5); n > 0; n--) {
+                lit.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String regex = switch (random.nextInt(5)) {
+                case 0, 1 -> "^" + lit;
+                case 2 -> "^" + lit.toString().replace("-", "\\-");
+                case 3 -> lit.toString();
+                default -> "^" + lit + "\\d";
+            };
+            entries.add(Map.entry(regex, "v" + i));
+        }
+        entries.sort(Comparator.comparingInt((Map.Entry<String, String> e) -> e.getKey().length()).reversed());
+        DictionaryIndex index = new DictionaryIndex(entries);
+
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int n = random.nextInt(9); n > 0; n--) {
+                key.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String k = key.toString();
+            assertEquals(linearFirstMatch(entries, k, null), index.firstMatch(k, null), () -> "key=«" + k + "»");
+        }
+    }
+
+    @Test
+    @DisplayName("firstMatch: довший regex перемагає коротший префікс, з однакових — перший у файлі")
+    void firstMatch_orderAcrossKinds() {
+        DictionaryIndex index = new DictionaryIndex(List.of(
+                Map.entry("^spas3[0-9]", "regex"),
+                Map.entry("^spas36", "prefix-first"),
+                Map.entry("^spas36", "prefix-duplicate"),
+                Map.entry("spas", "literal"),
+                Map.entry("^sp", "short-prefix")));
+
+        assertEquals("regex", index.firstMatch("spas36", null));
+        assertEquals("literal", index.firstMatch("spasX", null));
+        assertEquals("literal", index.firstMatch("xspas", null));
+        assertEquals("short-prefix", index.firstMatch("spX", null));
+        assertNull(index.firstMatch("X", null));
+    }
+
+    @Test
+    @DisplayName("конструктор: некоректний regex пропускається, решта словника працює")
+    void constructor_skipsInvalidRegex() {
+        DictionaryIndex index = new DictionaryIndex(List.of(Map.entry("^a(", "bad"), Map.entry("^a", "ok")));
+        assertEquals(1, index.size());
+        assertEquals("ok", index.firstMatch("abc", null));
+    }
+
+    @Test
+    @DisplayName("unescapeLiteral: екранований розділовий знак — літерал, \\d чи метасимвол — regex")
+    void unescapeLiteral_recognisesPlainLiterals() {
+        assertEquals("adlink-hoh15-1:0:0:0", DictionaryIndex.unescapeLiteral("adlink\\-hoh15\\-1:0:0:0"));
+        assertEquals("Сосюри 6", DictionaryIndex.unescapeLiteral("Сосюри 6"));
+        assertNull(DictionaryIndex.unescapeLiteral("r\\d+"));
+        assertNull(DictionaryIndex.unescapeLiteral("a.b"));
+        assertNull(DictionaryIndex.unescapeLiteral("abc$"));
+        assertNull(DictionaryIndex.unescapeLiteral("abc\\"));
+    }
+
+    @Test
+    @DisplayName("diff: містить лише додані й видалені записи; перестановка спільних — null")
+    void diff_collectsAddedAndRemovedEntries() {
+        DictionaryIndex before = new DictionaryIndex(List.of(
+                Map.entry("^aaa", "1"), Map.entry("^bb", "2"), Map.entry("^cc", "3")));
+        DictionaryIndex after = new DictionaryIndex(List.of(
+                Map.entry("^aaa", "1"), Map.entry("^bb", "2*"), Map.entry("^cc", "3"), Map.entry("^d", "4")));
+
+        DictionaryIndex diff = DictionaryIndex.diff(before, after);
+        assertNotNull(diff);
+        assertEquals(3, diff.size());
+        assertNotNull(diff.firstMatch("bbx", null));
+        assertNotNull(diff.firstMatch("dx", null));
+        assertNull(diff.firstMatch("aaax", null));
+        assertNull(diff.firstMatch("ccx", null));
+
+        DictionaryIndex reordered = new DictionaryIndex(List.of(
+                Map.entry("^aaa", "1"), Map.entry("^cc", "3"), Map.entry("^bb", "2")));
+        assertNull(DictionaryIndex.diff(before, reordered));
+    }
+}
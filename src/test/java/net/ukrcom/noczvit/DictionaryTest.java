@@ -18,7 +18,13 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.junit.jupiter.api.DisplayName;
@@ -329,4 +335,73 @@ class DictionaryTest {
 
         assertEquals("r234-1", dictionary.lookupPD("r234-1"));
     }
+
+    // ---- dictionary.cache ----
+
+    @Test
+    @DisplayName("dictionary.cache: результати переживають запуск і скидаються, щойно змінюється файл словника")
+    void diskCache_reusedAcrossInstances_invalidatedByFileChange(@org.junit.jupiter.api.io.TempDir Path tempDir)
+            throws Exception {
+        Path pdFile = tempDir.resolve("pd.txt");
+        Path empty = tempDir.resolve("empty.txt");
+        Files.writeString(pdFile, "^234$=Малишка 2\n", StandardCharsets.UTF_8);
+        Files.writeString(empty, "", StandardCharsets.UTF_8);
+        String url = "jdbc:sqlite:" + tempDir.resolve("cache.db");
+        String[] args = {"--dictionarypd=" + pdFile, "--dictionarysdh=" + empty,
+            "--dictionarydeviceword=" + empty, "--dictionary-cache=" + url};
+
+        Dictionary first = new Dictionary(TestFixtures.config(args));
+        assertEquals("Малишка 2", first.lookupPD("r234-1"));
+        first.saveCache();
+
+        // Tamper with the stored value: a second instance over the same file must return it
+        // without consulting the dictionary, proving the lookup came from disk
+        try (Connection conn = DriverManager.getConnection(url); Statement st = conn.createStatement()) {
+            assertEquals(1, st.executeUpdate("UPDATE dictionary_cache SET value = 'з диска' WHERE kind = 'pd'"));
+        }
+        assertEquals("з диска", new Dictionary(TestFixtures.config(args)).lookupPD("r234-1"));
+
+        Files.writeString(pdFile, "^234$=Малишка 2, корпус 1\n", StandardCharsets.UTF_8);
+        Dictionary changed = new Dictionary(TestFixtures.config(args));
+        assertEquals("Малишка 2, корпус 1", changed.lookupPD("r234-1"));
+        changed.saveCache();
+        try (Connection conn = DriverManager.getConnection(url); Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery("SELECT value FROM dictionary_cache")) {
+            assertTrue(rs.next());
+            assertEquals("Малишка 2, корпус 1", rs.getString(1));
+            assertFalse(rs.next(), "rows computed against the old file are pruned");
+        }
+    }
+
+    // ---- reload ----
+
+    @Test
+    @DisplayName("reload: змінений запис діє одразу, а закешовані результати незачеплених ключів зберігаються")
+    void reload_swapsChangedEntries_keepsUnaffectedCache(@org.junit.jupiter.api.io.TempDir Path tempDir)
+            throws Exception {
+        Path pdFile = tempDir.resolve("pd.txt");
+        Path empty = tempDir.resolve("empty.txt");
+        Files.writeString(pdFile, "^234$=Малишка 2\n^500$=Обухів\n", StandardCharsets.UTF_8);
+        Files.writeString(empty, "", StandardCharsets.UTF_8);
+        String url = "jdbc:sqlite:" + tempDir.resolve("cache.db");
+        String[] args = {"--dictionarypd=" + pdFile, "--dictionarysdh=" + empty,
+            "--dictionarydeviceword=" + empty, "--dictionary-cache=" + url};
+
+        Dictionary seed = new Dictionary(TestFixtures.config(args));
+        seed.lookupPD("r234-1");
+        seed.lookupPD("r500-1");
+        seed.saveCache();
+        // Tampered values can only come from the carried-over cache, never from the dictionary
+        try (Connection conn = DriverManager.getConnection(url); Statement st = conn.createStatement()) {
+            assertEquals(2, st.executeUpdate("UPDATE dictionary_cache SET value = 'з кешу'"));
+        }
+        Dictionary dictionary = new Dictionary(TestFixtures.config(args));
+        assertFalse(dictionary.reload(), "unchanged file is not reloaded");
+
+        Files.writeString(pdFile, "^234$=Малишка 2\n^500$=Обухів, вузол 2\n", StandardCharsets.UTF_8);
+        assertTrue(dictionary.reload());
+
+        assertEquals("Обухів, вузол 2", dictionary.lookupPD("r500-1"));
+        assertEquals("з кешу", dictionary.lookupPD("r234-1"));
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqliteSupportTest {
+
+    private static String pragma(Connection conn, String name) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("PRAGMA " + name)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    @Test
+    @DisplayName("connect: busy_timeout діє на кожному з'єднанні, а не лише на тому, що ініціалізувало базу")
+    void connect_everyConnectionWaitsForLocks(@TempDir Path dir) throws SQLException {
+        String url = "jdbc:sqlite:" + dir.resolve("store.db");
+        SqliteSupport.initialize(url, "CREATE TABLE IF NOT EXISTS t (k TEXT PRIMARY KEY)");
+
+        try (Connection conn = SqliteSupport.connect(url)) {
+            assertEquals(String.valueOf(SqliteSupport.BUSY_TIMEOUT_MILLIS), pragma(conn, "busy_timeout"));
+            assertEquals("wal", pragma(conn, "journal_mode"), "WAL persists in the file");
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.daemon;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DaemonTest {
+
+    private static final ZoneId KYIV = ZoneId.of("Europe/Kyiv");
+
+    private static LocalDateTime at(String iso) {
+        return LocalDateTime.parse(iso);
+    }
+
+    @Test
+    @DisplayName("nextReportTime: рівно 08:02 і 20:02 — вже наступна межа, 19:59 — ще 20:02 того ж дня")
+    void nextReportTime_boundaries() {
+        assertEquals(at("2026-10-16T08:02"), Daemon.nextReportTime(at("2026-10-16T08:01:59")));
+        assertEquals(at("2026-10-16T20:02"), Daemon.nextReportTime(at("2026-10-16T08:02")));
+        assertEquals(at("2026-10-16T20:02"), Daemon.nextReportTime(at("2026-10-16T19:59")));
+        assertEquals(at("2026-10-17T08:02"), Daemon.nextReportTime(at("2026-10-16T20:02")));
+        assertEquals(at("2027-01-01T08:02"), Daemon.nextReportTime(at("2026-12-31T23:59:59")));
+    }
+
+    @Test
+    @DisplayName("день переходу на літній/зимовий час: звіт о 08:02 за стінним годинником, очікування на годину коротше/довше")
+    void nextReportTime_dstChangeDay_keepsWallClock() {
+        // Europe/Kyiv: 2026-03-29 03:00 -> 04:00, 2026-10-25 04:00 -> 03:00
+        LocalDateTime spring = at("2026-03-29T00:30");
+        assertEquals(at("2026-03-29T08:02"), Daemon.nextReportTime(spring));
+        assertEquals(Duration.ofHours(6).plusMinutes(32),
+                Daemon.timeUntil(spring.atZone(KYIV).toInstant(), Daemon.nextReportTime(spring), KYIV));
+
+        LocalDateTime autumn = at("2026-10-25T00:30");
+        assertEquals(at("2026-10-25T08:02"), Daemon.nextReportTime(autumn));
+        assertEquals(Duration.ofHours(8).plusMinutes(32),
+                Daemon.timeUntil(autumn.atZone(KYIV).toInstant(), Daemon.nextReportTime(autumn), KYIV));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.daemon;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import net.ukrcom.noczvit.imap.RawMessage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageBufferTest {
+
+    private static RawMessage msg(String subject, long unixDate) {
+        return new RawMessage("", unixDate, subject, "", "");
+    }
+
+    private static List<String> subjects(List<RawMessage> messages) {
+        return messages.stream().map(RawMessage::subject).toList();
+    }
+
+    @Test
+    @DisplayName("read: теки в порядку додавання, листи — за UID; вікно розширене на добу, як SEARCH")
+    void read_ordersByFolderThenUid_widensWindowByDay() {
+        MessageBuffer buffer = new MessageBuffer();
+        long from = 200_000;
+        buffer.add("DC-Room1", 7, msg("r1-uid7", from));
+        buffer.add("DC-Room2", 1, msg("r2-uid1", from - 86400));
+        buffer.add("DC-Room1", 3, msg("r1-uid3", from));
+        buffer.add("DC-Room1", 9, msg("too-old", from - 86400 - 1));
+
+        assertEquals(List.of("r1-uid3", "r1-uid7", "r2-uid1"), subjects(buffer.read(false, from, from + 3600)));
+        assertEquals(4, buffer.read(true, 0, 0).size());
+    }
+
+    @Test
+    @DisplayName("add/clear: той самий UID замінює запис, clear скидає лише свою теку")
+    void add_sameUidReplaces_clearIsPerFolder() {
+        MessageBuffer buffer = new MessageBuffer();
+        buffer.add("A", 1, msg("first", 10));
+        buffer.add("A", 1, msg("second", 10));
+        buffer.add("B", 1, msg("other", 10));
+
+        buffer.clear("A");
+
+        assertEquals(List.of("other"), subjects(buffer.read(true, 0, 0)));
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    @DisplayName("prune: видаляє листи, старші за межу, і повертає їх кількість")
+    void prune_dropsOlderMessages() {
+        MessageBuffer buffer = new MessageBuffer();
+        buffer.add("A", 1, msg("old", 10));
+        buffer.add("A", 2, msg("new", 20));
+        buffer.add("B", 1, msg("old-b", 5));
+
+        assertEquals(2, buffer.prune(20));
+        assertEquals(List.of("new"), subjects(buffer.read(true, 0, 0)));
+    }
+
+    @Test
+    @DisplayName("nextReportTime: найближча межа зміни 08:00/20:00 плюс запас, з переходом на наступну добу")
+    void nextReportTime_picksNextShiftBoundary() {
+        LocalDateTime morning = LocalDateTime.of(2026, 10, 16, 7, 30);
+        assertEquals(LocalDateTime.of(2026, 10, 16, 8, 2), Daemon.nextReportTime(morning));
+        assertEquals(LocalDateTime.of(2026, 10, 16, 20, 2),
+                Daemon.nextReportTime(LocalDateTime.of(2026, 10, 16, 8, 2)));
+        assertEquals(LocalDateTime.of(2026, 10, 17, 8, 2),
+                Daemon.nextReportTime(LocalDateTime.of(2026, 10, 16, 21, 0)));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.imap;
+
+import com.sun.mail.imap.IMAPStore;
+import jakarta.mail.Session;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.ukrcom.noczvit.TestFixtures;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImapStorePoolTest {
+
+    private static final Session SESSION = Session.getInstance(new Properties());
+
+    /** Store without a server: "connected" until close() is called. */
+    private static final class FakeStore extends IMAPStore {
+
+        private volatile boolean open = true;
+
+        FakeStore() {
+            super(SESSION, null);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+
+    /** Pool whose connectStore() hands out fake stores and counts them. */
+    private static final class FakePool extends ImapStorePool {
+
+        final AtomicInteger connects = new AtomicInteger();
+
+        FakePool(int size) throws IOException {
+            super(TestFixtures.config(), size);
+        }
+
+        @Override
+        IMAPStore connectStore() {
+            connects.incrementAndGet();
+            return new FakeStore();
+        }
+    }
+
+    @Test
+    @DisplayName("borrow: повернуте з'єднання перевикористовується, закрите сервером — замінюється новим")
+    void borrow_reusesReturnedStore_replacesDeadOne() throws Exception {
+        FakePool pool = new FakePool(2);
+
+        IMAPStore first;
+        try (ImapStorePool.Lease lease = pool.borrow()) {
+            first = lease.store();
+        }
+        try (ImapStorePool.Lease lease = pool.borrow()) {
+            assertSame(first, lease.store());
+            first.close(); // the server dropped the idle connection
+        }
+        try (ImapStorePool.Lease lease = pool.borrow()) {
+            assertNotSame(first, lease.store());
+        }
+        assertEquals(2, pool.connects.get());
+
+        pool.close();
+        assertThrows(jakarta.mail.MessagingException.class, pool::borrow);
+    }
+
+    @Test
+    @DisplayName("borrow: понад mail.pool.size позик одночасно не видається — наступна чекає на повернення")
+    void borrow_blocksBeyondPoolSize_untilLeaseReturned() throws Exception {
+        FakePool pool = new FakePool(1);
+        ImapStorePool.Lease held = pool.borrow();
+
+        CompletableFuture<IMAPStore> waiting = CompletableFuture.supplyAsync(() -> {
+            try (ImapStorePool.Lease lease = pool.borrow()) {
+                return lease.store();
+            } catch (jakarta.mail.MessagingException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+
+        held.close();
+        assertSame(held.store(), waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(1, pool.connects.get());
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("timing: TCP/TLS/LOGIN розкладаються за позначками; без TLS-позначок відомий лише загальний час")
+    void timing_splitsPhases_orFallsBackToTotal() {
+        long ms = 1_000_000L;
+        ImapStorePool.ConnectTiming ssl = ImapStorePool.timing(0, 20 * ms, 70 * ms, 100 * ms);
+        assertEquals(new ImapStorePool.ConnectTiming(20, 50, 30), ssl);
+
+        long unset = TimingSocketFactory.Marks.UNSET;
+        ImapStorePool.ConnectTiming plain = ImapStorePool.timing(-100 * ms, unset, unset, 0);
+        assertEquals(-1, plain.tcpMillis());
+        assertEquals(-1, plain.tlsMillis());
+        assertEquals(100, plain.loginMillis());
+    }
+}
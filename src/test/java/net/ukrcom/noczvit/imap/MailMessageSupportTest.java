@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.imap;
+
+import jakarta.mail.FetchProfile;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Properties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MailMessageSupportTest {
+
+    private static final Session SESSION = Session.getInstance(new Properties());
+
+    private static Message[] messages(int count) {
+        Message[] result = new Message[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new MimeMessage(SESSION);
+        }
+        return result;
+    }
+
+    @Test
+    @DisplayName("messageProfile: конверт, BODYSTRUCTURE і заголовок Date завжди; In-Reply-To лише на запит")
+    void messageProfile_containsEnvelopeStructureAndHeaders() {
+        FetchProfile withReply = MailMessageSupport.messageProfile(true);
+        assertTrue(withReply.contains(FetchProfile.Item.ENVELOPE));
+        assertTrue(withReply.contains(FetchProfile.Item.CONTENT_INFO));
+        assertTrue(withReply.contains("Date"));
+        assertTrue(withReply.contains("In-Reply-To"));
+
+        FetchProfile trap = MailMessageSupport.messageProfile(false);
+        assertTrue(trap.contains("Date"));
+        assertFalse(trap.contains("In-Reply-To"));
+    }
+
+    @Test
+    @DisplayName("chunks: порожній масив — жодної команди FETCH")
+    void chunks_empty_noChunks() {
+        assertTrue(MailMessageSupport.chunks(new Message[0]).isEmpty());
+    }
+
+    @Test
+    @DisplayName("chunks: 1000 листів — рівно дві команди FETCH, порядок збережено")
+    void chunks_splitsByChunkSize_preservingOrder() {
+        int size = MailMessageSupport.FETCH_CHUNK_SIZE;
+        Message[] all = messages(2 * size + 1);
+
+        List<Message[]> chunks = MailMessageSupport.chunks(all);
+
+        assertEquals(3, chunks.size());
+        assertEquals(size, chunks.get(0).length);
+        assertEquals(size, chunks.get(1).length);
+        assertEquals(1, chunks.get(2).length);
+        assertSame(all[size], chunks.get(1)[0]);
+        assertSame(all[2 * size], chunks.get(2)[0]);
+        assertEquals(2, MailMessageSupport.chunks(messages(1000)).size());
+        assertArrayEquals(new Message[]{all[0]}, MailMessageSupport.chunks(new Message[]{all[0]}).get(0));
+    }
+
+    /** Attachment that fails the test if anything tries to read it. */
+    private static MimeBodyPart untouchableAttachment() throws MessagingException {
+        MimeBodyPart part = new MimeBodyPart() {
+            @Override
+            public InputStream getInputStream() {
+                throw new AssertionError("attachment body must not be read");
+            }
+
+            @Override
+            public Object getContent() {
+                throw new AssertionError("attachment body must not be read");
+            }
+        };
+        part.setText("x".repeat(1_000_000), "UTF-8");
+        part.setDisposition(MimeBodyPart.ATTACHMENT);
+        part.setFileName("dump.log");
+        return part;
+    }
+
+    @Test
+    @DisplayName("extractText: обрізає тіло до maxBytes, не лишаючи обрубка багатобайтового символу")
+    void extractText_capsBodyAtByteLimit() throws Exception {
+        MimeMessage msg = new MimeMessage(SESSION);
+        msg.setText("Аварія".repeat(1000), "UTF-8");
+        msg.saveChanges();
+
+        // 2 bytes per Cyrillic letter in UTF-8: an odd cap cuts the 3rd letter in half
+        assertEquals("Ав", MailMessageSupport.extractText(msg, 5));
+        assertEquals(500, MailMessageSupport.extractText(msg, 1000).length());
+    }
+
+    @Test
+    @DisplayName("extractText: знаходить text/plain у вкладеному multipart і не читає вкладень")
+    void extractText_findsNestedPlainText_skipsAttachments() throws Exception {
+        MimeBodyPart plain = new MimeBodyPart();
+        plain.setText("Трап: UPS on battery", "UTF-8");
+        MimeBodyPart html = new MimeBodyPart();
+        html.setContent("<b>Трап</b>", "text/html; charset=UTF-8");
+        MimeMultipart alternative = new MimeMultipart("alternative", plain, html);
+        MimeBodyPart alternativePart = new MimeBodyPart();
+        alternativePart.setContent(alternative);
+
+        MimeMessage msg = new MimeMessage(SESSION);
+        msg.setContent(new MimeMultipart("mixed", untouchableAttachment(), alternativePart));
+        msg.saveChanges();
+
+        assertEquals("Трап: UPS on battery", MailMessageSupport.extractText(msg, 65536));
+    }
+
+    @Test
+    @DisplayName("extractText: декодує за charset з Content-Type (windows-1251)")
+    void extractText_decodesDeclaredCharset() throws Exception {
+        MimeMessage msg = new MimeMessage(SESSION);
+        msg.setText("Живлення відновлено", "windows-1251");
+        msg.saveChanges();
+
+        assertEquals("Живлення відновлено", MailMessageSupport.extractText(msg, 65536));
+    }
+}
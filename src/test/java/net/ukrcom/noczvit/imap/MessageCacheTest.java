@@ -0,0 +1,90 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.imap;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageCacheTest {
+
+    private static final String FOLDER = "INBOX.Zabbix";
+
+    private static RawMessage msg(long unixDate, String subject) {
+        return new RawMessage("Thu, 9 Jul 2026 10:00:00 +0300", unixDate, subject, "body", "<id@test>");
+    }
+
+    private static MessageCache cache(Path tempDir) throws SQLException {
+        return new MessageCache("jdbc:sqlite:" + tempDir.resolve("cache.db"));
+    }
+
+    @Test
+    @DisplayName("Тека, що ще не кешувалась, не має стану")
+    void state_unknownFolder_isNull(@TempDir Path tempDir) throws SQLException {
+        assertNull(cache(tempDir).state(FOLDER));
+    }
+
+    @Test
+    @DisplayName("store/load: стан зберігається, вибірка обмежена вікном і впорядкована за UID")
+    void storeAndLoad_filtersByWindow_orderedByUid(@TempDir Path tempDir) throws SQLException {
+        MessageCache cache = cache(tempDir);
+        Map<Long, RawMessage> messages = new LinkedHashMap<>();
+        messages.put(12L, msg(1_000, "third"));
+        messages.put(10L, msg(900, "first"));
+        messages.put(11L, msg(5_000, "outside"));
+        cache.store(FOLDER, new MessageCache.FolderState(7, 12, 0), messages);
+
+        MessageCache.FolderState state = cache.state(FOLDER);
+        assertEquals(new MessageCache.FolderState(7, 12, 0), state);
+
+        List<RawMessage> loaded = cache.load(FOLDER, 7, 800, 1_000);
+        assertEquals(List.of("first", "third"), loaded.stream().map(RawMessage::subject).toList());
+        assertEquals(msg(900, "first"), loaded.get(0));
+    }
+
+    @Test
+    @DisplayName("Зміна UIDVALIDITY видаляє всі рядки попереднього покоління теки")
+    void store_newUidValidity_dropsStaleRows(@TempDir Path tempDir) throws SQLException {
+        MessageCache cache = cache(tempDir);
+        cache.store(FOLDER, new MessageCache.FolderState(7, 10, 0), Map.of(10L, msg(1_000, "old")));
+        cache.store(FOLDER, new MessageCache.FolderState(8, 3, 0), Map.of(3L, msg(1_000, "new")));
+
+        assertTrue(cache.load(FOLDER, 7, 0, 2_000).isEmpty());
+        assertEquals(List.of("new"), cache.load(FOLDER, 8, 0, 2_000).stream().map(RawMessage::subject).toList());
+    }
+
+    @Test
+    @DisplayName("Рядки, старші за coveredFrom, обрізаються; інші теки не зачіпаються")
+    void store_prunesRowsOlderThanCoveredFrom_perFolder(@TempDir Path tempDir) throws SQLException {
+        MessageCache cache = cache(tempDir);
+        cache.store(FOLDER, new MessageCache.FolderState(7, 2, 0),
+                Map.of(1L, msg(100, "ancient"), 2L, msg(1_000, "recent")));
+        cache.store("INBOX.Other", new MessageCache.FolderState(1, 1, 0), Map.of(1L, msg(100, "other")));
+
+        cache.store(FOLDER, new MessageCache.FolderState(7, 2, 500), Map.of());
+
+        assertEquals(List.of("recent"), cache.load(FOLDER, 7, 0, 2_000).stream().map(RawMessage::subject).toList());
+        assertEquals(1, cache.load("INBOX.Other", 1, 0, 2_000).size());
+    }
+}
@@ -42,7 +42,8 @@ class PdIncidentParserTest {
 
     private static PdIncidentParser parserWith(Path tempDir, Map<String, String> pd) throws Exception {
         Dictionary dictionary = TestFixtures.dictionaryPd(tempDir, pd);
-        return new PdIncidentParser(dictionary);
+        // Default pd.ignore rules: the isIgnored cases below pin the built-in list
+        return new PdIncidentParser(dictionary, TestFixtures.config().getPdIgnoreRules());
     }
 
     // --- isIgnored -----------------------------------------------------------------------
@@ -65,6 +66,17 @@ class PdIncidentParserTest {
         assertTrue(parser.parse(msg(subject)).isEmpty());
     }
 
+    @Test
+    void parse_customIgnoreRules_substringAndRegex_invalidRegexSkipped(@TempDir Path tempDir) throws Exception {
+        Dictionary dictionary = TestFixtures.dictionaryPd(tempDir, Map.of());
+        PdIncidentParser parser = new PdIncidentParser(dictionary, List.of("LAB-", "~^\\[-\\] Problem: test\\d+:", "~[unclosed"));
+
+        assertTrue(parser.parse(msg("[-] Problem: LAB-sw1: Unavailable by ICMP ping")).isEmpty());
+        assertTrue(parser.parse(msg("[-] Problem: test12: Unavailable by ICMP ping")).isEmpty());
+        // The built-in list is replaced, not extended
+        assertTrue(parser.parse(msg("[-] Problem: console-1: Unavailable by ICMP ping")).isPresent());
+    }
+
     @Test
     void parse_pairedHostPortException_alcaIsNotIgnored(@TempDir Path tempDir) throws Exception {
         // The paired host-port ignore regex explicitly excludes subjects containing "alca".
@@ -236,4 +248,31 @@ class PdIncidentParserTest {
         assertFalse(result.isEmpty());
         assertEquals(Status.NONE, result.get().status());
     }
+
+    // --- token / hasNumericSuffix (replace split("\\s+") and matches(".*-\\d+")) ----------
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "[-] Problem: host1: Unavailable by ICMP ping",
+        "  leading  spaces\tand\ttabs ",
+        " x",
+        "",
+        "   ",
+        "one",
+        "a b c d e f g",
+    })
+    void token_matchesSplitOnWhitespace(String subject) {
+        String[] parts = subject.split("\\s+");
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i < parts.length ? parts[i] : "", PdIncidentParser.token(subject, i),
+                    "index " + i);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"host-12", "host-1-2", "host12", "host-", "-5", "5", "", "a-b3", "h-\u0661"})
+    void hasNumericSuffix_matchesRegex(String s) {
+        assertEquals(s.matches(".*-\\d+"), PdIncidentParser.hasNumericSuffix(s, s.length()), s);
+        assertEquals((s + ":").matches(".*-\\d+:$"), PdIncidentParser.hasNumericSuffix(s + ":", s.length()), s);
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.imap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.ukrcom.noczvit.imap.SubjectRouter.Route;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SubjectRouterTest {
+
+    private static final List<String> FRAGMENTS = List.of(
+            "[-] Problem: ", "[+] Resolved: ", "host1: ", "Unavailable by ICMP ping", "has been restarted",
+            "ospfNbrStateChange", "adlink", "adlink-hoh15-1", "- Fault", "-Fault", "Power", "POWER", "pOwEr",
+            "STM STM-1", "STM stm-4", "STM STM4", "STM STM-16", "STM STM--4", "STM ", "STM-1 ", "card 0, port 0",
+            " ", "-", "S");
+
+    // The chain prepareImapFolder used before the router, verbatim.
+    private static Route legacyRoute(String subject, boolean debug) {
+        if (subject.matches(".*(?:Unavailable by ICMP ping|has been restarted).*")) {
+            return Route.PD;
+        } else if (subject.contains("ospfNbrStateChange")) {
+            return Route.OSPF;
+        } else if (subject.contains("adlink") && subject.contains("- Fault")) {
+            return Route.ADLINK;
+        } else if (subject.matches(".*(?:[Pp][Oo][Ww][Ee][Rr]|STM [Ss][Tt][Mm].?["
+                + (debug ? "1-9" : "2-9") + "][0-9]*).*")) {
+            return Route.OSM;
+        }
+        return Route.NONE;
+    }
+
+    @Test
+    @DisplayName("route: збігається зі старим ланцюжком isXxxMessage на випадкових комбінаціях фрагментів тем")
+    void route_matchesLegacyChain_onRandomSubjects() {
+        Random random = new Random(42);
+        List<String> subjects = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int parts = 1 + random.nextInt(5);
+            for (int p = 0; p < parts; p++) {
+                sb.append(FRAGMENTS.get(random.nextInt(FRAGMENTS.size())));
+            }
+            subjects.add(sb.toString());
+        }
+        for (boolean debug : new boolean[] {false, true}) {
+            SubjectRouter router = new SubjectRouter(debug);
+            for (String subject : subjects) {
+                assertEquals(legacyRoute(subject, debug), router.route(subject),
+                        () -> "debug=" + debug + ", subject=«" + subject + "»");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("route: пріоритет PD → OSPF → adlink → OSM не залежить від позиції фрагмента в темі")
+    void route_priorityIndependentOfPosition() {
+        SubjectRouter router = new SubjectRouter(false);
+        assertEquals(Route.PD, router.route("Power: host1: Unavailable by ICMP ping"));
+        assertEquals(Route.OSPF, router.route("adlink - Fault ospfNbrStateChange"));
+        assertEquals(Route.ADLINK, router.route("Power - Fault on adlink-1"));
+        assertEquals(Route.OSM, router.route("adlink Power failure"));
+        assertEquals(Route.NONE, router.route(""));
+    }
+
+    @Test
+    @DisplayName("scan: фрагмент, що починається всередині попереднього збігу, не губиться")
+    void route_overlappingFragments_areAllFound() {
+        // "STM STM STM-4": the first "STM " fails to match at 0, but "STM STM-4" starting at 4
+        // overlaps it; the scan must restart one character after each match start.
+        assertEquals(Route.OSM, new SubjectRouter(false).route("STM STM STM-4"));
+        assertEquals(Route.NONE, new SubjectRouter(false).route("STM STM STM-1"));
+        assertEquals(Route.OSM, new SubjectRouter(true).route("STM STM STM-1"));
+    }
+}
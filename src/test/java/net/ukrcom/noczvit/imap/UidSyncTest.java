@@ -0,0 +1,173 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.imap;
+
+import com.sun.mail.imap.IMAPFolder;
+import com.sun.mail.imap.IMAPStore;
+import jakarta.mail.FetchProfile;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.search.SearchTerm;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.TreeMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UidSyncTest {
+
+    private static final Session SESSION = Session.getInstance(new Properties());
+    private static final long NOW = 1_790_000_000L;
+    private static final SearchTerm WINDOW = ImapReader.dateRangeTerm(NOW - 3600, NOW);
+
+    /** Folder served from memory; answers UID FETCH n:* like RFC 3501 and can append during a FETCH. */
+    private static final class FakeFolder extends IMAPFolder {
+
+        final NavigableMap<Long, Message> mail = new TreeMap<>();
+        final Map<Message, Long> uids = new IdentityHashMap<>();
+        long uidValidity = 7;
+        long uidNext = 1;
+        Runnable duringFetch = () -> { };
+
+        FakeFolder() {
+            super("INBOX.Zabbix", '.', new IMAPStore(SESSION, null), false);
+        }
+
+        void append(String subject, long unixDate) {
+            try {
+                MimeMessage msg = new MimeMessage(SESSION);
+                msg.setSubject(subject);
+                msg.setSentDate(new Date(unixDate * 1000));
+                msg.setText("body");
+                msg.saveChanges();
+                long uid = uidNext++;
+                mail.put(uid, msg);
+                uids.put(msg, uid);
+            } catch (MessagingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public synchronized long getUIDValidity() {
+            return uidValidity;
+        }
+
+        @Override
+        public synchronized long getUIDNext() {
+            return uidNext;
+        }
+
+        @Override
+        public synchronized Message[] search(SearchTerm term) {
+            return mail.values().stream().filter(term::match).toArray(Message[]::new);
+        }
+
+        @Override
+        public synchronized Message[] getMessagesByUID(long start, long end) {
+            List<Message> result = new ArrayList<>(mail.tailMap(start, true).values());
+            if (result.isEmpty() && !mail.isEmpty()) {
+                result.add(mail.lastEntry().getValue());
+            }
+            return result.toArray(Message[]::new);
+        }
+
+        @Override
+        public synchronized void fetch(Message[] msgs, FetchProfile fp) {
+            Runnable hook = duringFetch;
+            duringFetch = () -> { };
+            hook.run();
+        }
+
+        @Override
+        public synchronized long getUID(Message message) {
+            return uids.get(message);
+        }
+    }
+
+    private static UidSync.Result sync(FakeFolder folder, UidSync.Mark previous) throws MessagingException {
+        return UidSync.sync(folder, previous, WINDOW, false, 65536, "test");
+    }
+
+    private static List<String> subjects(UidSync.Result result) {
+        return result.messages().values().stream().map(RawMessage::subject).toList();
+    }
+
+    @Test
+    @DisplayName("лист, що прийшов між SEARCH і кінцем FETCH, не губиться: позначка — UIDNEXT до SEARCH")
+    void coldStart_messageArrivingDuringFetch_readByNextPass() throws Exception {
+        FakeFolder folder = new FakeFolder();
+        folder.append("old", NOW - 10 * 86400);
+        folder.append("a", NOW - 60);
+        folder.append("b", NOW - 30);
+        folder.duringFetch = () -> folder.append("late", NOW);
+
+        UidSync.Result cold = sync(folder, null);
+
+        assertFalse(cold.incremental());
+        assertEquals(List.of("a", "b"), subjects(cold));
+        assertEquals(new UidSync.Mark(7, 3), cold.mark());
+
+        UidSync.Result next = sync(folder, cold.mark());
+        assertTrue(next.incremental());
+        assertEquals(List.of("late"), subjects(next));
+        assertEquals(4, next.mark().highUid());
+    }
+
+    @Test
+    @DisplayName("UID FETCH n:* повертає останній лист ще раз — він відкидається, позначка не падає")
+    void incremental_redeliveredLastMessage_skipped() throws Exception {
+        FakeFolder folder = new FakeFolder();
+        folder.append("a", NOW - 60);
+        UidSync.Mark mark = sync(folder, null).mark();
+
+        UidSync.Result quiet = sync(folder, mark);
+        assertTrue(quiet.messages().isEmpty());
+        assertEquals(mark, quiet.mark());
+
+        folder.append("b", NOW - 20);
+        folder.append("c", NOW - 10);
+        UidSync.Result fresh = sync(folder, quiet.mark());
+        assertEquals(List.of("b", "c"), subjects(fresh));
+        assertEquals(3, fresh.mark().highUid());
+    }
+
+    @Test
+    @DisplayName("зміна UIDVALIDITY: тека читається заново, позначка — з нового UIDNEXT")
+    void uidValidityChange_rereadsFolder() throws Exception {
+        FakeFolder folder = new FakeFolder();
+        folder.append("a", NOW - 60);
+        folder.append("b", NOW - 30);
+        UidSync.Mark mark = sync(folder, null).mark();
+
+        folder.uidValidity = 8;
+        UidSync.Result reset = sync(folder, mark);
+
+        assertFalse(reset.incremental());
+        assertEquals(List.of("a", "b"), subjects(reset));
+        assertEquals(new UidSync.Mark(8, 2), reset.mark());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.report;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportWriterTest {
+
+    @Test
+    @DisplayName("секції дописуються по черзі й читаються потоком як base64-тіло MIME-листа")
+    void sections_streamIntoMimeBody_inOrder() throws IOException, MessagingException {
+        String html;
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        try (ReportWriter report = new ReportWriter()) {
+            report.append("<html><body>").append("<h1>Інциденти</h1>").append(null).append("").append("</body></html>");
+            html = "<html><body><h1>Інциденти</h1></body></html>";
+            assertEquals(html.length(), report.length());
+
+            // Same wiring as EmailSender: the body part reads the file while being written out
+            MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+            MimeBodyPart part = new MimeBodyPart();
+            part.setDataHandler(new DataHandler(report.toDataSource()));
+            part.setHeader("Content-Transfer-Encoding", "base64");
+            message.setContent(new MimeMultipart(part));
+            message.writeTo(wire);
+
+            assertThrows(IllegalStateException.class, () -> report.append("late"));
+        }
+
+        MimeMessage parsed = new MimeMessage(Session.getInstance(new Properties()),
+                new ByteArrayInputStream(wire.toByteArray()));
+        Multipart multipart = (Multipart) parsed.getContent();
+        MimeBodyPart body = (MimeBodyPart) multipart.getBodyPart(0);
+        assertTrue(body.getContentType().startsWith("text/html; charset=UTF-8"), body.getContentType());
+        assertEquals("base64", body.getEncoding());
+        assertEquals(html, new String(body.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+    }
+}
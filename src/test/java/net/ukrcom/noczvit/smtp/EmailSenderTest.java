@@ -0,0 +1,185 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.smtp;
+
+import jakarta.mail.MessagingException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.ukrcom.noczvit.Config;
+import net.ukrcom.noczvit.TestFixtures;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailSenderTest {
+
+    /**
+     * Minimal stand-in SMTP server: the first {@code rejectedGreetings} connections are greeted
+     * with 421 and dropped, later ones run a plain EHLO/MAIL/RCPT/DATA dialogue (no AUTH
+     * advertised) answering every RCPT with {@code rcptReply}. With {@code dropAfterData} the
+     * server stores the message and hangs up instead of answering the final {@code .}.
+     */
+    private static final class FakeSmtpServer implements AutoCloseable {
+
+        final ServerSocket socket;
+        final AtomicInteger connections = new AtomicInteger();
+        final List<String> commands = Collections.synchronizedList(new ArrayList<>());
+        final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        private final int rejectedGreetings;
+        private final String rcptReply;
+        private final boolean dropAfterData;
+
+        FakeSmtpServer(int rejectedGreetings, String rcptReply) throws IOException {
+            this(rejectedGreetings, rcptReply, false);
+        }
+
+        FakeSmtpServer(int rejectedGreetings, String rcptReply, boolean dropAfterData) throws IOException {
+            this.socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            this.rejectedGreetings = rejectedGreetings;
+            this.rcptReply = rcptReply;
+            this.dropAfterData = dropAfterData;
+            Thread.ofVirtual().start(this::acceptLoop);
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        private void acceptLoop() {
+            while (!socket.isClosed()) {
+                try (Socket s = socket.accept()) {
+                    serve(s, connections.incrementAndGet());
+                } catch (IOException e) {
+                    // closed by the test, or the client hung up mid-dialogue
+                }
+            }
+        }
+
+        private void serve(Socket s, int n) throws IOException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = s.getOutputStream();
+            if (n <= rejectedGreetings) {
+                reply(out, "421 fake.test busy, try later");
+                return;
+            }
+            reply(out, "220 fake.test ESMTP");
+            String line;
+            while ((line = in.readLine()) != null) {
+                commands.add(line);
+                String verb = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line;
+                switch (verb) {
+                    case "EHLO" -> reply(out, "250-fake.test\r\n250 8BITMIME");
+                    case "MAIL", "RSET" -> reply(out, "250 OK");
+                    case "RCPT" -> reply(out, rcptReply);
+                    case "DATA" -> {
+                        reply(out, "354 go ahead");
+                        StringBuilder body = new StringBuilder();
+                        String dataLine;
+                        while ((dataLine = in.readLine()) != null && !dataLine.equals(".")) {
+                            body.append(dataLine).append('\n');
+                        }
+                        messages.add(body.toString());
+                        if (dropAfterData) {
+                            return;
+                        }
+                        reply(out, "250 queued");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 bye");
+                        return;
+                    }
+                    default -> reply(out, "502 not implemented");
+                }
+            }
+        }
+
+        private static void reply(OutputStream out, String text) throws IOException {
+            out.write((text + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        long count(String prefix) {
+            synchronized (commands) {
+                return commands.stream().filter(c -> c.startsWith(prefix)).count();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static Config smtpConfig(FakeSmtpServer server) throws IOException {
+        return TestFixtures.config(
+                "--email-transport=smtp",
+                "--mail-hostname=127.0.0.1",
+                "--email-smtp-port=" + server.port(),
+                "--email-to=a@test.invalid,b@test.invalid,c@test.invalid");
+    }
+
+    @Test
+    @DisplayName("SMTP: відмова в привітанні повторюється, усі адресати йдуть однією транзакцією")
+    void smtp_transientGreetingRetried_allRecipientsInOneTransaction() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(1, "250 OK")) {
+            new EmailSender(smtpConfig(server), 10).sendReport("Звіт зміни", "<p>ok</p>");
+
+            assertEquals(2, server.connections.get(), "one rejected greeting, then one delivery connection");
+            assertEquals(1, server.count("MAIL FROM"));
+            assertEquals(3, server.count("RCPT TO"));
+            assertEquals(1, server.count("DATA"));
+            assertEquals(1, server.messages.size());
+            assertTrue(server.messages.get(0).contains("X-PoweredBy: NOCZvit vtest"), server.messages.get(0));
+        }
+    }
+
+    @Test
+    @DisplayName("SMTP: постійна відмова 5xx не повторюється")
+    void smtp_permanentRejection_notRetried() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(0, "550 no such user")) {
+            EmailSender sender = new EmailSender(smtpConfig(server), 10);
+
+            assertThrows(MessagingException.class, () -> sender.sendReport("Звіт зміни", "<p>ok</p>"));
+            assertEquals(1, server.connections.get());
+            assertTrue(server.messages.isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("SMTP: обрив після переданого тіла листа не повторюється — без дубліката")
+    void smtp_connectionLostAfterBody_notResent() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(0, "250 OK", true)) {
+            EmailSender sender = new EmailSender(smtpConfig(server), 10);
+
+            assertThrows(MessagingException.class, () -> sender.sendReport("Звіт зміни", "<p>ok</p>"));
+            assertEquals(1, server.connections.get());
+            assertEquals(1, server.count("DATA"));
+            assertEquals(1, server.messages.size());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.snmp;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import net.ukrcom.noczvit.TestFixtures;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientTest {
+
+    private static final String TABLE = "1.3.6.1.4.1.99999.2.1.";
+
+    /** Ramos column config: index column 1, property columns 2..8. */
+    private static Map<String, String> ramosColumns() {
+        Map<String, String> oids = new LinkedHashMap<>();
+        for (int i = 0; i < Client.RAMOS_COLUMNS.length; i++) {
+            oids.put(Client.RAMOS_COLUMNS[i], TABLE + (i + 1));
+        }
+        return oids;
+    }
+
+    @Test
+    @DisplayName("Ramos: таблиця датчиків обходиться GETBULK за кілька PDU, рядки складаються за значенням індексу")
+    void walkRamos_bulkWalk_assemblesRowsInFewPdus() throws Exception {
+        int sensors = 24;
+        try (FakeSnmpAgent agent = new FakeSnmpAgent(); SnmpSession session = new SnmpSession()) {
+            for (int row = 1; row <= sensors; row++) {
+                // index column row suffix differs from its value: properties are keyed by the value
+                int sensorIndex = 100 + row;
+                agent.put(TABLE + "1." + row, String.valueOf(sensorIndex))
+                        .put(TABLE + "2." + sensorIndex, "Hot zone " + row)
+                        .put(TABLE + "3." + sensorIndex, "C")
+                        .put(TABLE + "4." + sensorIndex, String.valueOf(20 + row))
+                        .put(TABLE + "5." + sensorIndex, "10")
+                        .put(TABLE + "6." + sensorIndex, "35");
+                if (row != 3) {
+                    agent.put(TABLE + "7." + sensorIndex, "0").put(TABLE + "8." + sensorIndex, "45");
+                }
+            }
+            agent.put("1.3.6.1.4.1.99999.3.1.0", "beyond the table");
+
+            Client.RamosWalk walk = Client.walkRamos(session, agent.target(5000), ramosColumns());
+
+            assertNull(walk.error());
+            assertEquals(sensors, walk.sensors().size());
+            Client.RamosSensor first = walk.sensors().get(0);
+            assertEquals(new Client.RamosSensor("Hot zone 1", "C", "21", "10", "35", "0", "45"), first);
+            assertEquals("Hot zone 24", walk.sensors().get(sensors - 1).desc());
+            assertNull(walk.sensors().get(2).lc(), "missing cells stay null");
+            // GETNEXT + GET per sensor used to be 2 * 24 = 48 round-trips
+            assertTrue(agent.pdus.get() <= 4, "PDUs: " + agent.pdus.get());
+        }
+    }
+
+    @Test
+    @DisplayName("Ramos: пристрій без таблиці — порожній список без помилки")
+    void walkRamos_emptyTable_noSensors() throws Exception {
+        try (FakeSnmpAgent agent = new FakeSnmpAgent(); SnmpSession session = new SnmpSession()) {
+            agent.put("1.3.6.1.4.1.99999.9.0", "unrelated");
+
+            Client.RamosWalk walk = Client.walkRamos(session, agent.target(5000), ramosColumns());
+
+            assertNull(walk.error());
+            assertTrue(walk.sensors().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Celsius: повільний логін Zabbix не тримає слот пристрою й не з'їдає snmp.deadline")
+    void celsius_slowZabbix_doesNotBlockOrSkipLaterEntriesOfSameDevice() throws Exception {
+        String oids = "1.3.6.1.4.1.99999.4.";
+        try (FakeSnmpAgent agent = new FakeSnmpAgent()) {
+            agent.put(oids + "1.0", "PSU 0").put(oids + "2.0", "41")
+                    .put(oids + "3.0", "PSU 1").put(oids + "4.0", "42");
+            // "127" + "." + "0.0.1": both entries address the same loopback agent
+            var config = TestFixtures.config(
+                    "--snmp-hosts=127 psu0:desc=" + oids + "1.0;temp=" + oids + "2.0,"
+                            + "127 psu1:desc=" + oids + "3.0;temp=" + oids + "4.0",
+                    "--snmp-hosts-suffix=0.0.1",
+                    "--snmp-deadline=1");
+            CompletableFuture<net.ukrcom.noczvit.zabbix.Client> zabbixReady = new CompletableFuture<>();
+
+            try (Client client = new Client(config, agent.port())) {
+                CompletableFuture<Client.Sections> sections = CompletableFuture.supplyAsync(() -> client.getSections(
+                        LocalDateTime.now().minusDays(1), LocalDateTime.now(), zabbixReady, true, false));
+
+                // Both entries are polled while Zabbix is still logging in
+                long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (agent.pdus.get() < 2 && System.nanoTime() < until) {
+                    Thread.sleep(10);
+                }
+                assertEquals(2, agent.pdus.get());
+                // Zabbix outlives snmp.deadline; the graphs wait for it, the SNMP rows do not
+                Thread.sleep(1200);
+                assertFalse(sections.isDone(), "graph rows must still wait for Zabbix");
+                zabbixReady.complete(null);
+
+                String html = sections.get(5, TimeUnit.SECONDS).celsius();
+                assertTrue(html.contains("<b>41</b>"), html);
+                assertTrue(html.contains("<b>42</b>"), html);
+                assertFalse(html.contains("пропущено"), html);
+            }
+        }
+    }
+}
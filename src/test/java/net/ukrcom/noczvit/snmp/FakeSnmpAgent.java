@@ -0,0 +1,148 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.snmp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.MessageException;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+/**
+ * Loopback SNMPv2c agent over an in-memory MIB for tests: answers GET, GETNEXT and GETBULK,
+ * counts received PDUs and records the source ports requests arrived from.
+ */
+final class FakeSnmpAgent implements AutoCloseable {
+
+    final NavigableMap<OID, Variable> mib = new ConcurrentSkipListMap<>();
+    final AtomicInteger pdus = new AtomicInteger();
+    final Set<Integer> peerPorts = ConcurrentHashMap.newKeySet();
+
+    private final Snmp snmp;
+    private final DefaultUdpTransportMapping transport;
+
+    FakeSnmpAgent() throws IOException {
+        transport = new DefaultUdpTransportMapping(new UdpAddress("127.0.0.1/0"));
+        snmp = new Snmp(transport);
+        snmp.addCommandResponder(new CommandResponder() {
+            @Override
+            public <A extends Address> void processPdu(CommandResponderEvent<A> event) {
+                pdus.incrementAndGet();
+                peerPorts.add(((UdpAddress) event.getPeerAddress()).getPort());
+                PDU response = respond(event.getPDU());
+                try {
+                    event.getMessageDispatcher().returnResponsePdu(event.getMessageProcessingModel(),
+                            event.getSecurityModel(), event.getSecurityName(), event.getSecurityLevel(),
+                            response, event.getMaxSizeResponsePDU(), event.getStateReference(),
+                            new StatusInformation());
+                } catch (MessageException e) {
+                    throw new IllegalStateException(e);
+                }
+                event.setProcessed(true);
+            }
+        });
+        snmp.listen();
+    }
+
+    /** Puts {@code value} as an OCTET STRING under {@code oid}. */
+    FakeSnmpAgent put(String oid, String value) {
+        mib.put(new OID(oid), new OctetString(value));
+        return this;
+    }
+
+    /** Puts all entries as OCTET STRINGs. */
+    FakeSnmpAgent putAll(Map<String, String> entries) {
+        entries.forEach(this::put);
+        return this;
+    }
+
+    /** The loopback UDP port this agent listens on. */
+    int port() {
+        return transport.getListenAddress().getPort();
+    }
+
+    /** A v2c target pointing at this agent, without retries. */
+    CommunityTarget<Address> target(long timeoutMillis) {
+        CommunityTarget<Address> target = new CommunityTarget<>();
+        target.setCommunity(new OctetString("public"));
+        target.setAddress(new UdpAddress("127.0.0.1/" + port()));
+        target.setVersion(SnmpConstants.version2c);
+        target.setTimeout(timeoutMillis);
+        target.setRetries(0);
+        return target;
+    }
+
+    private PDU respond(PDU request) {
+        PDU response = new PDU();
+        response.setType(PDU.RESPONSE);
+        response.setRequestID(request.getRequestID());
+        List<? extends VariableBinding> vbs = request.getVariableBindings();
+        switch (request.getType()) {
+            case PDU.GET -> vbs.forEach(vb -> response.add(new VariableBinding(vb.getOid(),
+                    mib.getOrDefault(vb.getOid(), Null.noSuchInstance))));
+            case PDU.GETNEXT -> vbs.forEach(vb -> response.add(next(vb.getOid())));
+            case PDU.GETBULK -> {
+                int nonRepeaters = Math.min(request.getNonRepeaters(), vbs.size());
+                for (int i = 0; i < nonRepeaters; i++) {
+                    response.add(next(vbs.get(i).getOid()));
+                }
+                List<OID> cursors = new ArrayList<>();
+                for (int i = nonRepeaters; i < vbs.size(); i++) {
+                    cursors.add(vbs.get(i).getOid());
+                }
+                for (int r = 0; r < request.getMaxRepetitions(); r++) {
+                    for (int c = 0; c < cursors.size(); c++) {
+                        VariableBinding vb = next(cursors.get(c));
+                        response.add(vb);
+                        cursors.set(c, vb.getOid());
+                    }
+                }
+            }
+            default -> response.setErrorStatus(PDU.genErr);
+        }
+        return response;
+    }
+
+    private VariableBinding next(OID oid) {
+        Map.Entry<OID, Variable> next = mib.higherEntry(oid);
+        return next != null ? new VariableBinding(next.getKey(), next.getValue())
+                : new VariableBinding(oid, Null.endOfMibView);
+    }
+
+    @Override
+    public void close() throws IOException {
+        snmp.close();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.snmp;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HostHealthTest {
+
+    private static final long PLENTY = 120_000;
+
+    @Test
+    @DisplayName("історія RTT переживає перезапуск і скорочує таймаут; невідомий пристрій — 5 с × 3 спроби")
+    void rttHistory_persistsAcrossRuns_shortensTimeout(@TempDir Path dir) {
+        String url = "jdbc:sqlite:" + dir.resolve("health.db");
+        HostHealth first = new HostHealth(url, 3);
+        first.success("fast.site", 40);
+        first.success("fast.site", 60);
+        first.success("slow.site", 2000);
+        first.save();
+
+        HostHealth next = new HostHealth(url, 3);
+        // srtt 42.5, rttvar 20 -> 122.5 ms, raised to the floor
+        assertEquals(new HostHealth.Budget(HostHealth.MIN_TIMEOUT_MILLIS, 2, 0), next.budget("fast.site", PLENTY));
+        // srtt 2000, rttvar 1000 -> 6000 ms, capped at the old fixed timeout
+        assertEquals(new HostHealth.Budget(HostHealth.DEFAULT_TIMEOUT_MILLIS, 2, 0), next.budget("slow.site", PLENTY));
+        assertEquals(new HostHealth.Budget(5000, 2, 0), next.budget("new.site", PLENTY));
+    }
+
+    @Test
+    @DisplayName("після N запусків без відповіді — одна коротка спроба; відповідь скидає лічильник")
+    void deadHost_fastFailedAfterNRuns_recoversOnResponse(@TempDir Path dir) {
+        String url = "jdbc:sqlite:" + dir.resolve("health.db");
+        for (int run = 1; run <= 3; run++) {
+            HostHealth health = new HostHealth(url, 3);
+            assertEquals(0, health.budget("dead.site", PLENTY).deadRuns(), "run " + run);
+            health.failure("dead.site");
+            health.save();
+        }
+
+        HostHealth health = new HostHealth(url, 3);
+        assertEquals(new HostHealth.Budget(HostHealth.PROBE_TIMEOUT_MILLIS, 0, 3), health.budget("dead.site", PLENTY));
+
+        health.success("dead.site", 80);
+        assertEquals(0, health.stats("dead.site").failures());
+        assertEquals(0, health.budget("dead.site", PLENTY).deadRuns());
+    }
+
+    @Test
+    @DisplayName("усі спроби вкладаються в залишок snmp.deadline")
+    void budget_cappedByRemainingDeadline() {
+        HostHealth health = new HostHealth("", 3);
+
+        assertEquals(new HostHealth.Budget(5000, 0, 0), health.budget("new.site", 7000));
+        assertEquals(new HostHealth.Budget(5000, 1, 0), health.budget("new.site", 10_000));
+        assertEquals(new HostHealth.Budget(2000, 0, 0), health.budget("new.site", 2000));
+    }
+
+    @Test
+    @DisplayName("кілька записів одного пристрою: збій рахується раз на запуск, решта записів — пробна спроба")
+    void severalEntriesOneHost_failureCountedOncePerRun() {
+        HostHealth health = new HostHealth("", 3);
+        health.success("olt.site", 50);
+
+        health.failure("olt.site");
+        assertEquals(new HostHealth.Budget(HostHealth.PROBE_TIMEOUT_MILLIS, 0, 0), health.budget("olt.site", PLENTY));
+        health.failure("olt.site");
+        health.failure("olt.site");
+        assertEquals(1, health.stats("olt.site").failures());
+
+        health.success("olt.site", 50);
+        assertEquals(new HostHealth.Budget(HostHealth.MIN_TIMEOUT_MILLIS, 2, 0), health.budget("olt.site", PLENTY));
+    }
+}
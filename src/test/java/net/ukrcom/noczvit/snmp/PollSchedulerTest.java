@@ -0,0 +1,86 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.snmp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PollSchedulerTest {
+
+    @Test
+    @DisplayName("спершу вищий пріоритет, усередині нього — по колу між майданчиками")
+    void order_byPriorityThenRoundRobinAcrossSites() {
+        Runnable noop = () -> { };
+        List<PollScheduler.Job> jobs = List.of(
+                new PollScheduler.Job("a", 1, noop),
+                new PollScheduler.Job("a", 1, noop),
+                new PollScheduler.Job("a", 1, noop),
+                new PollScheduler.Job("b", 1, noop),
+                new PollScheduler.Job("ramos", 0, noop),
+                new PollScheduler.Job("c", 1, noop));
+
+        List<String> sites = PollScheduler.order(jobs).stream().map(PollScheduler.Job::site).toList();
+
+        assertEquals(List.of("ramos", "a", "b", "c", "a", "a"), sites);
+    }
+
+    @Test
+    @DisplayName("не більше бюджету одночасно і не більше perSite на майданчик; збій задачі не зупиняє решту")
+    void run_respectsGlobalBudgetAndPerSiteLimit() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Map<String, AtomicInteger> perSite = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> maxPerSite = new ConcurrentHashMap<>();
+        AtomicInteger done = new AtomicInteger();
+
+        List<PollScheduler.Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            String site = "site-" + (i % 6);
+            boolean fails = i == 7;
+            jobs.add(new PollScheduler.Job(site, i % 2, () -> {
+                int now = running.incrementAndGet();
+                maxRunning.accumulateAndGet(now, Math::max);
+                int onSite = perSite.computeIfAbsent(site, s -> new AtomicInteger()).incrementAndGet();
+                maxPerSite.computeIfAbsent(site, s -> new AtomicInteger()).accumulateAndGet(onSite, Math::max);
+                try {
+                    Thread.sleep(5);
+                    if (fails) {
+                        throw new IllegalStateException("device exploded");
+                    }
+                    done.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    perSite.get(site).decrementAndGet();
+                    running.decrementAndGet();
+                }
+            }));
+        }
+
+        PollScheduler.run(jobs, 4, 1, "test");
+
+        assertEquals(59, done.get());
+        assertTrue(maxRunning.get() <= 4, "max concurrent " + maxRunning.get());
+        maxPerSite.forEach((site, max) -> assertEquals(1, max.get(), site));
+    }
+}
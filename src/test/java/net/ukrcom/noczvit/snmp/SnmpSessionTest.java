@@ -0,0 +1,83 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.snmp;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.PDU;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SnmpSessionTest {
+
+    private static PDU get(String oid) {
+        PDU pdu = new PDU();
+        pdu.add(new VariableBinding(new OID(oid)));
+        pdu.setType(PDU.GET);
+        return pdu;
+    }
+
+    @Test
+    @DisplayName("сотня одночасних GET через один сокет: кожна відповідь зіставлена зі своїм запитом")
+    void concurrentRequests_shareOneSocket_responsesCorrelated() throws Exception {
+        try (FakeSnmpAgent agent = new FakeSnmpAgent(); SnmpSession session = new SnmpSession()) {
+            List<String> oids = new ArrayList<>();
+            for (int i = 1; i <= 100; i++) {
+                String oid = "1.3.6.1.4.1.99999.1." + i;
+                oids.add(oid);
+                agent.put(oid, "value-of-" + oid);
+            }
+            List<CompletableFuture<PDU>> futures = new ArrayList<>();
+            for (String oid : oids) {
+                futures.add(session.sendAsync(get(oid), agent.target(5000)));
+            }
+
+            for (int i = 0; i < oids.size(); i++) {
+                PDU response = futures.get(i).get();
+                assertEquals("value-of-" + oids.get(i), response.getVariable(new OID(oids.get(i))).toString());
+            }
+            assertEquals(1, agent.peerPorts.size(), "all requests must leave from the same local socket");
+        }
+    }
+
+    @Test
+    @DisplayName("пристрій, що мовчить, дає null після таймауту, а не виняток")
+    void silentDevice_timesOutWithNullResponse() throws Exception {
+        try (DatagramSocket silent = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+                SnmpSession session = new SnmpSession()) {
+            CommunityTarget<Address> target = new CommunityTarget<>();
+            target.setCommunity(new OctetString("public"));
+            target.setAddress(new UdpAddress("127.0.0.1/" + silent.getLocalPort()));
+            target.setVersion(SnmpConstants.version2c);
+            target.setTimeout(200);
+            target.setRetries(0);
+
+            assertNull(session.send(get("1.3.6.1.2.1.1.1.0"), target));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.trap;
+
+import jakarta.mail.MessagingException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.ukrcom.noczvit.TestFixtures;
+import net.ukrcom.noczvit.imap.ImapStorePool;
+import net.ukrcom.noczvit.imap.RawMessage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImapTrapReaderTest {
+
+    private static final List<String> FOLDERS = List.of("DC-Room1", "DC-Room2", "DC-Room3", "DC-Room4", "DC-Room5");
+
+    /** Reader whose folders are served from memory, with random per-folder latency. */
+    private static final class FakeReader extends ImapTrapReader {
+
+        private final String failing;
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        FakeReader(String failing) throws IOException {
+            this(TestFixtures.config(), failing);
+        }
+
+        private FakeReader(net.ukrcom.noczvit.Config config, String failing) {
+            super(config, new ImapStorePool(config, 4));
+            this.failing = failing;
+        }
+
+        @Override
+        List<RawMessage> readFolder(String name, boolean fetchAll, long fromEpoch, long toEpoch)
+                throws MessagingException {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(1, 30));
+                if (name.equals(failing)) {
+                    throw new MessagingException("NO [UNAVAILABLE] " + name);
+                }
+                List<RawMessage> messages = new ArrayList<>();
+                for (int i = 1; i <= 3; i++) {
+                    messages.add(new RawMessage("", i, name + " trap " + i, "", ""));
+                }
+                return messages;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MessagingException("interrupted", e);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    private static List<String> subjects(List<RawMessage> messages) {
+        return messages.stream().map(RawMessage::subject).toList();
+    }
+
+    @Test
+    @DisplayName("паралельне читання тек дає той самий порядок, що й послідовне")
+    void parallelRead_mergesInSequentialOrder() throws Exception {
+        FakeReader reader = new FakeReader(null);
+
+        List<RawMessage> sequential = reader.readFolders(FOLDERS, 1, true, 0, 0);
+        List<RawMessage> parallel = reader.readFolders(FOLDERS, 3, true, 0, 0);
+
+        assertEquals(15, sequential.size());
+        assertEquals(subjects(sequential), subjects(parallel));
+        assertTrue(reader.maxRunning.get() > 1 && reader.maxRunning.get() <= 3, "max " + reader.maxRunning.get());
+    }
+
+    @Test
+    @DisplayName("тека, що не прочиталась, валить читання в обох режимах, а не зникає зі звіту")
+    void failingFolder_failsBothModes() throws Exception {
+        FakeReader reader = new FakeReader("DC-Room3");
+
+        MessagingException sequential = assertThrows(MessagingException.class,
+                () -> reader.readFolders(FOLDERS, 1, true, 0, 0));
+        MessagingException parallel = assertThrows(MessagingException.class,
+                () -> reader.readFolders(FOLDERS, 3, true, 0, 0));
+
+        assertEquals(sequential.getMessage(), parallel.getMessage());
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2025 Ukrcom
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package net.ukrcom.noczvit.zabbix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import net.ukrcom.noczvit.TestFixtures;
+import net.ukrcom.noczvit.zabbix.Client.HistoryPoint;
+import net.ukrcom.noczvit.zabbix.Client.InterfaceItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Пакетні виклики JSON-RPC {@link Client} проти вбудованого в JDK HTTP-сервера, що відповідає
+ * як {@code api_jsonrpc.php}: {@code user.login} дає токен, {@code history.get} з {@code limit} —
+ * один запис, значення якого дорівнює ID item, а за вікном часу — записи кожного item о 900, 1000
+ * і 1100 зі значенням {@code clock / 100}.
+ */
+class ClientTest {
+
+    // Field order and extra fields as a real Zabbix returns them; numbers are strings
+    private static final String EVENTS = """
+            [{"eventid":"11","source":"0","objectid":"501","clock":"1000","r_eventid":"12",
+              "name":"Unavailable by ICMP ping","hosts":[{"hostid":"7","host":"r234-1"}]},
+             {"eventid":"13","objectid":"502","clock":"1500","r_eventid":"0",
+              "name":"High CPU","hosts":[{"hostid":"8","host":"s500-2"}],"tags":[{"tag":"a","value":"b"}]}]
+            """;
+    private static final String RECOVERY_CLOCKS = """
+            [{"eventid":"12","clock":"1300"}]
+            """;
+
+    private HttpServer server;
+    private final AtomicInteger posts = new AtomicInteger();
+    private final AtomicInteger eventPages = new AtomicInteger();
+    private final AtomicInteger recoveryChunks = new AtomicInteger();
+    private final AtomicInteger charts = new AtomicInteger();
+    // 0 — answer event.get with the fixed EVENTS; otherwise generate that many events
+    private int generatedEvents;
+    // Interface name every item.get returns, changed to simulate a renamed port
+    private volatile String interfaceName = "ge-0/0/1";
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private Client clientAgainst(boolean batchSupported, String... extraArgs) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api_jsonrpc.php", exchange -> handle(exchange, batchSupported));
+        server.createContext("/chart2.php", exchange -> {
+            // PNG signature plus a per-render counter, so re-renders are distinguishable
+            byte[] png = {(byte) 0x89, 'P', 'N', 'G', (byte) charts.incrementAndGet()};
+            exchange.getResponseHeaders().set("Content-Type", "image/png");
+            exchange.sendResponseHeaders(200, png.length);
+            exchange.getResponseBody().write(png);
+            exchange.close();
+        });
+        server.start();
+        Client client = newClient(extraArgs);
+        // Web login hits an unknown context and fails; the API token is all these tests need
+        client.login();
+        return client;
+    }
+
+    // Another client against the running server, without login
+    private Client newClient(String... extraArgs) throws IOException {
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        List<String> args = new ArrayList<>(List.of(
+                "--zabbix-api=" + base + "/api_jsonrpc.php", "--zabbix-url=" + base,
+                "--zabbix-username=u", "--zabbix-password=p"));
+        args.addAll(List.of(extraArgs));
+        return new Client(TestFixtures.config(args.toArray(String[]::new)));
+    }
+
+    private void handle(HttpExchange exchange, boolean batchSupported) throws IOException {
+        posts.incrementAndGet();
+        JsonElement request = JsonParser.parseString(
+                new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        JsonElement response;
+        if (request.isJsonArray() && batchSupported) {
+            JsonArray responses = new JsonArray();
+            // Reverse order: the client must match responses by id, not by position
+            List<JsonElement> calls = request.getAsJsonArray().asList();
+            for (int i = calls.size() - 1; i >= 0; i--) {
+                responses.add(answer(calls.get(i).getAsJsonObject()));
+            }
+            response = responses;
+        } else if (request.isJsonArray()) {
+            JsonObject error = new JsonObject();
+            error.addProperty("code", -32600);
+            error.addProperty("message", "Invalid Request.");
+            JsonObject wrapper = new JsonObject();
+            wrapper.add("error", error);
+            response = wrapper;
+        } else {
+            response = answer(request.getAsJsonObject());
+        }
+        byte[] body = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private JsonObject answer(JsonObject call) {
+        JsonObject response = new JsonObject();
+        response.addProperty("jsonrpc", "2.0");
+        response.add("id", call.get("id"));
+        String method = call.get("method").getAsString();
+        if (method.equals("user.login")) {
+            response.addProperty("result", "token");
+        } else if (method.equals("host.get")) {
+            JsonArray result = new JsonArray();
+            for (JsonElement host : call.getAsJsonObject("params").getAsJsonObject("filter").getAsJsonArray("host")) {
+                JsonObject entry = new JsonObject();
+                entry.addProperty("hostid", "10" + host.getAsString().length());
+                entry.add("host", host);
+                result.add(entry);
+            }
+            response.add("result", result);
+        } else if (method.equals("graph.get")) {
+            response.add("result", JsonParser.parseString("[{\"graphid\":\"77\",\"name\":\"Ping\"}]"));
+        } else if (method.equals("item.get")) {
+            JsonArray result = new JsonArray();
+            for (JsonElement hostId : call.getAsJsonObject("params").getAsJsonArray("hostids")) {
+                JsonObject entry = new JsonObject();
+                entry.addProperty("itemid", hostId.getAsString() + "1");
+                entry.addProperty("name", interfaceName + " Operational status");
+                entry.addProperty("value_type", "3");
+                entry.add("hostid", hostId);
+                result.add(entry);
+            }
+            response.add("result", result);
+        } else if (method.equals("event.get") && generatedEvents > 0) {
+            response.add("result", generatedEventsAnswer(call.getAsJsonObject("params")));
+        } else if (method.equals("event.get")) {
+            response.add("result", JsonParser.parseString(
+                    call.getAsJsonObject("params").has("eventids") ? RECOVERY_CLOCKS : EVENTS));
+        } else if (!call.getAsJsonObject("params").has("limit")) {
+            JsonArray result = new JsonArray();
+            for (JsonElement itemId : call.getAsJsonObject("params").getAsJsonArray("itemids")) {
+                for (int clock = 900; clock <= 1100; clock += 100) {
+                    JsonObject entry = new JsonObject();
+                    entry.add("itemid", itemId);
+                    entry.addProperty("clock", String.valueOf(clock));
+                    entry.addProperty("ns", "0");
+                    entry.addProperty("value", String.valueOf(clock / 100));
+                    result.add(entry);
+                }
+            }
+            response.add("result", result);
+        } else {
+            String itemId = call.getAsJsonObject("params").getAsJsonArray("itemids").get(0).getAsString();
+            JsonObject entry = new JsonObject();
+            entry.addProperty("clock", "1000");
+            entry.addProperty("value", itemId);
+            JsonArray result = new JsonArray();
+            result.add(entry);
+            response.add("result", result);
+        }
+        return response;
+    }
+
+    /**
+     * Problem events have odd ids 1, 3, 5…, each recovered by the next even id with clock id·10;
+     * pages honour {@code limit} and the inclusive {@code eventid_from} like Zabbix does.
+     */
+    private JsonArray generatedEventsAnswer(JsonObject params) {
+        JsonArray result = new JsonArray();
+        if (params.has("eventids")) {
+            recoveryChunks.incrementAndGet();
+            for (JsonElement id : params.getAsJsonArray("eventids")) {
+                JsonObject entry = new JsonObject();
+                entry.add("eventid", id);
+                entry.addProperty("clock", String.valueOf(id.getAsLong() * 10));
+                result.add(entry);
+            }
+            return result;
+        }
+        eventPages.incrementAndGet();
+        long from = params.has("eventid_from") ? params.get("eventid_from").getAsLong() : 0;
+        int limit = params.get("limit").getAsInt();
+        for (long id = 1; id < 2L * generatedEvents && result.size() < limit; id += 2) {
+            if (id >= from) {
+                JsonObject entry = new JsonObject();
+                entry.addProperty("eventid", String.valueOf(id));
+                entry.addProperty("objectid", "500");
+                entry.addProperty("clock", String.valueOf(id));
+                entry.addProperty("r_eventid", String.valueOf(id + 1));
+                entry.addProperty("name", "Event " + id);
+                entry.add("hosts", JsonParser.parseString("[{\"hostid\":\"1\",\"host\":\"h" + id + "\"}]"));
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private static List<InterfaceItem> items(int count) {
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(i -> new InterfaceItem(String.valueOf(i), "Interface " + i, 3))
+                .toList();
+    }
+
+    @Test
+    @DisplayName("historyValuesBefore: усі items одним HTTP-запитом, відповіді зіставлені за id")
+    void historyValues_sentAsOneBatch_matchedById() throws IOException {
+        Client client = clientAgainst(true);
+        int before = posts.get();
+
+        List<Optional<HistoryPoint>> values = client.historyValuesBefore(items(3), 2000);
+
+        assertEquals(1, posts.get() - before);
+        assertEquals(List.of(1L, 2L, 3L), values.stream().map(v -> v.orElseThrow().value()).toList());
+        Client.ApiStats stats = client.getApiStats();
+        assertEquals(4, stats.calls(), "user.login + three history.get");
+        assertEquals(2, stats.saved());
+    }
+
+    @Test
+    @DisplayName("historyValuesBefore: сервер без batch — повтор викликами по одному, далі batch вимкнено")
+    void historyValues_batchRejected_fallsBackToSingleCalls() throws IOException {
+        Client client = clientAgainst(false);
+
+        List<Optional<HistoryPoint>> first = client.historyValuesBefore(items(2), 2000);
+        int afterFirst = posts.get();
+        List<Optional<HistoryPoint>> second = client.historyValuesAfter(items(2), 2000);
+
+        assertEquals(List.of(1L, 2L), first.stream().map(v -> v.orElseThrow().value()).toList());
+        assertEquals(List.of(1L, 2L), second.stream().map(v -> v.orElseThrow().value()).toList());
+        assertEquals(2, posts.get() - afterFirst, "no second batch attempt");
+        assertTrue(client.getApiStats().saved() <= 0);
+    }
+
+    @Test
+    @DisplayName("historyWindow: один запит на всі items, знімки до/після знаходяться в межах вікна")
+    void historyWindow_resolvesSnapshotsLocally() throws IOException {
+        Client client = clientAgainst(true);
+        int before = posts.get();
+
+        Client.HistoryWindow window = client.historyWindow(items(48), 800, 1200);
+
+        assertEquals(1, posts.get() - before);
+        InterfaceItem port = items(48).get(47);
+        assertEquals(10L, window.before(port, 1050).orElseThrow().value());
+        assertEquals(10L, window.before(port, 1000).orElseThrow().value());
+        assertEquals(11L, window.after(port, 1050).orElseThrow().value());
+        assertTrue(window.before(port, 850).isEmpty(), "nothing in the window at or before 850");
+        assertTrue(window.after(port, 1300).isEmpty(), "outside the window");
+    }
+
+    @Test
+    @DisplayName("getProblems: події читаються потоково прямо в ZabbixProblem, разом із часом відновлення")
+    void getProblems_streamsEventsIntoRecords() throws IOException {
+        Client client = clientAgainst(true);
+
+        List<ZabbixProblem> problems = client.getProblems(
+                LocalDateTime.of(2026, 1, 1, 8, 0), LocalDateTime.of(2026, 1, 1, 20, 0));
+
+        assertEquals(List.of(
+                new ZabbixProblem("r234-1", "Unavailable by ICMP ping", 1000, 1300),
+                new ZabbixProblem("s500-2", "High CPU", 1500, 0)), problems);
+    }
+
+    @Test
+    @DisplayName("getProblems: довге вікно читається сторінками за eventid_from, відновлення — порціями")
+    void getProblems_pagesThroughEvents_recoveryInChunks() throws IOException {
+        generatedEvents = 2_345;
+        Client client = clientAgainst(true);
+
+        List<ZabbixProblem> problems = client.getProblems(
+                LocalDateTime.of(2026, 1, 1, 8, 0), LocalDateTime.of(2026, 1, 1, 20, 0));
+
+        assertEquals(3, eventPages.get(), "pages of 1000, 1000 and 345 events");
+        assertEquals(5, recoveryChunks.get(), "2345 recovery ids in chunks of 500");
+        assertEquals(2_345, problems.size());
+        assertEquals(2_345, problems.stream().map(ZabbixProblem::host).distinct().count(), "no duplicates across pages");
+        ZabbixProblem last = problems.get(problems.size() - 1);
+        assertEquals(new ZabbixProblem("h4689", "Event 4689", 4689, 46_900), last);
+    }
+
+    @Test
+    @DisplayName("zabbix.metadata.cache: items переживають запуск; прострочені віддаються й оновлюються у фоні")
+    void metadataCache_survivesRestart_staleRefreshedInBackground(@TempDir Path dir) throws Exception {
+        String url = "jdbc:sqlite:" + dir.resolve("metadata.db");
+        String cacheArg = "--zabbix-metadata-cache=" + url;
+        Client first = clientAgainst(true, cacheArg);
+        assertEquals("ge-0/0/1", first.getInterfaceItems("r1-1").get(0).name());
+        first.saveMetadataCache();
+        assertEquals(new Client.MetadataStats(0, 0, 2, 0), first.getMetadataStats(), "items and hostid fetched");
+
+        int before = posts.get();
+        Client second = newClient(cacheArg);
+        second.login();
+        assertEquals("ge-0/0/1", second.getInterfaceItems("r1-1").get(0).name());
+        assertEquals(1, posts.get() - before, "only user.login, items come from disk");
+        assertEquals(new Client.MetadataStats(1, 0, 0, 0), second.getMetadataStats());
+
+        // Age every entry past the TTL and rename the port on the server
+        try (Connection conn = DriverManager.getConnection(url); Statement st = conn.createStatement()) {
+            st.executeUpdate("UPDATE zabbix_metadata SET fetched_at = fetched_at - 25 * 3600 * 1000");
+        }
+        interfaceName = "xe-0/0/1";
+        Client third = newClient(cacheArg);
+        assertEquals("ge-0/0/1", third.getInterfaceItems("r1-1").get(0).name(), "stale value served before refresh");
+        third.login();
+        third.saveMetadataCache();
+        assertEquals("xe-0/0/1", third.getInterfaceItems("r1-1").get(0).name());
+        assertEquals(new Client.MetadataStats(1, 1, 0, 2), third.getMetadataStats(), "hostid and items refreshed");
+
+        before = posts.get();
+        assertEquals("xe-0/0/1", newClient(cacheArg).getInterfaceItems("r1-1").get(0).name());
+        assertEquals(before, posts.get(), "refreshed value persisted");
+    }
+
+    @Test
+    @DisplayName("zabbix.graph.cache: той самий графік за запуск рендериться раз, за минулу зміну — з диска")
+    void graphImages_reusedWithinRun_closedPeriodFromDisk(@TempDir Path dir) throws IOException {
+        String cacheArg = "--zabbix-graph-cache=" + dir.resolve("graphs");
+        LocalDateTime from = LocalDateTime.of(2026, 1, 1, 8, 0);
+        LocalDateTime to = LocalDateTime.of(2026, 1, 1, 19, 59, 59);
+        Client first = clientAgainst(true, cacheArg);
+
+        String row = first.getPingGraphRow("r1-1", from, to);
+        assertTrue(row.contains("data:image/png;base64,"));
+        assertEquals(row, first.getPingGraphRow("r1-1", from, to));
+        assertEquals(1, charts.get(), "second incident on the same device reuses the render");
+
+        Client second = newClient(cacheArg);
+        second.login();
+        assertEquals(row, second.getPingGraphRow("r1-1", from, to));
+        assertEquals(1, charts.get(), "closed shift served from disk");
+
+        LocalDateTime now = LocalDateTime.now();
+        second.getPingGraphRow("r1-1", now.minusHours(1), now.plusHours(1));
+        Client third = newClient(cacheArg);
+        third.login();
+        third.getPingGraphRow("r1-1", now.minusHours(1), now.plusHours(1));
+        assertEquals(3, charts.get(), "a shift still in progress is never served from disk");
+    }
+
+    @Test
+    @DisplayName("zabbix.graph.cache: зміна, що щойно закінчилася, не кешується до спливу GraphCache.SETTLE")
+    void graphImages_justClosedPeriod_notCachedUntilSettled(@TempDir Path dir) throws IOException {
+        String cacheArg = "--zabbix-graph-cache=" + dir.resolve("graphs");
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime justClosed = now.minusMinutes(1);
+        LocalDateTime settled = now.minus(GraphCache.SETTLE).minusMinutes(1);
+
+        assertFalse(GraphCache.settled(now.minus(GraphCache.SETTLE), now), "exactly at the boundary is still open");
+        assertTrue(GraphCache.settled(now.minus(GraphCache.SETTLE).minusSeconds(1), now));
+
+        Client first = clientAgainst(true, cacheArg);
+        first.getPingGraphRow("r1-1", justClosed.minusHours(12), justClosed);
+        first.getPingGraphRow("r1-1", settled.minusHours(12), settled);
+        assertEquals(2, charts.get());
+
+        Client second = newClient(cacheArg);
+        second.login();
+        second.getPingGraphRow("r1-1", justClosed.minusHours(12), justClosed);
+        second.getPingGraphRow("r1-1", settled.minusHours(12), settled);
+        assertEquals(3, charts.get(), "only the settled period is served from disk");
+    }
+
+    @Test
+    @DisplayName("zabbix.graph.cid: рядок посилається на cid:, один PNG на графік для multipart/related")
+    void graphRows_cidMode_referenceInlineImages() throws IOException {
+        Client client = clientAgainst(true, "--zabbix-graph-cid");
+        LocalDateTime from = LocalDateTime.of(2026, 1, 1, 8, 0);
+        LocalDateTime to = LocalDateTime.of(2026, 1, 1, 19, 59, 59);
+
+        String row = client.getPingGraphRow("r1-1", from, to);
+        assertEquals(row, client.getPingGraphRow("r1-1", from, to));
+        client.getPingGraphRow("r1-1", from.minusDays(1), to.minusDays(1));
+
+        Map<String, byte[]> images = client.getInlineImages();
+        assertEquals(2, images.size(), "two distinct graphs, the repeated one attached once");
+        String cid = images.keySet().iterator().next();
+        assertTrue(row.contains("src=\"cid:" + cid + "\""), row);
+        assertFalse(row.contains("base64"), "no data URI in cid mode");
+        assertEquals((byte) 0x89, images.get(cid)[0]);
+    }
+}
@@ -17,10 +17,13 @@ package net.ukrcom.noczvit.zabbix;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.TreeMap;
 import net.ukrcom.noczvit.TestFixtures;
 import net.ukrcom.noczvit.zabbix.Client.HistoryPoint;
 import net.ukrcom.noczvit.zabbix.Client.InterfaceItem;
@@ -51,6 +54,11 @@ class PowerResilienceAuditorTest {
         Map<String, InterfaceItem> uptimeItemByHost = new HashMap<>();
         Map<String, HistoryPoint> beforeByItemId = new HashMap<>();
         Map<String, HistoryPoint> afterByItemId = new HashMap<>();
+        // Rows historyWindow() returns, keyed by clock; empty by default, so every snapshot
+        // falls back to the exact per-item methods above
+        Map<String, NavigableMap<Long, HistoryPoint>> windowByItemId = new HashMap<>();
+        int exactLookups;
+        List<long[]> windows = new ArrayList<>();
 
         FakeZabbixClient() throws IOException {
             super(TestFixtures.config());
@@ -67,13 +75,27 @@ class PowerResilienceAuditorTest {
         }
 
         @Override
-        public Optional<HistoryPoint> historyValueBefore(InterfaceItem item, long timestamp) {
-            return Optional.ofNullable(beforeByItemId.get(item.itemId()));
+        public HistoryWindow historyWindow(List<InterfaceItem> items, long from, long till) {
+            windows.add(new long[]{from, till});
+            Map<String, NavigableMap<Long, HistoryPoint>> byItem = new HashMap<>();
+            windowByItemId.forEach((itemId, points) -> {
+                NavigableMap<Long, HistoryPoint> inRange = new TreeMap<>();
+                points.subMap(from, true, till, true).forEach((clock, p) -> inRange.put(clock * 1_000_000_000L, p));
+                byItem.put(itemId, inRange);
+            });
+            return new HistoryWindow(from, till, byItem);
         }
 
         @Override
-        public Optional<HistoryPoint> historyValueAfter(InterfaceItem item, long timestamp) {
-            return Optional.ofNullable(afterByItemId.get(item.itemId()));
+        public List<Optional<HistoryPoint>> historyValuesBefore(List<InterfaceItem> items, long timestamp) {
+            exactLookups += items.size();
+            return items.stream().map(i -> Optional.ofNullable(beforeByItemId.get(i.itemId()))).toList();
+        }
+
+        @Override
+        public List<Optional<HistoryPoint>> historyValuesAfter(List<InterfaceItem> items, long timestamp) {
+            exactLookups += items.size();
+            return items.stream().map(i -> Optional.ofNullable(afterByItemId.get(i.itemId()))).toList();
         }
     }
 
@@ -520,4 +542,58 @@ class PowerResilienceAuditorTest {
         assertTrue(r.uptimeDecreased());
         assertEquals(Optional.of(Instant.ofEpochSecond(205)), r.restartDetectedAt());
     }
+
+    // ---- Вікно історії ----------------------------------------------------------------------
+
+    private static void windowPoint(FakeZabbixClient fake, String itemId, long clock, long value) {
+        fake.windowByItemId.computeIfAbsent(itemId, id -> new TreeMap<>())
+                .put(clock, new HistoryPoint(Instant.ofEpochSecond(clock), value));
+    }
+
+    @Test
+    void audit_snapshotsFromHistoryWindow_noExactLookups() throws IOException {
+        FakeZabbixClient fake = new FakeZabbixClient();
+        fake.interfaceItemsByHost.put("host1", List.of(
+                new InterfaceItem("1", "Interface 1(client-a)", 3),
+                new InterfaceItem("2", "Interface 2(client-b)", 3)));
+        // Port 1 was already down; port 2 was up and came back. Points outside [tDown, tUp]
+        // nearest to each edge must win over older/later ones.
+        windowPoint(fake, "1", 40, OPERATIONAL_UP);
+        windowPoint(fake, "1", 90, OPERATIONAL_DOWN);
+        windowPoint(fake, "2", 95, OPERATIONAL_UP);
+        windowPoint(fake, "2", 205, OPERATIONAL_UP);
+        windowPoint(fake, "2", 300, OPERATIONAL_DOWN);
+
+        PowerResilienceResult r = auditorWith(fake).audit(List.of(hostDown("host1", 100, 200))).get(0);
+
+        assertEquals(1, fake.windows.size(), "short outage: one window covers both edges");
+        assertEquals(0, fake.exactLookups);
+        assertEquals(1, r.alreadyDownAtFall());
+        assertEquals(1, r.recoveredBeforeUs());
+        assertEquals(Instant.ofEpochSecond(90), r.alreadyDownNames().get(0).observedAt());
+        assertEquals(Instant.ofEpochSecond(205), r.recoveredNames().get(0).observedAt());
+    }
+
+    @Test
+    void audit_longOutage_twoWindows_missesFallBackToExactLookup() throws IOException {
+        FakeZabbixClient fake = new FakeZabbixClient();
+        fake.interfaceItemsByHost.put("host1", List.of(
+                new InterfaceItem("1", "Interface 1(client-a)", 3),
+                new InterfaceItem("2", "Interface 2(client-b)", 3)));
+        long tDown = 100_000;
+        long tUp = tDown + 86_400;
+        windowPoint(fake, "1", tDown - 60, OPERATIONAL_UP);
+        windowPoint(fake, "1", tUp + 60, OPERATIONAL_UP);
+        // Port 2 has not changed for longer than the window: only the exact lookup knows it
+        fake.beforeByItemId.put("2", new HistoryPoint(Instant.ofEpochSecond(1), OPERATIONAL_DOWN));
+
+        PowerResilienceResult r = auditorWith(fake).audit(List.of(hostDown("host1", tDown, tUp))).get(0);
+
+        assertEquals(2, fake.windows.size());
+        assertTrue(fake.windows.get(0)[1] == tDown && fake.windows.get(1)[0] == tUp,
+                "the outage itself is not fetched");
+        assertEquals(1, fake.exactLookups, "only port 2 before the fall");
+        assertEquals(1, r.alreadyDownAtFall());
+        assertEquals(1, r.recoveredBeforeUs());
+    }
 }